@@ -0,0 +1,406 @@
+package ca.mcgill.ecse211.tools;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import ca.mcgill.ecse211.canhandling.CanColor;
+import ca.mcgill.ecse211.demo.AveragedBuffer;
+import ca.mcgill.ecse211.odometer.LineCorrector;
+import ca.mcgill.ecse211.odometer.OdometerData;
+import ca.mcgill.ecse211.odometer.OdometerExceptions;
+import ca.mcgill.ecse211.wifi.GameSettings;
+import ca.mcgill.ecse211.wifi.Rect;
+
+/**
+ * A workstation tool that measures the cost of the robot's hot paths, so that
+ * changes to them can be compared before they are deployed to the brick. Each
+ * benchmark is warmed up, then run for several rounds, and reports its
+ * throughput, the time per operation, and the memory allocated per operation
+ * and the garbage collections it caused.
+ *
+ * The odometer lock is also measured under contention: one thread updates
+ * the pose, as Odometer does, while the others read it, as the navigation,
+ * correction and display threads do.
+ *
+ * FinalDemo cannot be loaded off the robot, so its toSensor() and toRobot()
+ * are measured through LineCorrector, which they delegate to. GameSettings
+ * computes the search parameters while loading the game data, so the whole
+ * of load() is measured.
+ *
+ * Usage: Benchmarks [-t round ms] [-threads n[,n...]] [name filter]
+ *
+ * Absolute numbers from a workstation are much better than the brick's, but
+ * the relative costs and allocations carry over.
+ * @author jacob
+ */
+public class Benchmarks {
+  /**
+   * The number of rounds run before measuring, and measured
+   */
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int ROUNDS = 5;
+  /**
+   * The number of operations between checks of the time
+   */
+  private static final int BATCH = 1000;
+
+  /**
+   * Keeps the results of the benchmarks alive, so that they are not optimized away
+   */
+  private static volatile double sink;
+
+  /**
+   * A benchmarked operation
+   */
+  private static abstract class Bench {
+    final String name;
+    final int threads;
+
+    /**
+     * Creates a benchmark
+     * @param name The name of the benchmark
+     * @param threads The number of threads running it at once
+     */
+    Bench(String name, int threads) {
+      this.name = threads == 1 ? name : name + " x" + threads;
+      this.threads = threads;
+    }
+
+    /**
+     * Runs the operation a number of times
+     * @param thread The index of the thread running it, from 0
+     * @param n The number of operations
+     * @return A value that depends on every result
+     */
+    abstract double run(int thread, int n);
+  }
+
+  /**
+   * The totals of one round of a benchmark
+   */
+  private static class Round {
+    long ops;
+    long bytes;
+    long nanos;
+  }
+
+  private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+  public static void main(String[] args) throws Exception {
+    long roundMs = 500;
+    int[] threadCounts = {2, 4};
+    String filter = "";
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-t") && i + 1 < args.length) {
+        roundMs = Long.parseLong(args[++i]);
+      } else if (args[i].equals("-threads") && i + 1 < args.length) {
+        String[] v = args[++i].split(",");
+        threadCounts = new int[v.length];
+        for (int j = 0; j < v.length; j++) {
+          threadCounts[j] = Integer.parseInt(v[j]);
+        }
+      } else if (args[i].startsWith("-")) {
+        System.err.println("Usage: Benchmarks [-t round ms] [-threads n[,n...]] [name filter]");
+        System.exit(1);
+      } else {
+        filter = args[i];
+      }
+    }
+
+    System.out.printf("%-30s %13s %10s %10s %8s%n", "benchmark", "ops/us", "ns/op", "B/op",
+        "gc");
+    for (Bench b : benchmarks(threadCounts)) {
+      if (b.name.contains(filter)) {
+        measure(b, roundMs);
+      }
+    }
+  }
+
+  /**
+   * Creates every benchmark
+   * @param threadCounts The numbers of threads to run the contended benchmarks with
+   * @return The benchmarks, in the order they run
+   * @throws OdometerExceptions If the odometer data cannot be created
+   */
+  private static List<Bench> benchmarks(int[] threadCounts) throws OdometerExceptions {
+    final OdometerData odo = OdometerData.getOdometerData();
+    List<Bench> list = new ArrayList<Bench>();
+
+    list.add(new Bench("OdometerData.getXYT", 1) {
+      @Override
+      double run(int thread, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) {
+          s += odo.getXYT()[2];
+        }
+        return s;
+      }
+    });
+    list.add(new Bench("OdometerData.update", 1) {
+      @Override
+      double run(int thread, int n) {
+        for (int i = 0; i < n; i++) {
+          odo.update(0.01, -0.01, (i & 1) == 0 ? 0.1 : -0.1);
+        }
+        return n;
+      }
+    });
+    for (int threads : threadCounts) {
+      // thread 0 updates, as Odometer does, and the others read
+      list.add(new Bench("OdometerData.contended", threads) {
+        @Override
+        double run(int thread, int n) {
+          double s = 0;
+          for (int i = 0; i < n; i++) {
+            if (thread == 0) {
+              odo.update(0.01, -0.01, (i & 1) == 0 ? 0.1 : -0.1);
+            } else {
+              s += odo.getXYT()[0];
+            }
+          }
+          return s;
+        }
+      });
+    }
+
+    list.add(new Bench("LineCorrector.toSensor", 1) {
+      @Override
+      double run(int thread, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) {
+          s += LineCorrector.toSensor(new double[] {i, -i, i % 360})[0];
+        }
+        return s;
+      }
+    });
+    list.add(new Bench("LineCorrector.toRobot", 1) {
+      @Override
+      double run(int thread, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) {
+          s += LineCorrector.toRobot(new double[] {i, -i, i % 360})[0];
+        }
+        return s;
+      }
+    });
+
+    final int[] rgb = {30, 12, 8};
+    list.add(new Bench("CanColor.getClosestColor", 1) {
+      @Override
+      double run(int thread, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) {
+          rgb[2] = i & 63;
+          s += CanColor.getClosestColor(rgb).ordinal();
+        }
+        return s;
+      }
+    });
+
+    final AveragedBuffer<Float> buffer = new AveragedBuffer<Float>();
+    list.add(new Bench("AveragedBuffer.add", 1) {
+      @Override
+      double run(int thread, int n) {
+        for (int i = 0; i < n; i++) {
+          // boxed, as the robot's callers do
+          buffer.add(0.001f * (i & 1023));
+        }
+        return buffer.getAvg();
+      }
+    });
+
+    final Rect rect = new Rect(2, 3, 8, 7);
+    list.add(new Bench("Rect.contains", 1) {
+      @Override
+      double run(int thread, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) {
+          s += rect.contains(i & 511, (i >> 9) & 511) ? 1 : 0;
+        }
+        return s;
+      }
+    });
+
+    final Map<String, Long> data = gameData();
+    list.add(new Bench("GameSettings.load", 1) {
+      @Override
+      double run(int thread, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) {
+          GameSettings.load(data);
+          s += GameSettings.searchAngles[0];
+        }
+        return s;
+      }
+    });
+    return list;
+  }
+
+  /**
+   * Builds the game data the server would send for a typical layout,
+   * as used by MissionSimulator
+   * @return The game data
+   */
+  private static Map<String, Long> gameData() {
+    Map<String, Long> data = new HashMap<String, Long>();
+    data.put("RedTeam", 6L);
+    data.put("GreenTeam", 1L);
+    data.put("RedCorner", 0L);
+    String[] names = {"Red", "Island", "TNR", "SZR"};
+    long[][] rects = {{0, 0, 4, 4}, {6, 0, 15, 9}, {4, 2, 6, 3}, {7, 5, 10, 8}};
+    for (int i = 0; i < names.length; i++) {
+      data.put(names[i] + "_LL_x", rects[i][0]);
+      data.put(names[i] + "_LL_y", rects[i][1]);
+      data.put(names[i] + "_UR_x", rects[i][2]);
+      data.put(names[i] + "_UR_y", rects[i][3]);
+    }
+    return data;
+  }
+
+  /**
+   * Warms up a benchmark, measures it and prints the results
+   * @param b The benchmark
+   * @param roundMs The length of each round, in ms
+   * @throws InterruptedException If interrupted while waiting for the threads
+   */
+  private static void measure(Bench b, long roundMs) throws InterruptedException {
+    PrintStream out = System.out;
+    // GameSettings prints while loading, which would swamp the results
+    System.setOut(new PrintStream(new OutputStream() {
+      @Override
+      public void write(int c) {}
+    }));
+    double[] rates = new double[ROUNDS];
+    long ops = 0;
+    long bytes = 0;
+    long nanos = 0;
+    long gcs = 0;
+    try {
+      for (int r = 0; r < WARMUP_ROUNDS; r++) {
+        round(b, roundMs);
+      }
+      long gcStart = gcCount();
+      for (int r = 0; r < ROUNDS; r++) {
+        Round round = round(b, roundMs);
+        rates[r] = round.ops * 1000.0 / round.nanos;
+        ops += round.ops;
+        bytes += round.bytes;
+        nanos += round.nanos;
+      }
+      gcs = gcCount() - gcStart;
+    } finally {
+      System.setOut(out);
+    }
+
+    double mean = 0;
+    for (double rate : rates) {
+      mean += rate / ROUNDS;
+    }
+    double var = 0;
+    for (double rate : rates) {
+      var += (rate - mean) * (rate - mean) / (ROUNDS - 1);
+    }
+    String alloc = bytes < 0 ? "-" : String.format("%.1f", (double) bytes / ops);
+    System.out.printf("%-30s %7.2f+-%-4.2f %10.1f %10s %8d%n", b.name, mean, Math.sqrt(var),
+        (double) nanos * b.threads / ops, alloc, gcs);
+  }
+
+  /**
+   * Runs a benchmark on all of its threads for one round
+   * @param b The benchmark
+   * @param roundMs The length of the round, in ms
+   * @return The operations done, bytes allocated and time taken by the round
+   * @throws InterruptedException If interrupted while waiting for the threads
+   */
+  private static Round round(final Bench b, final long roundMs) throws InterruptedException {
+    final Round round = new Round();
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(b.threads);
+    final long[] ops = new long[b.threads];
+    final long[] bytes = new long[b.threads];
+    for (int t = 0; t < b.threads; t++) {
+      final int thread = t;
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          long startBytes = allocatedBytes();
+          long end = System.nanoTime() + roundMs * 1000000;
+          double s = 0;
+          long n = 0;
+          while (System.nanoTime() < end) {
+            s += b.run(thread, BATCH);
+            n += BATCH;
+          }
+          long endBytes = allocatedBytes();
+          sink = s;
+          ops[thread] = n;
+          bytes[thread] = startBytes < 0 ? -1 : endBytes - startBytes;
+          done.countDown();
+        }
+      }.start();
+    }
+    long startTime = System.nanoTime();
+    start.countDown();
+    done.await();
+    round.nanos = System.nanoTime() - startTime;
+    for (int t = 0; t < b.threads; t++) {
+      round.ops += ops[t];
+      round.bytes = bytes[t] < 0 || round.bytes < 0 ? -1 : round.bytes + bytes[t];
+    }
+    return round;
+  }
+
+  /**
+   * Returns the memory allocated so far by the current thread
+   * @return The number of bytes, or -1 if the JVM cannot tell
+   */
+  private static long allocatedBytes() {
+    if (THREADS == null) {
+      return -1;
+    }
+    return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Returns the number of garbage collections so far
+   * @return The total over every collector
+   */
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  /**
+   * Returns the JVM's per thread allocation counter, if it has one
+   * @return The thread bean, or null if allocations cannot be measured
+   */
+  private static com.sun.management.ThreadMXBean threadBean() {
+    try {
+      com.sun.management.ThreadMXBean bean =
+          (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      if (bean.isThreadAllocatedMemorySupported()) {
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+      }
+    } catch (ClassCastException e) {
+      // not a HotSpot JVM
+    } catch (NoClassDefFoundError e) {
+      // not a HotSpot JVM
+    }
+    return null;
+  }
+}
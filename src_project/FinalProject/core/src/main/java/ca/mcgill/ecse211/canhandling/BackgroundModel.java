@@ -0,0 +1,92 @@
+package ca.mcgill.ecse211.canhandling;
+
+/**
+ * A running model of what the color sensor sees when the claw is empty.
+ * The mean and variance of each channel are tracked with exponentially
+ * weighted averages, so the model follows slow changes in lighting
+ * while the robot drives around. A sample far from the background in any
+ * channel must be a can.
+ * @author group 6
+ */
+public class BackgroundModel {
+  /**
+   * How much weight each new sample gets in the running averages
+   */
+  private static final double ALPHA = 0.05;
+  /**
+   * The smallest standard deviation allowed per channel, so that a
+   * perfectly steady background doesn't make every sample look like a can
+   */
+  private static final double MIN_SIGMA = 0.004;
+  /**
+   * The number of samples needed before the model can be trusted,
+   * enough for the running averages to settle
+   */
+  private static final int MIN_SAMPLES = (int) Math.round(1 / ALPHA);
+
+  private double[] mean;
+  private double[] var;
+  private int numSamples;
+
+  /**
+   * Creates an empty background model
+   */
+  public BackgroundModel() {
+    mean = new double[3];
+    var = new double[3];
+    clear();
+  }
+
+  /**
+   * Adds a sample taken with the claw empty to the model
+   * @param sample An array of 3 floats, r, g, and b each 0-1
+   */
+  public synchronized void learn(float[] sample) {
+    for (int i = 0; i < 3; i++) {
+      if (numSamples == 0) {
+        mean[i] = sample[i];
+        var[i] = MIN_SIGMA * MIN_SIGMA;
+      } else {
+        double d = sample[i] - mean[i];
+        mean[i] += ALPHA * d;
+        var[i] = (1 - ALPHA) * (var[i] + ALPHA * d * d);
+      }
+    }
+    numSamples++;
+  }
+
+  /**
+   * Returns whether or not enough samples have been seen to use the model
+   * @return True if the model can be used
+   */
+  public synchronized boolean isReady() {
+    return numSamples >= MIN_SAMPLES;
+  }
+
+  /**
+   * Finds how far a sample is from the background, as the largest
+   * number of standard deviations over all three channels
+   * @param sample An array of 3 floats, r, g, and b each 0-1
+   * @return The distance to the background, in standard deviations
+   */
+  public synchronized double distance(float[] sample) {
+    double max = 0;
+    for (int i = 0; i < 3; i++) {
+      double sigma = Math.max(Math.sqrt(var[i]), MIN_SIGMA);
+      double z = Math.abs(sample[i] - mean[i]) / sigma;
+      max = Math.max(max, z);
+    }
+    return max;
+  }
+
+  /**
+   * Forgets everything learned about the background
+   */
+  public synchronized void clear() {
+    for (int i = 0; i < 3; i++) {
+      mean[i] = 0;
+      var[i] = 0;
+    }
+    numSamples = 0;
+  }
+}
@@ -12,8 +12,18 @@ public enum CanColor {
   YELLOW("Yellow", new int[] {65, 42, 22}),
   UNKNOWN;
 
+  /**
+   * The can colors that a sample can be classified as
+   */
+  private static final CanColor[] COLORS = {RED, GREEN, YELLOW, BLUE};
+
   private String name;
   private int[] avgRGB;
+  /**
+   * avgRGB, normalized so its components sum to 1.
+   * Computed once so classification does not have to.
+   */
+  private double[] normRGB;
 
   /**
    * Creates a CanColor
@@ -24,6 +34,7 @@ public enum CanColor {
   CanColor(String name, int[] c) {
     this.name = name;
     avgRGB = c;
+    normRGB = normalize(c);
   }
   
   /**
@@ -60,17 +71,43 @@ public enum CanColor {
    * @return the color w/ the closest euclidean distance to c
    */
   public static CanColor getClosestColor(int[] color) {
+    return getClosestColor(color[0], color[1], color[2]);
+  }
+
+  /**
+   * Returns the closest can color to the given value,
+   * using the euclidean distance to the mean of each color.
+   * Magnitudes don't matter, so raw sensor values can be used directly.
+   * @param r The red intensity
+   * @param g The green intensity
+   * @param b The blue intensity
+   * @return the color w/ the closest euclidean distance to (r, g, b)
+   */
+  public static CanColor getClosestColor(double r, double g, double b) {
     CanColor closest = UNKNOWN;
     
-    double minDist = 2;
-    for (CanColor c : new CanColor[] {RED, GREEN, YELLOW, BLUE}) {
-      if (c.normalizedDistTo(color) < minDist) {
-        minDist = c.normalizedDistTo(color);
+    double minDist = 2 * 2;
+    for (CanColor c : COLORS) {
+      double d = c.squaredDistTo(r, g, b);
+      if (d < minDist) {
+        minDist = d;
         closest = c;
       }
     }
     return closest;
   }
+
+  /**
+   * Classifies a batch of samples, as with getClosestColor()
+   * @param rgb The samples, stored as consecutive r, g, b triples
+   * @param numSamples The number of samples in rgb
+   * @param out The array the color of each sample is written to
+   */
+  public static void getClosestColors(float[] rgb, int numSamples, CanColor[] out) {
+    for (int i = 0; i < numSamples; i++) {
+      out[i] = getClosestColor(rgb[3*i], rgb[3*i + 1], rgb[3*i + 2]);
+    }
+  }
   
   /**
    * Finds the euclidean distance between the color's RGB values
@@ -80,13 +117,32 @@ public enum CanColor {
    * @return The distance from this color to the given color c, once normalized.
    */
   public double normalizedDistTo(int[] c) {
-    double sum = 0;
-    double[] normalizedAvg = normalize(avgRGB);
-    double[] normalizedIn = normalize(c);
-    for (int i = 0; i < c.length; i++) {
-      sum += Math.pow(normalizedIn[i] - normalizedAvg[i], 2);
-    }
-    return Math.sqrt(sum);
+    return Math.sqrt(squaredDistTo(c[0], c[1], c[2]));
+  }
+
+  /**
+   * Finds the squared euclidean distance between the color's RGB values
+   * and a given color, after normalizing both to unit vectors.
+   * @param r The red intensity
+   * @param g The green intensity
+   * @param b The blue intensity
+   * @return The squared distance from this color to (r, g, b), once normalized.
+   */
+  public double squaredDistTo(double r, double g, double b) {
+    double sum = r + g + b;
+    double dr = r / sum - normRGB[0];
+    double dg = g / sum - normRGB[1];
+    double db = b / sum - normRGB[2];
+    return dr*dr + dg*dg + db*db;
+  }
+  
+  /**
+   * Returns the average RGB value of this color, normalized so
+   * its components sum to 1
+   * @return A copy of the normalized average, as {r, g, b}
+   */
+  public double[] getNormalizedRGB() {
+    return normRGB.clone();
   }
   
   /**
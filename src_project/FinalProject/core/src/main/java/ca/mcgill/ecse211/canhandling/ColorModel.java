@@ -0,0 +1,408 @@
+package ca.mcgill.ecse211.canhandling;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A statistical model of the can colors. Each color is modeled as a
+ * Gaussian in chromaticity space, that is, the (r, g) components of
+ * a sample once it is normalized so that r + g + b = 1. Working in
+ * chromaticity space means the model does not care how bright the can is,
+ * only what color it is.
+ *
+ * Each color has its own mean and covariance, so colors that vary a lot
+ * (say, a shiny can) and colors that are very consistent are both handled
+ * well. Samples too far from every color, as measured by the Mahalanobis
+ * distance, are rejected as CanColor.UNKNOWN.
+ *
+ * @author group 6
+ */
+public class ColorModel {
+  /**
+   * The default squared Mahalanobis distance past which a sample
+   * does not belong to a color. This is the 99.9% point of the
+   * chi-squared distribution with 2 degrees of freedom.
+   */
+  public static final double DEFAULT_REJECT_DIST = 13.8;
+  /**
+   * The spread of each color around its mean, in chromaticity,
+   * used when no recorded data is available
+   */
+  private static final double DEFAULT_SIGMA = 0.08;
+  /**
+   * Added to the diagonal of each fitted covariance, so that a
+   * color recorded under perfectly steady conditions doesn't end up
+   * with a zero variance
+   */
+  private static final double MIN_VARIANCE = 1e-5;
+  /**
+   * Marks the start of a model file ("CMDL")
+   */
+  private static final int FILE_MAGIC = 0x434d444c;
+  /**
+   * The version of the model file format
+   */
+  private static final int FILE_VERSION = 1;
+
+  private CanColor[] colors;
+  /**
+   * Means of each color, as {r, g} chromaticity
+   */
+  private double[][] mean;
+  /**
+   * Inverse covariance of each color, as the upper triangle {a, b, c}
+   * of the symmetric matrix [[a, b], [b, c]]
+   */
+  private double[][] invCov;
+  /**
+   * The log of the determinant of each color's covariance
+   */
+  private double[] logDet;
+  private double rejectDist;
+  private double rejectLogLikelihood;
+
+  /**
+   * Creates a color model
+   * @param colors The colors modeled
+   * @param mean The mean of each color, as {r, g} chromaticity
+   * @param cov The covariance of each color, as the upper triangle {var r, cov rg, var g}
+   * @param rejectDist The squared Mahalanobis distance past which a sample is rejected
+   */
+  public ColorModel(CanColor[] colors, double[][] mean, double[][] cov, double rejectDist) {
+    if (colors.length != mean.length || colors.length != cov.length) {
+      throw new IllegalArgumentException("One mean and covariance is needed per color");
+    }
+    this.colors = colors.clone();
+    this.mean = new double[colors.length][];
+    this.invCov = new double[colors.length][];
+    this.logDet = new double[colors.length];
+    this.rejectDist = rejectDist;
+    for (int i = 0; i < colors.length; i++) {
+      this.mean[i] = new double[] {mean[i][0], mean[i][1]};
+      double a = cov[i][0];
+      double b = cov[i][1];
+      double c = cov[i][2];
+      double det = a*c - b*b;
+      if (det <= 0) {
+        throw new IllegalArgumentException("Covariance of " + colors[i] + " is singular");
+      }
+      this.invCov[i] = new double[] {c / det, -b / det, a / det};
+      this.logDet[i] = Math.log(det);
+    }
+    double avgLogDet = 0;
+    for (double d : logDet) {
+      avgLogDet += d;
+    }
+    avgLogDet /= logDet.length;
+    rejectLogLikelihood = -0.5 * (rejectDist + avgLogDet);
+  }
+
+  /**
+   * Creates a model from the hand-measured averages stored in CanColor,
+   * giving each color the same round spread. This is the model used until
+   * one is fitted from recorded data.
+   * @return The default color model
+   */
+  public static ColorModel getDefault() {
+    CanColor[] colors = {CanColor.RED, CanColor.GREEN, CanColor.YELLOW, CanColor.BLUE};
+    double[][] mean = new double[colors.length][];
+    double[][] cov = new double[colors.length][];
+    double v = DEFAULT_SIGMA * DEFAULT_SIGMA;
+    for (int i = 0; i < colors.length; i++) {
+      double[] norm = colors[i].getNormalizedRGB();
+      mean[i] = new double[] {norm[0], norm[1]};
+      cov[i] = new double[] {v, 0, v};
+    }
+    return new ColorModel(colors, mean, cov, DEFAULT_REJECT_DIST);
+  }
+
+  /**
+   * Returns the number of colors in the model
+   * @return The number of colors
+   */
+  public int getNumColors() {
+    return colors.length;
+  }
+
+  /**
+   * Returns one of the modeled colors
+   * @param i The index of the color
+   * @return The color at index i
+   */
+  public CanColor getColor(int i) {
+    return colors[i];
+  }
+
+  /**
+   * Returns the mean of one color
+   * @param i The index of the color
+   * @return A copy of the mean, as {r, g} chromaticity
+   */
+  public double[] getMean(int i) {
+    return mean[i].clone();
+  }
+
+  /**
+   * Returns the covariance of one color
+   * @param i The index of the color
+   * @return The covariance, as the upper triangle {var r, cov rg, var g}
+   */
+  public double[] getCovariance(int i) {
+    double[] inv = invCov[i];
+    double det = Math.exp(logDet[i]);
+    return new double[] {inv[2] * det, -inv[1] * det, inv[0] * det};
+  }
+
+  /**
+   * Returns the squared Mahalanobis distance past which a sample is rejected
+   * @return The rejection distance
+   */
+  public double getRejectDist() {
+    return rejectDist;
+  }
+
+  /**
+   * Finds the squared Mahalanobis distance from a sample to a color
+   * @param i The index of the color
+   * @param r The red intensity
+   * @param g The green intensity
+   * @param b The blue intensity
+   * @return The squared Mahalanobis distance, in chromaticity space
+   */
+  public double mahalanobis(int i, double r, double g, double b) {
+    double sum = r + g + b;
+    double dr = r / sum - mean[i][0];
+    double dg = g / sum - mean[i][1];
+    double[] inv = invCov[i];
+    return inv[0]*dr*dr + 2*inv[1]*dr*dg + inv[2]*dg*dg;
+  }
+
+  /**
+   * Finds the log-likelihood of a sample under a color's Gaussian,
+   * leaving out the constant term shared by all colors
+   * @param i The index of the color
+   * @param r The red intensity
+   * @param g The green intensity
+   * @param b The blue intensity
+   * @return The log-likelihood of the sample
+   */
+  public double logLikelihood(int i, double r, double g, double b) {
+    return -0.5 * (mahalanobis(i, r, g, b) + logDet[i]);
+  }
+
+  /**
+   * Finds the log-likelihood of a sample not belonging to any color.
+   * This is the likelihood of a sample lying exactly at the rejection distance
+   * of an average color, so it wins over every color once a sample is
+   * past that distance from all of them.
+   * @return The log-likelihood of the reject class
+   */
+  public double rejectLogLikelihood() {
+    return rejectLogLikelihood;
+  }
+
+  /**
+   * Classifies a single sample
+   * @param r The red intensity
+   * @param g The green intensity
+   * @param b The blue intensity
+   * @return The most likely color, or CanColor.UNKNOWN if the sample
+   * is past the rejection distance of every color
+   */
+  public CanColor classify(double r, double g, double b) {
+    CanColor best = CanColor.UNKNOWN;
+    double bestL = Double.NEGATIVE_INFINITY;
+    boolean inRange = false;
+    for (int i = 0; i < colors.length; i++) {
+      double d = mahalanobis(i, r, g, b);
+      double l = -0.5 * (d + logDet[i]);
+      inRange |= d <= rejectDist;
+      if (l > bestL) {
+        bestL = l;
+        best = colors[i];
+      }
+    }
+    return inRange ? best : CanColor.UNKNOWN;
+  }
+
+  /**
+   * Writes the model to a file, in a compact binary format:
+   * a header, the rejection distance, then for each color its
+   * name, its mean and its covariance, stored as floats.
+   * @param path The file to write to
+   * @throws IOException if the file cannot be written
+   */
+  public void save(String path) throws IOException {
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(path)));
+    try {
+      out.writeInt(FILE_MAGIC);
+      out.writeByte(FILE_VERSION);
+      out.writeFloat((float) rejectDist);
+      out.writeByte(colors.length);
+      for (int i = 0; i < colors.length; i++) {
+        double[] cov = getCovariance(i);
+        out.writeUTF(colors[i].toString());
+        out.writeFloat((float) mean[i][0]);
+        out.writeFloat((float) mean[i][1]);
+        out.writeFloat((float) cov[0]);
+        out.writeFloat((float) cov[1]);
+        out.writeFloat((float) cov[2]);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads a model written by save()
+   * @param path The file to read from
+   * @return The model stored in the file
+   * @throws IOException if the file cannot be read or is not a model file
+   */
+  public static ColorModel load(String path) throws IOException {
+    DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(path)));
+    try {
+      if (in.readInt() != FILE_MAGIC || in.readByte() != FILE_VERSION) {
+        throw new IOException(path + " is not a color model file");
+      }
+      double rejectDist = in.readFloat();
+      int n = in.readByte();
+      CanColor[] colors = new CanColor[n];
+      double[][] mean = new double[n][];
+      double[][] cov = new double[n][];
+      for (int i = 0; i < n; i++) {
+        colors[i] = CanColor.getWithName(in.readUTF());
+        mean[i] = new double[] {in.readFloat(), in.readFloat()};
+        cov[i] = new double[] {in.readFloat(), in.readFloat(), in.readFloat()};
+      }
+      return new ColorModel(colors, mean, cov, rejectDist);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Loads the model stored at the given path, falling back to
+   * the default model if there is no usable file there
+   * @param path The file to read from
+   * @return The stored model, or getDefault()
+   */
+  public static ColorModel loadOrDefault(String path) {
+    try {
+      return load(path);
+    } catch (IOException e) {
+      return getDefault();
+    } catch (IllegalArgumentException e) {
+      return getDefault();
+    }
+  }
+
+  /**
+   * Accumulates labeled samples, such as those recorded with
+   * ColorClassifier.getData(), and fits a ColorModel to them.
+   * Only running sums are kept, so no memory is used per sample.
+   */
+  public static class Trainer {
+    private CanColor[] colors;
+    private long[] n;
+    private double[] sumR;
+    private double[] sumG;
+    private double[] sumRR;
+    private double[] sumRG;
+    private double[] sumGG;
+
+    /**
+     * Creates a trainer for the four can colors
+     */
+    public Trainer() {
+      this(new CanColor[] {CanColor.RED, CanColor.GREEN, CanColor.YELLOW, CanColor.BLUE});
+    }
+
+    /**
+     * Creates a trainer for the given colors
+     * @param colors The colors to model
+     */
+    public Trainer(CanColor[] colors) {
+      this.colors = colors.clone();
+      n = new long[colors.length];
+      sumR = new double[colors.length];
+      sumG = new double[colors.length];
+      sumRR = new double[colors.length];
+      sumRG = new double[colors.length];
+      sumGG = new double[colors.length];
+    }
+
+    /**
+     * Adds a labeled sample
+     * @param label The true color of the can the sample was taken from.
+     * Samples labeled with a color that isn't modeled are ignored.
+     * @param r The red intensity
+     * @param g The green intensity
+     * @param b The blue intensity
+     */
+    public void add(CanColor label, double r, double g, double b) {
+      double sum = r + g + b;
+      if (sum <= 0) {
+        return;
+      }
+      for (int i = 0; i < colors.length; i++) {
+        if (colors[i] == label) {
+          double cr = r / sum;
+          double cg = g / sum;
+          n[i]++;
+          sumR[i] += cr;
+          sumG[i] += cg;
+          sumRR[i] += cr * cr;
+          sumRG[i] += cr * cg;
+          sumGG[i] += cg * cg;
+          return;
+        }
+      }
+    }
+
+    /**
+     * Returns the number of samples recorded for a color
+     * @param c The color
+     * @return The number of samples of c
+     */
+    public long getCount(CanColor c) {
+      for (int i = 0; i < colors.length; i++) {
+        if (colors[i] == c) {
+          return n[i];
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * Fits a model to the samples recorded so far
+     * @param rejectDist The squared Mahalanobis distance past which a sample is rejected
+     * @return The fitted model
+     * @throws IllegalStateException if a color has fewer than 3 samples
+     */
+    public ColorModel fit(double rejectDist) {
+      double[][] mean = new double[colors.length][];
+      double[][] cov = new double[colors.length][];
+      for (int i = 0; i < colors.length; i++) {
+        if (n[i] < 3) {
+          throw new IllegalStateException("Not enough samples of " + colors[i]);
+        }
+        double mr = sumR[i] / n[i];
+        double mg = sumG[i] / n[i];
+        mean[i] = new double[] {mr, mg};
+        cov[i] = new double[] {
+            (sumRR[i] - n[i]*mr*mr) / (n[i] - 1) + MIN_VARIANCE,
+            (sumRG[i] - n[i]*mr*mg) / (n[i] - 1),
+            (sumGG[i] - n[i]*mg*mg) / (n[i] - 1) + MIN_VARIANCE};
+      }
+      return new ColorModel(colors, mean, cov, rejectDist);
+    }
+  }
+}
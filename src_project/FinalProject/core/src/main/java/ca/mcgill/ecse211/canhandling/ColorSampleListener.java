@@ -0,0 +1,17 @@
+package ca.mcgill.ecse211.canhandling;
+
+/**
+ * Receives the color samples taken by a ColorScanner.
+ * @author group 6
+ */
+public interface ColorSampleListener {
+  /**
+   * Called for each sample taken by the scanner
+   * @param rgb An array of 3 floats, r, g, and b each 0-1. The array is
+   * reused for the next sample, so it must be copied to be kept.
+   * @param angle The angle of the can spinning motor when the sample was
+   * taken, in degrees, or 0 if the can is not being spun
+   * @return True to keep sampling, false to stop the scan
+   */
+  boolean sampleTaken(float[] rgb, int angle);
+}
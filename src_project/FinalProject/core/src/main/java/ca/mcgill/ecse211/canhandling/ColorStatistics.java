@@ -0,0 +1,58 @@
+package ca.mcgill.ecse211.canhandling;
+
+/**
+ * Records the mean and standard deviation of
+ * each channel of the color samples it is given.
+ * @author group 6
+ */
+public class ColorStatistics implements ColorSampleListener {
+  private double[] sum;
+  private double[] sumSq;
+  private int count;
+
+  /**
+   * Creates an empty ColorStatistics
+   */
+  public ColorStatistics() {
+    sum = new double[3];
+    sumSq = new double[3];
+    count = 0;
+  }
+
+  @Override
+  public boolean sampleTaken(float[] rgb, int angle) {
+    for (int i = 0; i < 3; i++) {
+      sum[i] += rgb[i];
+      sumSq[i] += rgb[i] * rgb[i];
+    }
+    count++;
+    return true;
+  }
+
+  /**
+   * Returns the number of samples recorded
+   * @return The number of samples
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the mean of one channel
+   * @param i The channel, 0 for r, 1 for g and 2 for b
+   * @return The mean of the channel, NaN if there are no samples
+   */
+  public double getMean(int i) {
+    return sum[i] / count;
+  }
+
+  /**
+   * Returns the standard deviation of one channel
+   * @param i The channel, 0 for r, 1 for g and 2 for b
+   * @return The standard deviation of the channel, NaN if there are fewer than 2 samples
+   */
+  public double getStdDev(int i) {
+    double mean = getMean(i);
+    return Math.sqrt(Math.max(0, (sumSq[i] - count * mean * mean) / (count - 1)));
+  }
+}
@@ -0,0 +1,143 @@
+package ca.mcgill.ecse211.canhandling;
+
+/**
+ * Classifies a can one color sample at a time, in the style of a 
+ * sequential probability ratio test. Each sample updates a log-likelihood 
+ * for every color of a ColorModel, plus one for the can being none of them,
+ * and the classifier becomes confident as soon as one hypothesis is much more
+ * likely than all of the others. This lets the can stop spinning as soon as
+ * the answer is known, rather than after a fixed number of revolutions.
+ * @author group 6
+ */
+public class SequentialClassifier implements ColorSampleListener {
+  /**
+   * The probability the best color must reach for the
+   * classifier to be confident
+   */
+  private static final double CONFIDENCE = 0.99;
+  /**
+   * The minimum number of samples needed before the classifier can be
+   * confident, so that a single unlucky sample cannot decide the color
+   */
+  private static final int MIN_SAMPLES = 10;
+
+  private ColorModel model;
+  /**
+   * The log-likelihood of each color in the model, followed
+   * by that of the reject hypothesis
+   */
+  private double[] logLikelihood;
+  private int numSamples;
+
+  /**
+   * Creates a SequentialClassifier
+   * @param model The color model used to weigh each sample
+   */
+  public SequentialClassifier(ColorModel model) {
+    setModel(model);
+  }
+
+  /**
+   * Changes the color model used by the classifier, and resets it
+   * @param model The color model used to weigh each sample
+   */
+  public void setModel(ColorModel model) {
+    this.model = model;
+    logLikelihood = new double[model.getNumColors() + 1];
+    reset();
+  }
+
+  /**
+   * Forgets all samples, to start classifying a new can
+   */
+  public void reset() {
+    for (int i = 0; i < logLikelihood.length; i++) {
+      logLikelihood[i] = 0;
+    }
+    numSamples = 0;
+  }
+
+  /**
+   * Updates the likelihood of each color with a new sample
+   * @param sample An array of 3 floats, r, g, and b each 0-1
+   */
+  public void add(float[] sample) {
+    int n = model.getNumColors();
+    for (int i = 0; i < n; i++) {
+      logLikelihood[i] += model.logLikelihood(i, sample[0], sample[1], sample[2]);
+    }
+    logLikelihood[n] += model.rejectLogLikelihood();
+    numSamples++;
+  }
+
+  /**
+   * Adds a sample, and asks the scanner to stop once confident
+   */
+  @Override
+  public boolean sampleTaken(float[] rgb, int angle) {
+    add(rgb);
+    return !isConfident();
+  }
+
+  /**
+   * Returns the index of the most likely hypothesis
+   * @return the index of the most likely color in the model,
+   * or the number of colors if the reject hypothesis is most likely
+   */
+  private int bestIndex() {
+    int best = 0;
+    for (int i = 1; i < logLikelihood.length; i++) {
+      if (logLikelihood[i] > logLikelihood[best]) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the most likely color given the samples so far
+   * @return The most likely color, CanColor.UNKNOWN if there are no samples
+   * or if the can is most likely none of the colors
+   */
+  public CanColor getBest() {
+    int best = bestIndex();
+    if (numSamples == 0 || best == model.getNumColors()) {
+      return CanColor.UNKNOWN;
+    }
+    return model.getColor(best);
+  }
+
+  /**
+   * Returns the probability that the most likely color is the right one,
+   * assuming all colors are equally likely to begin with
+   * @return The probability of the most likely color, between 0 and 1
+   */
+  public double getConfidence() {
+    if (numSamples == 0) {
+      return 0;
+    }
+    double best = logLikelihood[bestIndex()];
+    double sum = 0;
+    for (int i = 0; i < logLikelihood.length; i++) {
+      sum += Math.exp(logLikelihood[i] - best);
+    }
+    return 1 / sum;
+  }
+
+  /**
+   * Returns whether or not enough samples have been
+   * seen to be confident in the most likely color
+   * @return True if the color can be decided
+   */
+  public boolean isConfident() {
+    return numSamples >= MIN_SAMPLES && getConfidence() >= CONFIDENCE;
+  }
+
+  /**
+   * Returns the number of samples seen since the last reset
+   * @return The number of samples
+   */
+  public int getNumSamples() {
+    return numSamples;
+  }
+}
@@ -0,0 +1,130 @@
+package ca.mcgill.ecse211.canhandling;
+
+/**
+ * Weighs the can in the claw while it is spun for classification.
+ * The can spinning motor is regulated, so a heavier can does not slow
+ * its steady speed, but it does make the motor take longer to get up to
+ * speed. Once the motor is at speed, the time it is behind an ideal motor
+ * that started at full speed is constant, and larger for a heavy can.
+ * This lag is averaged over the samples taken between LAG_ANGLE and
+ * LAG_ANGLE + LAG_SPAN, so weighing only needs the first third of a
+ * revolution.
+ *
+ * The weigher must be given every sample of the spin, including those
+ * of the background, starting with the first one. It is only used when
+ * FinalDemo.SPIN_WEIGH_ON, since HEAVY_LAG and LAG_MARGIN are still
+ * estimates.
+ * @author group 6
+ */
+public class SpinWeigher implements ColorSampleListener {
+  /**
+   * The angle of the can spinning motor past which it is
+   * assumed to be at speed, in degrees
+   */
+  private static final int LAG_ANGLE = 60;
+  /**
+   * The rotation over which the lag is averaged, in degrees
+   */
+  private static final int LAG_SPAN = 60;
+  /**
+   * The lag (ms) past which the can is considered heavy.
+   * Relies on the acceleration of the can spinning motor and the
+   * friction of the claw, so it needs to be measured on the robot.
+   */
+  private static final double HEAVY_LAG = 40;
+  /**
+   * How far the lag (ms) must be from HEAVY_LAG for
+   * the weigher to be fully confident
+   */
+  private static final double LAG_MARGIN = 20;
+
+  private int speed;
+  private long start;
+  private double lagSum;
+  private int lagCount;
+  private boolean done;
+  private boolean heavy;
+  private double confidence;
+
+  /**
+   * Creates a SpinWeigher
+   * @param speed The speed the can is spun at, in deg/sec
+   */
+  public SpinWeigher(int speed) {
+    this.speed = speed;
+    reset();
+  }
+
+  /**
+   * Forgets the last can, to start weighing a new one
+   */
+  public void reset() {
+    start = -1;
+    lagSum = 0;
+    lagCount = 0;
+    done = false;
+    heavy = false;
+    confidence = 0;
+  }
+
+  /**
+   * Measures the lag of the motor at this sample, and asks the
+   * scanner to stop once enough of the spin has been seen
+   */
+  @Override
+  public boolean sampleTaken(float[] rgb, int angle) {
+    long now = System.nanoTime();
+    if (done) {
+      return false;
+    }
+    if (start < 0) {
+      start = now;
+      return true;
+    }
+    if (angle >= LAG_ANGLE) {
+      double elapsed = (now - start) / 1e6;
+      lagSum += elapsed - angle * 1000.0 / speed;
+      lagCount++;
+    }
+    if (angle >= LAG_ANGLE + LAG_SPAN && lagCount > 0) {
+      double lag = getLag();
+      heavy = lag > HEAVY_LAG;
+      confidence = 0.5 + 0.5 * Math.min(1, Math.abs(lag - HEAVY_LAG) / LAG_MARGIN);
+      done = true;
+    }
+    return !done;
+  }
+
+  /**
+   * Returns the average lag of the motor behind an ideal motor
+   * @return The lag, in ms
+   */
+  public double getLag() {
+    return lagCount == 0 ? 0 : lagSum / lagCount;
+  }
+
+  /**
+   * Returns whether or not enough of the spin has been seen
+   * to weigh the can
+   * @return True if the can has been weighed
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Returns whether or not the can is heavy
+   * @return True if the can is heavy. Only meaningful once isDone()
+   */
+  public boolean isHeavy() {
+    return heavy;
+  }
+
+  /**
+   * Returns how sure the weigher is of isHeavy()
+   * @return The confidence, from 0.5 (a guess) to 1, or 0 if not done
+   */
+  public double getConfidence() {
+    return confidence;
+  }
+}
@@ -0,0 +1,161 @@
+package ca.mcgill.ecse211.demo;
+
+import ca.mcgill.ecse211.odometer.Transform;
+import ca.mcgill.ecse211.sensors.SensorMount;
+import ca.mcgill.ecse211.sensors.UltrasonicFilter;
+import ca.mcgill.ecse211.wifi.Rect;
+
+/**
+ * The (angle, distance) profile recorded by the US sensor while the robot
+ * sweeps across the search zone, and the logic that picks a can out of it.
+ *
+ * @author jacob
+ */
+public class ScanProfile {
+  /**
+   * The maximum number of US readings recorded during one scan
+   */
+  public static final int MAX_SCAN_SAMPLES = 512;
+  /**
+   * The jump in US reading (cm) between two consecutive samples
+   * that marks the edge of an object
+   */
+  public static final float EDGE_JUMP = 10;
+  /**
+   * The minimum number of samples between two edges for them
+   * to be considered an object rather than noise
+   */
+  public static final int MIN_EDGE_SAMPLES = 2;
+  /**
+   * The widest an object can appear in the scan (deg) and still be
+   * considered a can. Anything wider is a wall or a group of cans.
+   */
+  public static final double MAX_CAN_WIDTH = 60;
+  /**
+   * The radius of a can
+   */
+  public static final double CAN_RAD = 5;
+
+  private final float edgeJump;
+  private final int minEdgeSamples;
+  private final double maxCanWidth;
+  private final float[] scanDist = new float[MAX_SCAN_SAMPLES];
+  private final double[] scanT = new double[MAX_SCAN_SAMPLES];
+  private int numSamples = 0;
+  private final Transform pose = new Transform();
+  private final double[] pt = new double[2];
+
+  /**
+   * Creates an empty profile, with the default thresholds
+   */
+  public ScanProfile() {
+    this(EDGE_JUMP, MIN_EDGE_SAMPLES, MAX_CAN_WIDTH);
+  }
+
+  /**
+   * Creates an empty profile
+   * @param edgeJump The jump in reading (cm) that marks the edge of an object
+   * @param minEdgeSamples The fewest samples an object can span
+   * @param maxCanWidth The widest a can can appear, in degrees
+   */
+  public ScanProfile(float edgeJump, int minEdgeSamples, double maxCanWidth) {
+    this.edgeJump = edgeJump;
+    this.minEdgeSamples = minEdgeSamples;
+    this.maxCanWidth = maxCanWidth;
+  }
+
+  /**
+   * Forgets every sample, to start a new scan
+   */
+  public void clear() {
+    numSamples = 0;
+  }
+
+  /**
+   * Adds a sample to the profile, unless it is full
+   * @param dist The filtered US reading, in cm
+   * @param t The heading of the robot, in degrees
+   */
+  public void add(float dist, double t) {
+    if (numSamples < MAX_SCAN_SAMPLES) {
+      scanDist[numSamples] = dist;
+      scanT[numSamples] = t;
+      numSamples++;
+    }
+  }
+
+  /**
+   * Returns whether or not the profile can take more samples
+   * @return True if the profile is full
+   */
+  public boolean isFull() {
+    return numSamples == MAX_SCAN_SAMPLES;
+  }
+
+  /**
+   * Returns the number of samples in the profile
+   * @return The number of samples
+   */
+  public int size() {
+    return numSamples;
+  }
+
+  /**
+   * Splits the profile into objects at each edge, and returns the
+   * closest object within the search zone that is narrow enough to be a can.
+   * @param x The x position of the robot during the scan, in cm
+   * @param y The y position of the robot during the scan, in cm
+   * @param zone The search zone
+   * @return The centre of the closest can as {x,y}, or null if none was seen
+   */
+  public double[] findCan(double x, double y, Rect zone) {
+    double minDist = Double.MAX_VALUE;
+    double[] minPt = null;
+    int segStart = -1;
+    for (int i = 0; i <= numSamples; i++) {
+      boolean inObject = i < numSamples && scanDist[i] < UltrasonicFilter.MAX_RANGE;
+      boolean edge = !inObject
+          || (segStart != -1 && Math.abs(scanDist[i] - scanDist[i - 1]) > edgeJump);
+      if (edge && segStart != -1) {
+        //Rising edge: the object spans segStart to i - 1
+        int segEnd = i - 1;
+        double width = (scanT[segEnd] - scanT[segStart] + 360) % 360;
+        if (segEnd - segStart + 1 >= minEdgeSamples && width <= maxCanWidth) {
+          double t = (scanT[segStart] + width / 2) % 360;
+          double d = objectRange(segStart, segEnd) + CAN_RAD;
+          // the sensor is ahead of the turning centre, so the can is placed from its mount
+          SensorMount.ULTRASONIC.project(pose.set(x, y, t), d, pt);
+          if (zone.contains(pt) && d < minDist) {
+            minDist = d;
+            minPt = new double[] {pt[0], pt[1]};
+          }
+        }
+        segStart = -1;
+      }
+      if (inObject && segStart == -1) {
+        //Falling edge: a new object starts here
+        segStart = i;
+      }
+    }
+    return minPt;
+  }
+
+  /**
+   * Estimates the distance to the face of an object by averaging the
+   * readings in the middle third of its run of samples, where the
+   * US beam is centred on the object.
+   * @param segStart The index of the object's first sample
+   * @param segEnd The index of the object's last sample
+   * @return The distance to the object's face, in cm
+   */
+  private double objectRange(int segStart, int segEnd) {
+    int len = segEnd - segStart + 1;
+    int from = segStart + len / 3;
+    int to = segEnd - len / 3;
+    double sum = 0;
+    for (int i = from; i <= to; i++) {
+      sum += scanDist[i];
+    }
+    return sum / (to - from + 1);
+  }
+}
@@ -0,0 +1,77 @@
+package ca.mcgill.ecse211.localization;
+
+/**
+ * Detects the falling edge of a wall in a stream of ultrasonic readings,
+ * taken while the robot turns. The robot must first look away from the wall
+ * for a whole block of CLEAR_READINGS readings, and then the edge is the
+ * first reading that comes back to within the detection distance.
+ *
+ * @author jacob
+ */
+public class EdgeDetector {
+  /**
+   * The number of readings that must not see the wall
+   * before looking for the edge
+   */
+  public static final int CLEAR_READINGS = 20;
+
+  private final double detectionDistance;
+  private int clear;
+  private boolean seesWall;
+  private boolean seekingEdge;
+
+  /**
+   * Creates an edge detector
+   * @param detectionDistance The distance (cm) below which the robot is looking at the wall
+   */
+  public EdgeDetector(double detectionDistance) {
+    this.detectionDistance = detectionDistance;
+    reset();
+  }
+
+  /**
+   * Starts looking for a new edge
+   */
+  public void reset() {
+    clear = 0;
+    seesWall = false;
+    seekingEdge = false;
+  }
+
+  /**
+   * Takes in one reading
+   * @param reading The filtered ultrasonic reading, in cm
+   * @return True if the reading is the edge
+   */
+  public boolean add(double reading) {
+    if (seekingEdge) {
+      return reading <= detectionDistance;
+    }
+    if (reading < detectionDistance) {
+      //keep turning until the wall is out of sight
+      seesWall = true;
+      return false;
+    }
+    clear++;
+    if (clear < CLEAR_READINGS) {
+      return false;
+    }
+    if (seesWall) {
+      //the wall was seen during this block, start another one
+      clear = 0;
+      seesWall = false;
+      return false;
+    }
+    seekingEdge = true;
+    return reading <= detectionDistance;
+  }
+
+  /**
+   * Returns whether or not the wall has been out of sight for long
+   * enough, so that the next reading at the wall is the edge
+   * @return True if looking for the edge
+   */
+  public boolean isSeekingEdge() {
+    return seekingEdge;
+  }
+}
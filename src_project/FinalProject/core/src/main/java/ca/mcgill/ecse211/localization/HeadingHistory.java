@@ -0,0 +1,83 @@
+package ca.mcgill.ecse211.localization;
+
+/**
+ * Remembers the recent headings of the robot while it turns, so that a
+ * reading taken some time ago can be paired with the heading the robot
+ * had at that time, rather than its heading now. The headings are
+ * unwrapped as they are added, so the robot may turn past 360 degrees
+ * between them.
+ *
+ * The history is a fixed ring, so no memory is allocated once it has
+ * been created.
+ * @author jacob
+ */
+public class HeadingHistory {
+  private final long[] times;
+  private final double[] headings;
+  private int newest;
+  private int size;
+
+  /**
+   * Creates an empty history
+   * @param capacity The number of headings kept
+   */
+  public HeadingHistory(int capacity) {
+    times = new long[capacity];
+    headings = new double[capacity];
+    clear();
+  }
+
+  /**
+   * Forgets every heading
+   */
+  public void clear() {
+    newest = -1;
+    size = 0;
+  }
+
+  /**
+   * Adds the heading of the robot at a time later than any added before
+   * @param time The time of the heading, in ms
+   * @param theta The heading, in degrees
+   */
+  public void add(long time, double theta) {
+    if (size > 0) {
+      // unwrap onto the last heading
+      double last = headings[newest];
+      theta = last + ((theta - last) % 360 + 540) % 360 - 180;
+    }
+    newest = (newest + 1) % times.length;
+    times[newest] = time;
+    headings[newest] = theta;
+    if (size < times.length) {
+      size++;
+    }
+  }
+
+  /**
+   * Finds the heading of the robot at a time, interpolating between the
+   * headings around it. Times outside the history get the oldest or the
+   * newest heading.
+   * @param time The time, in ms
+   * @return The heading at that time, in degrees from 0 to 360, or NaN if
+   * the history is empty
+   */
+  public double headingAt(long time) {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    int later = newest;
+    double theta = headings[newest];
+    for (int k = 1; k < size && times[later] > time; k++) {
+      int earlier = (newest - k + times.length) % times.length;
+      if (times[earlier] <= time) {
+        double f = (double) (time - times[earlier]) / (times[later] - times[earlier]);
+        theta = headings[earlier] + f * (headings[later] - headings[earlier]);
+        break;
+      }
+      later = earlier;
+      theta = headings[earlier];
+    }
+    return (theta % 360 + 360) % 360;
+  }
+}
@@ -0,0 +1,53 @@
+package ca.mcgill.ecse211.localization;
+
+import ca.mcgill.ecse211.demo.AveragedBuffer;
+
+/**
+ * Detects grid lines in a stream of line sensor samples, as a drop
+ * below the rolling average of the samples. It does not touch any
+ * hardware, so the same detection can run on the robot and in tools.Replay.
+ *
+ * @author jacob
+ */
+public class LineDetector {
+  /**
+   * The number of samples in the rolling average
+   */
+  private static final int WINDOW = 100;
+
+  private final float threshold;
+  private final AveragedBuffer<Float> samples = new AveragedBuffer<Float>(WINDOW);
+  private double avg = 0;
+
+  /**
+   * Creates a line detector
+   * @param threshold The minimum difference from the mean for a sample to be a line
+   */
+  public LineDetector(float threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * Adds a sample to the rolling average and checks it for a line.
+   * Once a line is found, the average starts over.
+   * @param sample The line sensor sample
+   * @return True if the sample is a line
+   */
+  public boolean add(float sample) {
+    samples.add(sample);
+    avg = samples.getAvg();
+    if (sample > avg - threshold) {
+      return false;
+    }
+    samples.clear();
+    return true;
+  }
+
+  /**
+   * Returns the rolling average the last sample was checked against
+   * @return The average sample
+   */
+  public double getAvg() {
+    return avg;
+  }
+}
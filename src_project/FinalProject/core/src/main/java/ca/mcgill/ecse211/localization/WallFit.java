@@ -0,0 +1,318 @@
+package ca.mcgill.ecse211.localization;
+
+import ca.mcgill.ecse211.odometer.Transform;
+import ca.mcgill.ecse211.sensors.SensorMount;
+
+/**
+ * Finds the two walls of the starting corner in the ultrasonic readings of
+ * one full turn on the spot, and from them the heading of the robot.
+ *
+ * Each close reading is placed as a point around the robot, through the
+ * mount of the ultrasonic sensor. Taken in the order of the turn, the points
+ * on the walls form one run: first one wall, then the other. For every place
+ * the run could be split in two, two perpendicular lines are fitted to the
+ * two parts by least squares, and the split with the smallest error is the
+ * corner. The directions of the walls then give north, and the distances
+ * from the robot to the walls give its x and y in the corner.
+ * @author jacob
+ */
+public class WallFit {
+  /**
+   * The most readings in one turn
+   */
+  public static final int MAX_SAMPLES = 720;
+  /**
+   * The distance (cm) beyond which a reading is not used, since it is too
+   * far along a wall to be reliable, or is not a wall
+   */
+  public static final double MAX_WALL_DIST = 60;
+  /**
+   * The fewest points on each wall for a fit
+   */
+  public static final int MIN_WALL_POINTS = 5;
+  /**
+   * The largest error (cm) of a fit whose north can be trusted
+   */
+  public static final double MAX_HEADING_RMS = 2;
+  /**
+   * The largest error (cm) of a fit whose x and y can be trusted
+   */
+  public static final double MAX_GOOD_RMS = 1.5;
+  /**
+   * The fewest points on each wall for a fit whose x and y can be trusted
+   */
+  public static final int MIN_GOOD_POINTS = 15;
+  /**
+   * The most (degrees) the two walls, each fitted on its own, may be off
+   * square for the fit's x and y to be trusted
+   */
+  public static final double MAX_GOOD_SQUARE_ERROR = 3;
+
+  private final double maxWallDist;
+  private final float[] dist = new float[MAX_SAMPLES];
+  private final double[] theta = new double[MAX_SAMPLES];
+  private final double[] points = new double[2 * MAX_SAMPLES];
+  private final int[] wall = new int[MAX_SAMPLES];
+  // sums of x, y, xx, xy and yy over the first i wall points
+  private final double[][] sums = new double[5][MAX_SAMPLES + 1];
+  // the scatter of each wall's points, as {xx, xy, yy}
+  private final double[] a = new double[3];
+  private final double[] b = new double[3];
+  private final Transform pose = new Transform();
+  private final double[] pt = new double[2];
+  private int numSamples = 0;
+  private double north;
+  private double rms;
+  private double x;
+  private double y;
+  private int southPoints;
+  private int westPoints;
+  private double squareError;
+
+  /**
+   * Creates an empty fit, with the default distance
+   */
+  public WallFit() {
+    this(MAX_WALL_DIST);
+  }
+
+  /**
+   * Creates an empty fit
+   * @param maxWallDist The distance (cm) beyond which readings are not used
+   */
+  public WallFit(double maxWallDist) {
+    this.maxWallDist = maxWallDist;
+  }
+
+  /**
+   * Forgets every reading, to start a new turn
+   */
+  public void clear() {
+    numSamples = 0;
+  }
+
+  /**
+   * Adds a reading, unless the fit is full
+   * @param d The filtered ultrasonic reading, in cm
+   * @param t The heading of the robot, in degrees
+   */
+  public void add(float d, double t) {
+    if (numSamples < MAX_SAMPLES) {
+      dist[numSamples] = d;
+      theta[numSamples] = t;
+      numSamples++;
+    }
+  }
+
+  /**
+   * Returns whether or not the fit can take more readings
+   * @return True if the fit is full
+   */
+  public boolean isFull() {
+    return numSamples == MAX_SAMPLES;
+  }
+
+  /**
+   * Fits the two walls to the readings
+   * @return True if both walls were found
+   */
+  public boolean fit() {
+    int n = 0;
+    for (int i = 0; i < numSamples; i++) {
+      if (dist[i] < maxWallDist) {
+        SensorMount.ULTRASONIC.project(pose.set(0, 0, theta[i]), dist[i], pt);
+        points[2 * i] = pt[0];
+        points[2 * i + 1] = pt[1];
+        wall[n++] = i;
+      }
+    }
+    if (n < 2 * MIN_WALL_POINTS) {
+      return false;
+    }
+    // readings paired with the heading of a filtered median can be slightly
+    // out of order, so sort them by heading, by insertion as they nearly are
+    for (int k = 1; k < n; k++) {
+      int i = wall[k];
+      double t = (theta[i] % 360 + 360) % 360;
+      int j = k - 1;
+      while (j >= 0 && (theta[wall[j]] % 360 + 360) % 360 > t) {
+        wall[j + 1] = wall[j];
+        j--;
+      }
+      wall[j + 1] = i;
+    }
+
+    // the walls are one run of the turn, so start after the widest gap in heading
+    int start = 0;
+    double widest = -1;
+    for (int k = 0; k < n; k++) {
+      double gap = (theta[wall[(k + 1) % n]] - theta[wall[k]] + 360) % 360;
+      if (gap > widest) {
+        widest = gap;
+        start = (k + 1) % n;
+      }
+    }
+    for (int k = 0; k < n; k++) {
+      int i = wall[(start + k) % n];
+      double x = points[2 * i];
+      double y = points[2 * i + 1];
+      sums[0][k + 1] = sums[0][k] + x;
+      sums[1][k + 1] = sums[1][k] + y;
+      sums[2][k + 1] = sums[2][k] + x * x;
+      sums[3][k + 1] = sums[3][k] + x * y;
+      sums[4][k + 1] = sums[4][k] + y * y;
+    }
+
+    // the split where two perpendicular lines fit best
+    double best = Double.MAX_VALUE;
+    int split = -1;
+    for (int k = MIN_WALL_POINTS; k <= n - MIN_WALL_POINTS; k++) {
+      double err = error(k, n);
+      if (err < best) {
+        best = err;
+        split = k;
+      }
+    }
+    scatter(0, split, a);
+    scatter(split, n, b);
+    // each wall fitted on its own should be square with the other, or the
+    // readings were distorted, such as by the robot turning unevenly
+    double firstLine = 0.5 * Math.atan2(2 * a[1], a[0] - a[2]);
+    double secondLine = 0.5 * Math.atan2(2 * b[1], b[0] - b[2]);
+    squareError = Math.abs(Math.abs(Math.toDegrees(firstLine - secondLine)) % 180 - 90);
+    // the first wall's normal is the second's (u) turned by 90 degrees, so
+    // u is the direction of least spread of the second wall's scatter plus
+    // the first wall's scatter turned by 90 degrees
+    double mxx = b[0] + a[2];
+    double mxy = b[1] - a[1];
+    double myy = b[2] + a[0];
+    double major = 0.5 * Math.atan2(2 * mxy, mxx - myy);
+    double ux = -Math.sin(major);
+    double uy = Math.cos(major);
+    // point each normal from the robot towards its wall
+    double nx = -uy;
+    double ny = ux;
+    // the distance from the robot to each wall is the mean of its points along the normal
+    double firstDist = (nx * sums[0][split] + ny * sums[1][split]) / split;
+    if (firstDist < 0) {
+      nx = -nx;
+      ny = -ny;
+      firstDist = -firstDist;
+    }
+    double secondDist = (ux * (sums[0][n] - sums[0][split])
+        + uy * (sums[1][n] - sums[1][split])) / (n - split);
+    if (secondDist < 0) {
+      ux = -ux;
+      uy = -uy;
+      secondDist = -secondDist;
+    }
+    double first = Math.toDegrees(Math.atan2(nx, ny));
+    double second = Math.toDegrees(Math.atan2(ux, uy));
+    // turning clockwise from the south wall reaches the west wall
+    boolean firstIsSouth = (second - first + 360) % 360 < 180;
+    double south = firstIsSouth ? first : second;
+    north = (south + 180 + 360) % 360;
+    x = firstIsSouth ? secondDist : firstDist;
+    y = firstIsSouth ? firstDist : secondDist;
+    southPoints = firstIsSouth ? split : n - split;
+    westPoints = firstIsSouth ? n - split : split;
+    rms = Math.sqrt(Math.max(best, 0) / n);
+    return true;
+  }
+
+  /**
+   * The squared error of fitting two perpendicular lines to the wall
+   * points split at k
+   * @param k The index of the first point of the second wall
+   * @param n The number of wall points
+   * @return The sum of the squared distances of the points to their lines
+   */
+  private double error(int k, int n) {
+    scatter(0, k, a);
+    scatter(k, n, b);
+    double mxx = b[0] + a[2];
+    double mxy = b[1] - a[1];
+    double myy = b[2] + a[0];
+    return 0.5 * (mxx + myy)
+        - Math.sqrt(0.25 * (mxx - myy) * (mxx - myy) + mxy * mxy);
+  }
+
+  /**
+   * The scatter of a run of wall points about their mean
+   * @param from The first point, inclusive
+   * @param to The last point, exclusive
+   * @param out The array the scatter is written to, as {xx, xy, yy}
+   */
+  private void scatter(int from, int to, double[] out) {
+    double m = to - from;
+    double sx = sums[0][to] - sums[0][from];
+    double sy = sums[1][to] - sums[1][from];
+    out[0] = sums[2][to] - sums[2][from] - sx * sx / m;
+    out[1] = sums[3][to] - sums[3][from] - sx * sy / m;
+    out[2] = sums[4][to] - sums[4][from] - sy * sy / m;
+  }
+
+  /**
+   * Returns the heading of the odometer that is actually north, after fit()
+   * @return The heading, in degrees
+   */
+  public double getNorth() {
+    return north;
+  }
+
+  /**
+   * Returns the root mean square distance of the wall points to the
+   * fitted walls, after fit()
+   * @return The distance, in cm
+   */
+  public double getRms() {
+    return rms;
+  }
+
+  /**
+   * Returns the distance from the robot to the west wall, after fit()
+   * @return The x of the robot in the corner, in cm
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Returns the distance from the robot to the south wall, after fit()
+   * @return The y of the robot in the corner, in cm
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Returns whether or not the fit is close enough for its north to be
+   * trusted, after fit() returned true
+   * @return True if getNorth() can be used
+   */
+  public boolean isHeadingGood() {
+    return rms <= MAX_HEADING_RMS;
+  }
+
+  /**
+   * Returns how far the two walls, each fitted on its own, are from
+   * square, after fit()
+   * @return The difference from 90 degrees of the angle between the walls, in degrees
+   */
+  public double getSquareError() {
+    return squareError;
+  }
+
+  /**
+   * Returns whether or not the fit is close enough, has enough points
+   * on both walls, and has walls square enough, for its x and y to be
+   * trusted. A fit whose readings are all turned by the same angle is
+   * still square and close, so this cannot vouch for north beyond
+   * isHeadingGood().
+   * @return True if getX() and getY() can be used
+   */
+  public boolean isGood() {
+    return rms <= MAX_GOOD_RMS && southPoints >= MIN_GOOD_POINTS
+        && westPoints >= MIN_GOOD_POINTS && squareError <= MAX_GOOD_SQUARE_ERROR;
+  }
+}
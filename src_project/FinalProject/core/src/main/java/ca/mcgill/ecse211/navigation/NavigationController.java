@@ -0,0 +1,277 @@
+package ca.mcgill.ecse211.navigation;
+
+import ca.mcgill.ecse211.wifi.GameSettings;
+
+/**
+ * The decisions of the navigation state machine: when to turn towards the
+ * destination, when to drive, and when the robot has arrived, from the
+ * pose it is given.
+ *
+ * Each iteration, the owner calls step() with the current pose and carries
+ * out the returned action. After carrying out a TURN, it calls turned().
+ * @author jacob
+ */
+public class NavigationController {
+  /**
+   * An enumeration of states the robot can be in as it navigates from point to point
+   * 
+   * @author jacob silcoff
+   */
+  public enum State {
+    INIT, TURNING, TRAVELING
+  }
+
+  /**
+   * The motor speed of the robot when moving forward
+   */
+  public static final int FORWARD_SPEED = 270;
+  /**
+   * The maximum distance between two points where they are considered to be roughly equal.
+   */
+  public static final double DIST_THRESH = 0.5;
+  /**
+   * The max difference between two angles where they are considered to be roughly equal
+   */
+  public static final double T_THRESH = 0.8;
+  /**
+   * The distance after which the robot will no longer attempt to update its heading
+   */
+  public static final double CORRECTION_DIST = 4;
+  /**
+   * The heading error (deg) while traveling that makes the robot stop and turn again
+   */
+  private static final double RETURN_THRESH = 2;
+  /**
+   * Minimum distance to use the gyroscope
+   */
+  private static final double MIN_GYRO_DIST = GameSettings.GRID_WIDTH * Math.sqrt(2);
+
+  /**
+   * The actions step() can ask for
+   */
+  public enum Action {
+    /**
+     * Nothing to do this iteration
+     */
+    NONE,
+    /**
+     * Turn on the spot to getDestT(), then call turned()
+     */
+    TURN,
+    /**
+     * Drive forward at getSpeed()
+     */
+    DRIVE,
+    /**
+     * Stop, the destination was reached
+     */
+    STOP
+  }
+
+  private final int forwardSpeed;
+  private final double tThresh;
+  private final double correctionDist;
+  private final double distThresh;
+  private State state = State.INIT;
+  private volatile boolean navigating = false;
+  private double destX;
+  private double destY;
+  private double destT;
+  private double[] legStart = {0, 0};
+
+  /**
+   * Creates a controller with the default parameters
+   */
+  public NavigationController() {
+    this(FORWARD_SPEED, T_THRESH, CORRECTION_DIST, DIST_THRESH);
+  }
+
+  /**
+   * Creates a controller
+   * @param forwardSpeed The motor speed when moving forward, in deg/s
+   * @param tThresh The heading error (deg) allowed before driving
+   * @param correctionDist The distance (cm) from the destination and from the start of
+   * the leg within which the heading is not corrected
+   * @param distThresh The distance (cm) from the destination that counts as arrived
+   */
+  public NavigationController(int forwardSpeed, double tThresh, double correctionDist,
+      double distThresh) {
+    this.forwardSpeed = forwardSpeed;
+    this.tThresh = tThresh;
+    this.correctionDist = correctionDist;
+    this.distThresh = distThresh;
+  }
+
+  /**
+   * Sets a new destination
+   * @param x The desired x in cm
+   * @param y The desired y in cm
+   * @param pose The current pose, as {x, y, theta}
+   */
+  public void travelTo(double x, double y, double[] pose) {
+    destX = x;
+    destY = y;
+    updateT(pose);
+    navigating = true;
+  }
+
+  /**
+   * Decides what to do in this iteration
+   * @param pose The current pose, as {x, y, theta}
+   * @return The action to carry out
+   */
+  public Action step(double[] pose) {
+    switch (state) {
+      case INIT:
+        if (navigating) {
+          state = State.TURNING;
+        }
+        return Action.NONE;
+      case TURNING:
+        return Action.TURN;
+      case TRAVELING:
+      default:
+        updateT(pose);
+        if (getDist(pose) > correctionDist && dist(legStart, pose) > correctionDist
+            && !facing(pose, destT, RETURN_THRESH)) {
+          // re-check heading and finish turning
+          state = State.TURNING;
+          return Action.NONE;
+        } else if (getDist(pose) >= distThresh) {
+          return Action.DRIVE;
+        } else { // Arrived
+          navigating = false; // finished traveling
+          state = State.INIT; // return to initialize case
+          return Action.STOP;
+        }
+    }
+  }
+
+  /**
+   * Checks the heading after a TURN, and starts traveling if it is close enough
+   * @param pose The pose after turning, as {x, y, theta}
+   * @return True if the robot is now traveling
+   */
+  public boolean turned(double[] pose) {
+    if (state == State.TURNING && facing(pose, destT, tThresh)) {
+      state = State.TRAVELING;
+      legStart = pose;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether or not the rest of the leg is long enough to hold
+   * the heading with the gyroscope
+   * @param pose The current pose, as {x, y, theta}
+   * @return True if the gyroscope should be used
+   */
+  public boolean needsGyro(double[] pose) {
+    return getDist(pose) > MIN_GYRO_DIST;
+  }
+
+  /**
+   * Returns the speed to drive at, slowing to a stop at the destination
+   * @param pose The current pose, as {x, y, theta}
+   * @return The motor speed, in deg/s
+   */
+  public int getSpeed(double[] pose) {
+    return getDist(pose) > distThresh ? forwardSpeed : 0;
+  }
+
+  /**
+   * Updates the destT (heading) to reflect the real position of the robot
+   * @param pose The current pose, as {x, y, theta}
+   */
+  public void updateT(double[] pose) {
+    destT = angleTo(pose, destX, destY);
+  }
+
+  /**
+   * Gets distance from a position to the destination
+   * @param pose The position, as {x, y, ...}
+   * @return The distance to the destination, in cm
+   */
+  public double getDist(double[] pose) {
+    return dist(new double[] {destX, destY}, pose);
+  }
+
+  /**
+   * Returns the heading to the destination
+   * @return The heading, in degrees
+   */
+  public double getDestT() {
+    return destT;
+  }
+
+  /**
+   * Returns the destination
+   * @return The destination, as {x, y}
+   */
+  public double[] getDest() {
+    return new double[] {destX, destY};
+  }
+
+  /**
+   * Returns the current state
+   * @return The state of the state machine
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Returns whether or not the robot is on its way to a destination
+   * @return True until the destination is reached
+   */
+  public boolean isNavigating() {
+    return navigating;
+  }
+
+  /**
+   * Gets the heading from a position to a point
+   * @param pose The position, as {x, y, ...}
+   * @param x The x of the point, in cm
+   * @param y The y of the point, in cm
+   * @return The heading to the point, in degrees
+   */
+  public static double angleTo(double[] pose, double x, double y) {
+    double dx = x - pose[0];
+    double dy = y - pose[1];
+    if (dy == 0) {
+      return (dx > 0) ? 90 : 270;
+    } else {
+      double d = Math.toDegrees(Math.atan(dx / dy)) + ((dy > 0) ? 0 : 180);
+      return (d + 360) % 360; // normalize theta
+    }
+  }
+
+  /**
+   * Checks if a pose is facing a certain angle
+   * @param pose The pose, as {x, y, theta}
+   * @param ang The angle to check
+   * @param threshold the allowable error in heading
+   * @return True if the pose is facing the given angle, false otherwise
+   */
+  public static boolean facing(double[] pose, double ang, double threshold) {
+    double diff = Math.abs(pose[2] - (ang + 360) % 360);
+    diff = (diff + 360) % 360;
+    return (diff < threshold) || ((360 - diff) < threshold);
+  }
+
+  /**
+   * Gets distance (cm) between two coordinates
+   * 
+   * @param a position array 1 where a[0] is its x, and a[1] is its y
+   * @param b position array 2 where b[0] is its x, and b[1] is its y
+   * @return The distance between a and b, in cm
+   */
+  public static double dist(double[] a, double[] b) {
+    if (a.length < 2 || b.length < 2) {
+      return -1;
+    }
+    return Math.sqrt(Math.pow(a[0] - b[0], 2) + Math.pow(a[1] - b[1], 2)); // minimum distance
+                                                                           // formula
+  }
+}
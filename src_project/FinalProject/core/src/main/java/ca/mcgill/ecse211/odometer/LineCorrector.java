@@ -0,0 +1,202 @@
+package ca.mcgill.ecse211.odometer;
+
+import ca.mcgill.ecse211.demo.AveragedBuffer;
+import ca.mcgill.ecse211.sensors.SensorMount;
+
+/**
+ * Decides, from line sensor samples and the odometer's pose, when the robot
+ * crosses a grid line and what the odometer should be corrected to.
+ *
+ * @author jacob
+ */
+public class LineCorrector {
+  /**
+   * This represents the minimum difference from the mean for a light sensor reading to be
+   * considered significant
+   */
+  public static final float LIGHT_THRESHOLD = 0.22f;//was .08
+  /**
+   * This represents the distance between lines on the grid, in cm
+   */
+  public static final float LINE_SPACING = 30.48f;
+  /**
+   * This represents the minimum distance for the robot to travel before reading another line
+   */
+  public static final float DIST_THRESHOLD = 5;
+  /**
+   * The maximum amount that the OC will round
+   */
+  public static final float ROUND_LIMIT = 10;
+  /**
+   * The number of samples in the rolling average of the line sensor
+   */
+  private static final int WINDOW = 100;
+
+  /*
+   * Results of update():
+   */
+  /**
+   * No line was crossed
+   */
+  public static final int NO_LINE = 0;
+  /**
+   * The first line was crossed, which is never corrected to
+   */
+  public static final int FIRST_LINE = 1;
+  /**
+   * A line was crossed, and x should be corrected
+   */
+  public static final int CORRECTED_X = 2;
+  /**
+   * A line was crossed, and y should be corrected
+   */
+  public static final int CORRECTED_Y = 3;
+  /**
+   * A line was crossed too far from where the odometer expected
+   * any line, which indicates a severe error
+   */
+  public static final int TOO_FAR = 4;
+
+  private final float lightThreshold;
+  private final float distThreshold;
+  private final float roundLimit;
+  private final AveragedBuffer<Float> samples = new AveragedBuffer<Float>(WINDOW);
+  private double[] lastPos = null;
+  private int lineCount = 0;
+  private double correction;
+  private final Transform robot = new Transform();
+  private final Transform sensor = new Transform();
+
+  /**
+   * Creates a corrector with the default thresholds
+   */
+  public LineCorrector() {
+    this(LIGHT_THRESHOLD, DIST_THRESHOLD, ROUND_LIMIT);
+  }
+
+  /**
+   * Creates a corrector
+   * @param lightThreshold The drop below the average that counts as a line
+   * @param distThreshold The distance to travel before another line can be seen, in cm
+   * @param roundLimit The furthest the odometer may be rounded, in cm
+   */
+  public LineCorrector(float lightThreshold, float distThreshold, float roundLimit) {
+    this.lightThreshold = lightThreshold;
+    this.distThreshold = distThreshold;
+    this.roundLimit = roundLimit;
+  }
+
+  /**
+   * Takes in one line sensor sample. To avoid a single line triggering this many times,
+   * a line only counts if we haven't seen a line yet at all or we're sufficiently far
+   * from the last line. The sample is then added to the rolling average, whether or
+   * not correction is on.
+   * @param pos The pose of the robot when the sample was taken, as {x, y, theta}
+   * @param sample The line sensor sample
+   * @param on Whether or not lines should be looked for
+   * @return One of NO_LINE, FIRST_LINE, CORRECTED_X, CORRECTED_Y or TOO_FAR.
+   * If x or y should be corrected, getCorrection() gives the new value.
+   */
+  public int update(double[] pos, float sample, boolean on) {
+    int result = NO_LINE;
+    if (on && (sample < samples.getAvg() - lightThreshold
+        && (lastPos == null || dist(pos, lastPos) > distThreshold))) {
+      // update last pos of line detected
+      lastPos = pos;
+      lineCount++;
+      result = lineCount == 1 ? FIRST_LINE : round(pos);
+    }
+    // Add the sample to the rolling average
+    samples.add(sample);
+    return result;
+  }
+
+  /**
+   * Rounds either the x or the y position of the line sensor (whichever
+   * is closer) to an integer multiple of the distance between grid lines
+   * @param pos The pose of the robot, as {x, y, theta}
+   * @return CORRECTED_X, CORRECTED_Y or TOO_FAR
+   */
+  private int round(double[] pos) {
+    SensorMount.LINE.toSensor(robot.set(pos), sensor);
+    double sensorX = sensor.getX();
+    double sensorY = sensor.getY();
+    double roundedX = Math.round(sensorX / LINE_SPACING) * LINE_SPACING;
+    double roundedY = Math.round(sensorY / LINE_SPACING) * LINE_SPACING;
+    if (Math.abs(sensorX - roundedX) < Math.abs(sensorY - roundedY)) {
+      // here we round the x position
+      if (Math.abs(sensorX - roundedX) >= roundLimit) {
+        return TOO_FAR;
+      }
+      // the heading is unchanged, so the robot moves as much as the sensor
+      correction = pos[0] + roundedX - sensorX;
+      return CORRECTED_X;
+    } else {
+      // here we round the y position
+      if (Math.abs(sensorY - roundedY) >= roundLimit) {
+        return TOO_FAR;
+      }
+      correction = pos[1] + roundedY - sensorY;
+      return CORRECTED_Y;
+    }
+  }
+
+  /**
+   * Returns the value x or y should be corrected to, after
+   * update() returned CORRECTED_X or CORRECTED_Y
+   * @return The corrected coordinate, in cm
+   */
+  public double getCorrection() {
+    return correction;
+  }
+
+  /**
+   * Returns the rolling average of the line sensor
+   * @return The average sample
+   */
+  public double getAvg() {
+    return samples.getAvg();
+  }
+
+  /**
+   * Converts a pose of the robot to the pose of its line sensor
+   * @param robot The pose of the robot, as {x, y, theta}
+   * @return The pose of the line sensor
+   */
+  public static double[] toSensor(double[] robot) {
+    double[] out = new double[3];
+    if (robot.length == 3) {
+      Transform pose = new Transform().set(robot);
+      SensorMount.LINE.toSensor(pose, pose).toPose(out);
+    }
+    return out;
+  }
+
+  /**
+   * Converts a pose of the line sensor to the pose of the robot
+   * @param sensor The pose of the line sensor, as {x, y, theta}
+   * @return The pose of the robot
+   */
+  public static double[] toRobot(double[] sensor) {
+    double[] out = new double[3];
+    if (sensor.length == 3) {
+      Transform pose = new Transform().set(sensor);
+      SensorMount.LINE.toRobot(pose, pose).toPose(out);
+    }
+    return out;
+  }
+
+  /**
+   * Calculates distance between two positions
+   *
+   * @param a The first point, as an array of coordinates
+   * @param b The second point, as an array of coordinates
+   * @return The distance, in cm, between a and b
+   */
+  private static double dist(double[] a, double[] b) {
+    if (a.length < 2 || b.length < 2) {
+      return -1;
+    }
+    return Math.sqrt(Math.pow(a[0] - b[0], 2) + Math.pow(a[1] - b[1], 2)); // fixed distance formula
+  }
+}
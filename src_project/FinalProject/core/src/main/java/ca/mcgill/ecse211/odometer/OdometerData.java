@@ -4,6 +4,8 @@ package ca.mcgill.ecse211.odometer;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import ca.mcgill.ecse211.telemetry.Histogram;
+import ca.mcgill.ecse211.telemetry.MetricsRegistry;
 
 /**
  * This class stores and provides thread safe access to the odometer data.
@@ -32,6 +34,8 @@ public class OdometerData {
   // Thread control tools
   private static Lock lock = new ReentrantLock(true); // Fair lock for
   // concurrent writing
+  private static final Histogram LOCK_WAIT = MetricsRegistry.lock("odometer"); // Time
+  // spent waiting for the lock, in us
   private volatile boolean isReseting = false; // Indicates if a thread is
   // trying to reset any
   // position parameters
@@ -74,6 +78,15 @@ public class OdometerData {
 
   }
 
+  /**
+   * Takes the lock, counting the time spent waiting for it
+   */
+  private static void lockTimed() {
+    long start = System.nanoTime();
+    lock.lock();
+    LOCK_WAIT.record((System.nanoTime() - start) / 1000);
+  }
+
   /**
    * Return the Odomometer data.
    * <p>
@@ -85,7 +98,7 @@ public class OdometerData {
    */
   public double[] getXYT() {
     double[] position = new double[3];
-    lock.lock();
+    lockTimed();
     try {
       while (isReseting) { // If a reset operation is being executed, wait
         // until it is over.
@@ -117,7 +130,7 @@ public class OdometerData {
    * @param dtheta
    */
   public void update(double dx, double dy, double dtheta) {
-    lock.lock();
+    lockTimed();
     isReseting = true;
     try {
 
@@ -143,7 +156,7 @@ public class OdometerData {
    * @param theta the value of theta
    */
   public void setXYT(double x, double y, double theta) {
-    lock.lock();
+    lockTimed();
     isReseting = true;
     try {
       this.x = x;
@@ -163,7 +176,7 @@ public class OdometerData {
    * @param x the value of x
    */
   public void setX(double x) {
-    lock.lock();
+    lockTimed();
     isReseting = true;
     try {
       this.x = x;
@@ -181,7 +194,7 @@ public class OdometerData {
    * @param y the value of y
    */
   public void setY(double y) {
-    lock.lock();
+    lockTimed();
     isReseting = true;
     try {
       this.y = y;
@@ -200,7 +213,7 @@ public class OdometerData {
    * @param theta the value of theta
    */
   public void setTheta(double theta) {
-    lock.lock();
+    lockTimed();
     isReseting = true;
     try {
       this.theta = theta;
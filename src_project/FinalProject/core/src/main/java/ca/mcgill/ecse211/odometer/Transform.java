@@ -0,0 +1,155 @@
+package ca.mcgill.ecse211.odometer;
+
+/**
+ * A rigid transform of the plane: a position and a heading. It can be the
+ * pose of the robot on the board, or the mount of a sensor on the robot.
+ *
+ * The heading follows the odometer's convention: 0 points along +y and
+ * angles grow clockwise. The cosine and sine of the heading are computed
+ * once when it is set, and reused by every point mapped through the
+ * transform. Points in the transform's own frame are given as (right,
+ * forward), relative to its position and heading.
+ *
+ * Results are written into arrays supplied by the caller, so a transform can
+ * be used every loop without creating garbage. A transform is not thread
+ * safe; each thread should keep its own.
+ * @author jacob
+ */
+public class Transform {
+  private double x;
+  private double y;
+  private double theta;
+  private double cos = 1;
+  private double sin = 0;
+
+  /**
+   * Creates the identity transform
+   */
+  public Transform() {
+  }
+
+  /**
+   * Creates a transform
+   * @param x The x of the position, in cm
+   * @param y The y of the position, in cm
+   * @param theta The heading, in degrees
+   */
+  public Transform(double x, double y, double theta) {
+    set(x, y, theta);
+  }
+
+  /**
+   * Sets the transform
+   * @param x The x of the position, in cm
+   * @param y The y of the position, in cm
+   * @param theta The heading, in degrees
+   * @return This transform
+   */
+  public Transform set(double x, double y, double theta) {
+    return setRadians(x, y, Math.toRadians(theta));
+  }
+
+  /**
+   * Sets the transform from a pose
+   * @param xyt The pose, as {x, y, theta} in cm and degrees
+   * @return This transform
+   */
+  public Transform set(double[] xyt) {
+    return setRadians(xyt[0], xyt[1], Math.toRadians(xyt[2]));
+  }
+
+  /**
+   * Sets the transform, with the heading in radians
+   * @param x The x of the position, in cm
+   * @param y The y of the position, in cm
+   * @param theta The heading, in radians
+   * @return This transform
+   */
+  private Transform setRadians(double x, double y, double theta) {
+    this.x = x;
+    this.y = y;
+    this.theta = theta;
+    cos = Math.cos(theta);
+    sin = Math.sin(theta);
+    return this;
+  }
+
+  /**
+   * Maps a point from this transform's frame
+   * @param right The distance of the point to the right, in cm
+   * @param forward The distance of the point ahead, in cm
+   * @param out The array the point is written to, as {x, y}
+   * @return out
+   */
+  public double[] apply(double right, double forward, double[] out) {
+    double px = x + right * cos + forward * sin;
+    out[1] = y - right * sin + forward * cos;
+    out[0] = px;
+    return out;
+  }
+
+  /**
+   * Combines this transform with one in its frame, such as the pose of the
+   * robot with the mount of a sensor, giving the pose of the sensor. out may
+   * be this transform.
+   * @param inner The transform in this transform's frame
+   * @param out The transform the result is written to
+   * @return out
+   */
+  public Transform compose(Transform inner, Transform out) {
+    double px = x + inner.x * cos + inner.y * sin;
+    double py = y - inner.x * sin + inner.y * cos;
+    double c = cos * inner.cos - sin * inner.sin;
+    double s = sin * inner.cos + cos * inner.sin;
+    out.x = px;
+    out.y = py;
+    out.theta = theta + inner.theta;
+    out.cos = c;
+    out.sin = s;
+    return out;
+  }
+
+  /**
+   * Inverts this transform, so that composing the two gives the identity.
+   * This takes the pose of a sensor back to the pose of the robot, given the
+   * mount. out may be this transform.
+   * @param out The transform the result is written to
+   * @return out
+   */
+  public Transform invert(Transform out) {
+    double px = -x * cos + y * sin;
+    double py = -x * sin - y * cos;
+    out.x = px;
+    out.y = py;
+    out.theta = -theta;
+    out.sin = -sin;
+    out.cos = cos;
+    return out;
+  }
+
+  /**
+   * Writes the transform as a pose
+   * @param out The array the pose is written to, as {x, y, theta} in cm and degrees
+   * @return out
+   */
+  public double[] toPose(double[] out) {
+    out[0] = x;
+    out[1] = y;
+    out[2] = Math.toDegrees(theta);
+    return out;
+  }
+
+  /**
+   * @return The x of the position, in cm
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * @return The y of the position, in cm
+   */
+  public double getY() {
+    return y;
+  }
+}
@@ -0,0 +1,96 @@
+package ca.mcgill.ecse211.sensors;
+
+import ca.mcgill.ecse211.odometer.Transform;
+
+/**
+ * Where each sensor is mounted on the robot, as a pose in the robot's frame:
+ * a distance to the right of and ahead of the turning centre, and a heading
+ * relative to the robot's. Each mount converts between the pose of the robot
+ * and the pose of the sensor, and places the sensor's readings on the board,
+ * so no other class needs to know the geometry of the robot.
+ *
+ * Each mount is kept as a Transform, and composed with the pose of the
+ * robot. A mount never changes, so every thread can share it; the poses
+ * given to it belong to the caller.
+ *
+ * The colour sensor reads cans inside the claw, so it has no mount here.
+ * @author jacob
+ */
+public enum SensorMount {
+  /**
+   * The line sensor, behind and to the left of the turning centre
+   */
+  LINE(-5.5, -7, 0),
+  /**
+   * The ultrasonic sensor, at the front of the robot facing forward.
+   * Its readings are measured from its face.
+   */
+  ULTRASONIC(0, 6.5, 0);
+
+  /**
+   * The distance of the sensor to the right of the turning centre, in cm
+   */
+  public final double right;
+  /**
+   * The distance of the sensor ahead of the turning centre, in cm
+   */
+  public final double forward;
+  /**
+   * The heading of the sensor relative to the robot, in degrees clockwise
+   */
+  public final double theta;
+  /**
+   * The pose of the sensor in the robot's frame
+   */
+  private final Transform mount;
+  /**
+   * The pose of the robot in the sensor's frame
+   */
+  private final Transform inverse;
+
+  /**
+   * Creates a mount
+   * @param right The distance to the right of the turning centre, in cm
+   * @param forward The distance ahead of the turning centre, in cm
+   * @param theta The heading relative to the robot, in degrees
+   */
+  private SensorMount(double right, double forward, double theta) {
+    this.right = right;
+    this.forward = forward;
+    this.theta = theta;
+    mount = new Transform(right, forward, theta);
+    inverse = mount.invert(new Transform());
+  }
+
+  /**
+   * Converts a pose of the robot to the pose of the sensor
+   * @param robot The pose of the robot
+   * @param out The transform the pose of the sensor is written to, which may be robot
+   * @return out
+   */
+  public Transform toSensor(Transform robot, Transform out) {
+    return robot.compose(mount, out);
+  }
+
+  /**
+   * Converts a pose of the sensor to the pose of the robot
+   * @param sensor The pose of the sensor
+   * @param out The transform the pose of the robot is written to, which may be sensor
+   * @return out
+   */
+  public Transform toRobot(Transform sensor, Transform out) {
+    return sensor.compose(inverse, out);
+  }
+
+  /**
+   * Places a reading on the board: the point a distance straight ahead of the sensor
+   * @param robot The pose of the robot when the reading was taken
+   * @param range The distance from the sensor, in cm
+   * @param out The array the point is written to, as {x, y}
+   * @return out
+   */
+  public double[] project(Transform robot, double range, double[] out) {
+    mount.apply(0, range, out);
+    return robot.apply(out[0], out[1], out);
+  }
+}
@@ -0,0 +1,199 @@
+package ca.mcgill.ecse211.sensors;
+
+/**
+ * An UltrasonicFilter turns the raw readings of an ultrasonic sensor
+ * into a cleaned up distance, in cm. Each reading goes through
+ * the same pipeline:
+ *
+ * 1. Max range handling: readings with no echo (infinity, NaN or past
+ *    the range of the sensor) are clamped to MAX_RANGE.
+ * 2. Spike rejection: a reading that jumps more than the spike threshold
+ *    away from the filtered value is held back until a second reading
+ *    confirms it, so one spurious echo never reaches the output.
+ * 3. Median of the last n accepted readings.
+ *
+ * Each reading is timestamped. The median comes from readings a few
+ * polls old, so getMedianTimestamp() gives the time of the readings the
+ * filtered distance came from, for callers that pair it with a moving
+ * pose. No memory is allocated once the filter has been created, so it
+ * can be fed from control loops. UltrasonicPoller feeds it from the
+ * sensor itself.
+ *
+ * @author jacob
+ */
+public class UltrasonicFilter {
+  /**
+   * The largest distance the sensor can report, in cm. Readings
+   * at or past this value mean no echo was heard.
+   */
+  public static final float MAX_RANGE = 255;
+  /**
+   * The default number of readings the median is taken over
+   */
+  private static final int DEFAULT_N = 5;
+  /**
+   * The default jump (cm) from the filtered value past which
+   * a reading is considered a spike
+   */
+  private static final float DEFAULT_SPIKE_THRESH = 40;
+
+  private int n;
+  private float spikeThresh;
+  private float[] window;
+  private float[] sorted;
+  private long[] windowTimes;
+  private long[] sortedTimes;
+  private int windowIndex;
+  private int size;
+  private float raw;
+  private float filtered;
+  private boolean pendingSpike;
+  private long timestamp;
+  private long medianTimestamp;
+
+  /**
+   * Creates a filter that takes the median of a default
+   * number of readings, as specified by DEFAULT_N
+   */
+  public UltrasonicFilter() {
+    this(DEFAULT_N, DEFAULT_SPIKE_THRESH);
+  }
+
+  /**
+   * Creates a filter
+   * @param n The number of readings the median is taken over
+   * @param spikeThresh The jump (cm) from the filtered value past which
+   * a single reading is rejected as a spike
+   */
+  public UltrasonicFilter(int n, float spikeThresh) {
+    this.n = n;
+    this.spikeThresh = spikeThresh;
+    window = new float[n];
+    sorted = new float[n];
+    windowTimes = new long[n];
+    sortedTimes = new long[n];
+    clear();
+  }
+
+  /**
+   * Runs a reading through the filter
+   *
+   * @param dist The raw distance, in cm
+   * @return The filtered distance, in cm
+   */
+  public float push(float dist) {
+    return push(dist, System.currentTimeMillis());
+  }
+
+  /**
+   * Runs a reading taken at a given time through the filter,
+   * such as a recorded one
+   *
+   * @param dist The raw distance, in cm
+   * @param time The time the reading was taken, in ms
+   * @return The filtered distance, in cm
+   */
+  public float push(float dist, long time) {
+    timestamp = time;
+    if (Float.isNaN(dist) || dist < 0 || dist >= MAX_RANGE) {
+      dist = MAX_RANGE;
+    }
+    raw = dist;
+    if (size > 0 && Math.abs(dist - filtered) > spikeThresh && !pendingSpike) {
+      //Hold the reading back until the next one confirms it
+      pendingSpike = true;
+      return filtered;
+    }
+    pendingSpike = false;
+    window[windowIndex] = dist;
+    windowTimes[windowIndex] = timestamp;
+    windowIndex = (windowIndex + 1) % n;
+    if (size < n) {
+      size++;
+    }
+    filtered = median();
+    return filtered;
+  }
+
+  /**
+   * Finds the median of the readings in the window, and the time of
+   * the readings it came from, using insertion sort on preallocated arrays
+   * @return The median of the window
+   */
+  private float median() {
+    for (int i = 0; i < size; i++) {
+      float v = window[i];
+      long t = windowTimes[i];
+      int j = i - 1;
+      while (j >= 0 && sorted[j] > v) {
+        sorted[j + 1] = sorted[j];
+        sortedTimes[j + 1] = sortedTimes[j];
+        j--;
+      }
+      sorted[j + 1] = v;
+      sortedTimes[j + 1] = t;
+    }
+    if (size % 2 == 1) {
+      medianTimestamp = sortedTimes[size / 2];
+      return sorted[size / 2];
+    }
+    medianTimestamp = (sortedTimes[size / 2 - 1] + sortedTimes[size / 2]) / 2;
+    return (sorted[size / 2 - 1] + sorted[size / 2]) / 2f;
+  }
+
+  /**
+   * Returns the last filtered distance
+   * @return The filtered distance, in cm
+   */
+  public float getFiltered() {
+    return filtered;
+  }
+
+  /**
+   * Returns the last raw distance, after max range handling
+   * @return The raw distance, in cm
+   */
+  public float getRaw() {
+    return raw;
+  }
+
+  /**
+   * Returns whether or not the filtered distance is an actual echo,
+   * rather than the sensor seeing nothing
+   * @return True if the filtered distance is less than MAX_RANGE
+   */
+  public boolean isInRange() {
+    return filtered < MAX_RANGE;
+  }
+
+  /**
+   * Returns the time the last reading was taken
+   * @return The time of the last reading, in ms, as given by System.currentTimeMillis()
+   * or to push()
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Returns the time of the readings the filtered distance came from,
+   * which lags the last reading by about half the window
+   * @return The time of the median, in the clock of getTimestamp()
+   */
+  public long getMedianTimestamp() {
+    return medianTimestamp;
+  }
+
+  /**
+   * Resets the filter
+   */
+  public void clear() {
+    windowIndex = 0;
+    size = 0;
+    raw = MAX_RANGE;
+    filtered = MAX_RANGE;
+    pendingSpike = false;
+    timestamp = 0;
+    medianTimestamp = 0;
+  }
+}
@@ -0,0 +1,144 @@
+package ca.mcgill.ecse211.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations that uses a fixed amount of memory, in the
+ * style of an HDR histogram. Values are counted in buckets that double in
+ * width every SUB_BUCKETS buckets, so each value is kept to within about
+ * 1 / SUB_BUCKETS of its size, from one microsecond up to MAX_VALUE.
+ * Recording is lock-free and allocation-free, so several threads
+ * can record into the same histogram from their control loops.
+ * @author jacob
+ */
+public class Histogram {
+  /**
+   * The number of bits of precision kept for each value
+   */
+  private static final int SUB_BITS = 4;
+  /**
+   * The number of buckets in each power of two
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  /**
+   * The number of powers of two covered past the first SUB_BUCKETS values
+   */
+  private static final int MAGNITUDES = 26;
+  /**
+   * The largest value that can be told apart, in us (about 18 minutes).
+   * Larger values are counted as MAX_VALUE.
+   */
+  public static final long MAX_VALUE = ((long) SUB_BUCKETS << MAGNITUDES) - 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray((MAGNITUDES + 1) * SUB_BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Counts a value
+   * @param us The value, in us
+   */
+  public void record(long us) {
+    if (us < 0) {
+      us = 0;
+    } else if (us > MAX_VALUE) {
+      us = MAX_VALUE;
+    }
+    counts.incrementAndGet(bucket(us));
+    count.incrementAndGet();
+    sum.addAndGet(us);
+    long m;
+    while (us > (m = max.get()) && !max.compareAndSet(m, us)) {
+      // another thread raised the max, try again
+    }
+  }
+
+  /**
+   * Finds the bucket a value is counted in
+   * @param v The value, from 0 to MAX_VALUE
+   * @return The index of its bucket
+   */
+  private static int bucket(long v) {
+    if (v < SUB_BUCKETS) {
+      return (int) v;
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+    int sub = (int) (v >> exp) - SUB_BUCKETS;
+    return (exp + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Finds the highest value counted in a bucket
+   * @param i The index of the bucket
+   * @return The highest value of the bucket
+   */
+  private static long highestValue(int i) {
+    if (i < SUB_BUCKETS) {
+      return i;
+    }
+    int exp = i / SUB_BUCKETS - 1;
+    long low = (long) (SUB_BUCKETS + i % SUB_BUCKETS) << exp;
+    return low + (1L << exp) - 1;
+  }
+
+  /**
+   * Returns the number of values counted
+   * @return The number of values
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Returns the mean of the values counted
+   * @return The mean, in us, or 0 if there are none
+   */
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) sum.get() / n;
+  }
+
+  /**
+   * Returns the largest value counted
+   * @return The max, in us
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns a percentile of the values counted
+   * @param p The percentile, 0-100
+   * @return The value under which p percent of the values are, in us,
+   * to within the precision of the histogram
+   */
+  public long getPercentile(double p) {
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(p / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Math.min(highestValue(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Forgets every value counted
+   */
+  public void clear() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+}
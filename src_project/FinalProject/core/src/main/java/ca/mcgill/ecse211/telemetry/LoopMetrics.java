@@ -0,0 +1,128 @@
+package ca.mcgill.ecse211.telemetry;
+
+/**
+ * Timing metrics of one periodic loop: how long each iteration takes,
+ * how long it is between iterations, and how often the loop misses its
+ * deadline. The loop calls startIteration() at the top of each iteration
+ * and endIteration() before sleeping. Only the loop's own thread may call
+ * those; the metrics can be read from any thread.
+ * @author jacob
+ */
+public class LoopMetrics {
+  /**
+   * How much longer than the target period an iteration may start
+   * before it counts as a missed deadline
+   */
+  private static final double DEADLINE_FACTOR = 1.5;
+  /**
+   * A gap this many target periods long means the loop was stopped
+   * and restarted, rather than late, and is not counted
+   */
+  private static final int RESTART_FACTOR = 10;
+
+  private final String name;
+  private final String label;
+  private final long targetPeriod;
+  private final Histogram period = new Histogram();
+  private final Histogram exec = new Histogram();
+  private volatile long deadlineMisses = 0;
+  private long iterationStart = -1;
+
+  /**
+   * Creates the metrics of a loop. Use MetricsRegistry.loop() so that
+   * the loop shows up in reports.
+   * @param name The name of the loop
+   * @param targetPeriod The period the loop is meant to run at, in ms
+   */
+  LoopMetrics(String name, long targetPeriod) {
+    this.name = name;
+    this.label = name.length() > 4 ? name.substring(0, 4) + ":" : name + ":";
+    this.targetPeriod = targetPeriod * 1000;
+  }
+
+  /**
+   * Marks the start of an iteration of the loop
+   */
+  public void startIteration() {
+    long now = System.nanoTime();
+    if (iterationStart >= 0) {
+      long p = (now - iterationStart) / 1000;
+      if (p < RESTART_FACTOR * targetPeriod) {
+        period.record(p);
+        if (p > DEADLINE_FACTOR * targetPeriod) {
+          deadlineMisses++;
+        }
+      }
+    }
+    iterationStart = now;
+  }
+
+  /**
+   * Marks the end of the work of an iteration, before the loop sleeps
+   */
+  public void endIteration() {
+    long e = (System.nanoTime() - iterationStart) / 1000;
+    exec.record(e);
+    if (e > targetPeriod) {
+      deadlineMisses++;
+    }
+  }
+
+  /**
+   * Returns the name of the loop
+   * @return The name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns a short label for the loop, to fit on the LCD
+   * @return The first letters of the name
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  /**
+   * Returns the period the loop is meant to run at
+   * @return The target period, in us
+   */
+  public long getTargetPeriod() {
+    return targetPeriod;
+  }
+
+  /**
+   * Returns the times between the starts of iterations
+   * @return The histogram of periods, in us
+   */
+  public Histogram getPeriod() {
+    return period;
+  }
+
+  /**
+   * Returns the times taken by iterations, without sleeping
+   * @return The histogram of execution times, in us
+   */
+  public Histogram getExec() {
+    return exec;
+  }
+
+  /**
+   * Returns the number of iterations that either started late or
+   * took longer than the target period
+   * @return The number of missed deadlines
+   */
+  public long getDeadlineMisses() {
+    return deadlineMisses;
+  }
+
+  /**
+   * Forgets every iteration so far
+   */
+  public void clear() {
+    period.clear();
+    exec.clear();
+    deadlineMisses = 0;
+  }
+}
@@ -0,0 +1,125 @@
+package ca.mcgill.ecse211.telemetry;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the timing metrics of every periodic loop, and of the waits on
+ * shared locks, so that they can be reported together. Reports go to a
+ * stream (System.out is shown on the remote console of the brick), or
+ * can be looked up by name.
+ * @author jacob
+ */
+public class MetricsRegistry {
+  /**
+   * The metrics of each registered loop
+   */
+  private static final List<LoopMetrics> LOOPS = new ArrayList<LoopMetrics>();
+  /**
+   * The wait times of each registered lock
+   */
+  private static final List<Histogram> LOCKS = new ArrayList<Histogram>();
+  /**
+   * The names of each registered lock, by index in LOCKS
+   */
+  private static final List<String> LOCK_NAMES = new ArrayList<String>();
+
+  /**
+   * Returns the metrics of a loop, creating them if needed
+   * @param name The name of the loop
+   * @param targetPeriod The period the loop is meant to run at, in ms
+   * @return The metrics of the loop
+   */
+  public static synchronized LoopMetrics loop(String name, long targetPeriod) {
+    LoopMetrics m = getLoop(name);
+    if (m == null) {
+      m = new LoopMetrics(name, targetPeriod);
+      LOOPS.add(m);
+    }
+    return m;
+  }
+
+  /**
+   * Returns the histogram of wait times of a lock, creating it if needed
+   * @param name The name of the lock
+   * @return The histogram of wait times, in us
+   */
+  public static synchronized Histogram lock(String name) {
+    int i = LOCK_NAMES.indexOf(name);
+    if (i >= 0) {
+      return LOCKS.get(i);
+    }
+    Histogram h = new Histogram();
+    LOCKS.add(h);
+    LOCK_NAMES.add(name);
+    return h;
+  }
+
+  /**
+   * Looks up the metrics of a loop
+   * @param name The name of the loop
+   * @return The metrics of the loop, or null if there is no such loop
+   */
+  public static synchronized LoopMetrics getLoop(String name) {
+    for (LoopMetrics m : LOOPS) {
+      if (m.getName().equals(name)) {
+        return m;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Looks up the wait times of a lock
+   * @param name The name of the lock
+   * @return The histogram of wait times, in us, or null if there is no such lock
+   */
+  public static synchronized Histogram getLock(String name) {
+    int i = LOCK_NAMES.indexOf(name);
+    return i >= 0 ? LOCKS.get(i) : null;
+  }
+
+  /**
+   * Returns the metrics of every registered loop
+   * @return A copy of the list of loops, in the order they were registered
+   */
+  public static synchronized List<LoopMetrics> getLoops() {
+    return new ArrayList<LoopMetrics>(LOOPS);
+  }
+
+  /**
+   * Writes a report of every loop and lock
+   * @param out The stream to write to
+   */
+  public static synchronized void report(PrintStream out) {
+    out.println("loop          target  period p50/p99/max   exec p50/p99/max   misses");
+    for (LoopMetrics m : LOOPS) {
+      Histogram p = m.getPeriod();
+      Histogram e = m.getExec();
+      out.printf("%-12s %6.1f  %6.1f/%6.1f/%6.1f  %6.2f/%6.2f/%6.2f  %d/%d%n",
+          m.getName(), m.getTargetPeriod() / 1000.0,
+          p.getPercentile(50) / 1000.0, p.getPercentile(99) / 1000.0, p.getMax() / 1000.0,
+          e.getPercentile(50) / 1000.0, e.getPercentile(99) / 1000.0, e.getMax() / 1000.0,
+          m.getDeadlineMisses(), e.getCount());
+    }
+    out.println("lock wait     count    mean     p99     max (ms)");
+    for (int i = 0; i < LOCKS.size(); i++) {
+      Histogram h = LOCKS.get(i);
+      out.printf("%-12s %6d  %6.3f  %6.3f  %6.3f%n", LOCK_NAMES.get(i), h.getCount(),
+          h.getMean() / 1000.0, h.getPercentile(99) / 1000.0, h.getMax() / 1000.0);
+    }
+  }
+
+  /**
+   * Forgets every iteration and lock wait counted so far
+   */
+  public static synchronized void clear() {
+    for (LoopMetrics m : LOOPS) {
+      m.clear();
+    }
+    for (Histogram h : LOCKS) {
+      h.clear();
+    }
+  }
+}
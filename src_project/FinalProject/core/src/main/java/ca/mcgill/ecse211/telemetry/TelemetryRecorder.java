@@ -0,0 +1,423 @@
+package ca.mcgill.ecse211.telemetry;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records telemetry from the control loops into a binary file, at full
+ * loop rate. Every record has the same size, so recording a value is only
+ * a few puts into a preallocated buffer. Records go into one of two
+ * buffers; when it fills up, or every FLUSH_PERIOD, the buffers are swapped
+ * and a background thread writes the full one to the file. If the writer
+ * falls behind, records are dropped and counted rather than blocking the
+ * loop that produced them.
+ *
+ * The file starts with a header (the MAGIC bytes, VERSION and
+ * RECORD_SIZE as ints), followed by records of the form:
+ * long time (ns since the program started), short type, short channel,
+ * float values[VALUES]. tools.TelemetryDecoder turns it into a CSV file.
+ *
+ * Records can also be streamed live to a workstation, by giving the
+ * recorder a TelemetryServer. Streaming works whether or not the
+ * recorder is writing to a file.
+ * @author jacob
+ */
+public class TelemetryRecorder implements Runnable {
+  /**
+   * The first bytes of every telemetry file
+   */
+  public static final byte[] MAGIC = {'T', 'L', 'M', 'Y'};
+  /**
+   * The version of the file format
+   */
+  public static final int VERSION = 1;
+  /**
+   * The number of values in each record
+   */
+  public static final int VALUES = 5;
+  /**
+   * The size of each record, in bytes
+   */
+  public static final int RECORD_SIZE = 8 + 2 + 2 + 4 * VALUES;
+  /**
+   * The number of records each buffer holds
+   */
+  private static final int BUFFER_RECORDS = 2048;
+  /**
+   * The longest time records wait before being written, in ms
+   */
+  private static final int FLUSH_PERIOD = 500;
+
+  /*
+   * Record types:
+   */
+  /**
+   * The pose of the robot: x, y, theta
+   */
+  public static final short POSE = 0;
+  /**
+   * A sensor reading, with the sensor as channel
+   */
+  public static final short SENSOR = 1;
+  /**
+   * The timing of one iteration of a loop, with the loop as channel:
+   * period and execution time, in ms
+   */
+  public static final short LOOP = 2;
+  /**
+   * A state transition, with the component as channel: the new state
+   */
+  public static final short STATE = 3;
+  /**
+   * The number of records dropped by a TelemetryServer since the last such record
+   */
+  public static final short DROPPED = 4;
+  /**
+   * The timing statistics of a loop, with the loop as channel: p50 and p99
+   * period, p50 and p99 execution time, in ms, and missed deadlines
+   */
+  public static final short LOOP_STATS = 5;
+  /**
+   * The wait statistics of a shared lock, with the lock as channel: the
+   * number of waits, and the mean, p99 and longest wait, in ms
+   */
+  public static final short LOCK_STATS = 6;
+  /**
+   * The names of the record types, by type
+   */
+  public static final String[] TYPE_NAMES = {"POSE", "SENSOR", "LOOP", "STATE", "DROPPED",
+      "LOOP_STATS", "LOCK_STATS"};
+
+  /*
+   * Channels for loops and states:
+   */
+  public static final short ODOMETER = 0;
+  public static final short CORRECTION = 1;
+  public static final short NAVIGATION = 2;
+  public static final short LIGHT_LOCALIZER = 3;
+  public static final short US_LOCALIZER = 4;
+  public static final short CLASSIFIER = 5;
+  public static final short CAN_FINDER = 6;
+  /**
+   * The names of the loop and state channels, by channel. Loops in the
+   * MetricsRegistry are named the same, in lower case.
+   */
+  public static final String[] COMPONENT_NAMES = {"ODOMETER", "CORRECTION", "NAVIGATION",
+      "LIGHT_LOCALIZER", "US_LOCALIZER", "CLASSIFIER", "CAN_FINDER"};
+
+  /*
+   * Channels for locks:
+   */
+  public static final short ODOMETER_LOCK = 0;
+  /**
+   * The names of the lock channels, by channel. Locks in the
+   * MetricsRegistry are named the same, in lower case.
+   */
+  public static final String[] LOCK_NAMES = {"ODOMETER"};
+
+  /*
+   * Channels for sensors:
+   */
+  public static final short LINE_SENSOR = 0;
+  public static final short US_SENSOR = 1;
+  public static final short COLOR_SENSOR = 2;
+  public static final short GYRO = 3;
+  /**
+   * The line sensor, as read by the light localizer rather than the correction
+   */
+  public static final short LOCALIZER_LINE = 4;
+  /**
+   * The ultrasonic sensor, as read while scanning for cans
+   */
+  public static final short SCAN_US = 5;
+  /**
+   * The names of the sensor channels, by channel
+   */
+  public static final String[] SENSOR_NAMES = {"LINE", "US", "COLOR", "GYRO", "LOC_LINE",
+      "SCAN_US"};
+  /**
+   * The time all records are timed from, in ns
+   */
+  private static final long EPOCH = System.nanoTime();
+
+  private ByteBuffer active;
+  private ByteBuffer spare;
+  private ByteBuffer full;
+  private FileChannel out;
+  private Thread writer;
+  private volatile boolean recording = false;
+  private volatile TelemetryServer stream = null;
+  private int dropped = 0;
+
+  /**
+   * Creates a TelemetryRecorder. Nothing is recorded until start() is called.
+   */
+  public TelemetryRecorder() {
+    active = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    spare = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+  }
+
+  /**
+   * Starts recording to a file, and starts the thread that writes to it
+   * @param path The file to record to
+   * @throws IOException if the file cannot be opened
+   */
+  public synchronized void start(String path) throws IOException {
+    if (recording) {
+      return;
+    }
+    out = new FileOutputStream(path).getChannel();
+    ByteBuffer header = ByteBuffer.allocate(12);
+    header.put(MAGIC);
+    header.putInt(VERSION);
+    header.putInt(RECORD_SIZE);
+    header.flip();
+    out.write(header);
+    recording = true;
+    writer = new Thread(this, "Telemetry");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Stops recording, and blocks until whatever is left
+   * has been written to the file
+   */
+  public void stop() {
+    Thread t;
+    synchronized (this) {
+      if (!recording) {
+        return;
+      }
+      recording = false;
+      notifyAll();
+      t = writer;
+    }
+    try {
+      t.join();
+    } catch (InterruptedException e) {
+    }
+  }
+
+  /**
+   * Returns whether or not values are being recorded
+   * @return True if recording
+   */
+  public boolean isRecording() {
+    return recording;
+  }
+
+  /**
+   * Streams every record to a server, as well as recording it
+   * @param server The server to stream to, or null to stop streaming
+   */
+  public void setStream(TelemetryServer server) {
+    stream = server;
+  }
+
+  /**
+   * Returns whether or not records are going anywhere, to a file or to
+   * a connected client. Loops can check this before gathering values that
+   * are costly to get.
+   * @return True if records are being kept
+   */
+  public boolean isActive() {
+    TelemetryServer s = stream;
+    return recording || (s != null && s.isConnected());
+  }
+
+  /**
+   * Returns the time used to time records
+   * @return The time since the program started, in ns
+   */
+  public static long now() {
+    return System.nanoTime() - EPOCH;
+  }
+
+  /**
+   * Returns the number of records dropped because the file
+   * could not be written fast enough
+   * @return The number of dropped records
+   */
+  public synchronized int getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Records the pose of the robot
+   * @param x The x position, in cm
+   * @param y The y position, in cm
+   * @param t The heading, in degrees
+   */
+  public void pose(double x, double y, double t) {
+    record(POSE, (short) 0, (float) x, (float) y, (float) t, 0, 0);
+  }
+
+  /**
+   * Records a sensor reading
+   * @param sensor The sensor channel
+   * @param v0 The reading
+   * @param v1 A second value of the reading, such as a filtered value
+   */
+  public void sensor(short sensor, double v0, double v1) {
+    record(SENSOR, sensor, (float) v0, (float) v1, 0, 0, 0);
+  }
+
+  /**
+   * Records a sensor reading along with the pose it was taken at,
+   * so that it can be replayed later by tools.Replay
+   * @param sensor The sensor channel
+   * @param v0 The reading
+   * @param v1 A second value of the reading, such as a filtered value
+   * @param xyt The pose of the robot, as {x, y, theta}
+   */
+  public void sensor(short sensor, double v0, double v1, double[] xyt) {
+    record(SENSOR, sensor, (float) v0, (float) v1, (float) xyt[0], (float) xyt[1],
+        (float) xyt[2]);
+  }
+
+  /**
+   * Records a color reading
+   * @param r The red value
+   * @param g The green value
+   * @param b The blue value
+   */
+  public void color(float r, float g, float b) {
+    record(SENSOR, COLOR_SENSOR, r, g, b, 0, 0);
+  }
+
+  /**
+   * Records the timing of one iteration of a loop
+   * @param loop The loop channel
+   * @param period The time since the last iteration started, in ms
+   * @param exec The time this iteration took, in ms
+   */
+  public void loop(short loop, float period, float exec) {
+    record(LOOP, loop, period, exec, 0, 0, 0);
+  }
+
+  /**
+   * Records a state transition
+   * @param component The component channel
+   * @param state The new state, such as the ordinal of an enum
+   * @param value An extra value of the state, such as a confidence
+   */
+  public void state(short component, int state, double value) {
+    record(STATE, component, state, (float) value, 0, 0, 0);
+  }
+
+  /**
+   * Records a state transition with up to four extra values
+   * @param component The component channel
+   * @param state The new state
+   * @param v1 The first extra value
+   * @param v2 The second extra value
+   * @param v3 The third extra value
+   * @param v4 The fourth extra value
+   */
+  public void state(short component, int state, double v1, double v2, double v3, double v4) {
+    record(STATE, component, state, (float) v1, (float) v2, (float) v3, (float) v4);
+  }
+
+  /**
+   * Adds a record to the active buffer, swapping buffers if it is full,
+   * and streams it
+   * @param type The type of the record
+   * @param channel The channel of the record
+   * @param v0 The first value
+   * @param v1 The second value
+   * @param v2 The third value
+   * @param v3 The fourth value
+   * @param v4 The fifth value
+   */
+  public void record(short type, short channel, float v0, float v1, float v2, float v3,
+      float v4) {
+    TelemetryServer s = stream;
+    if (!recording && s == null) {
+      return;
+    }
+    long time = now();
+    if (s != null) {
+      s.offer(time, type, channel, v0, v1, v2, v3, v4);
+    }
+    if (!recording) {
+      return;
+    }
+    synchronized (this) {
+      if (active.remaining() < RECORD_SIZE && !swap()) {
+        dropped++;
+        return;
+      }
+      active.putLong(time);
+      active.putShort(type);
+      active.putShort(channel);
+      active.putFloat(v0);
+      active.putFloat(v1);
+      active.putFloat(v2);
+      active.putFloat(v3);
+      active.putFloat(v4);
+    }
+  }
+
+  /**
+   * Hands the active buffer to the writing thread, if the spare buffer is free.
+   * Must be called while holding the lock.
+   * @return True if the buffers were swapped
+   */
+  private boolean swap() {
+    if (spare == null) {
+      return false;
+    }
+    full = active;
+    active = spare;
+    spare = null;
+    notifyAll();
+    return true;
+  }
+
+  /**
+   * Writes full buffers to the file as they come in, and the active buffer
+   * every FLUSH_PERIOD
+   */
+  public void run() {
+    boolean going = true;
+    while (going) {
+      ByteBuffer toWrite;
+      synchronized (this) {
+        if (full == null && recording) {
+          try {
+            wait(FLUSH_PERIOD);
+          } catch (InterruptedException e) {
+          }
+        }
+        if (full == null && active.position() > 0) {
+          swap();
+        }
+        toWrite = full;
+        going = recording || toWrite != null;
+      }
+      if (toWrite != null) {
+        toWrite.flip();
+        try {
+          while (toWrite.hasRemaining()) {
+            out.write(toWrite);
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+        toWrite.clear();
+        synchronized (this) {
+          full = null;
+          spare = toWrite;
+        }
+      }
+    }
+    try {
+      out.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
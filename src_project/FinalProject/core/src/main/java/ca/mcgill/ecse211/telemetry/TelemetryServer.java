@@ -0,0 +1,289 @@
+package ca.mcgill.ecse211.telemetry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Streams telemetry records to a workstation over TCP, as they are
+ * recorded by a TelemetryRecorder. A client that connects is sent the same
+ * header as a telemetry file, followed by records, so the stream can be
+ * read with tools.TelemetryViewer or saved and decoded like a file.
+ *
+ * Records are queued in a fixed-size ring and sent by the server's own
+ * thread. If the network cannot keep up, new records are dropped rather
+ * than slowing down the loop that produced them, and a DROPPED record
+ * tells the client how many were lost. Every STATS_PERIOD, the timing of
+ * each loop in the MetricsRegistry is sent as LOOP_STATS records, and the
+ * waits on each lock as LOCK_STATS records.
+ * Only one client is served at a time.
+ * @author jacob
+ */
+public class TelemetryServer implements Runnable {
+  /**
+   * The port the server listens on by default
+   */
+  public static final int DEFAULT_PORT = 2112;
+  /**
+   * The most records that can wait to be sent
+   */
+  private static final int QUEUE_RECORDS = 1024;
+  /**
+   * The longest time records wait before being sent, in ms
+   */
+  private static final int SEND_PERIOD = 50;
+  /**
+   * The time between loop statistics, in ms
+   */
+  private static final int STATS_PERIOD = 1000;
+
+  private final int port;
+  private final long[] times = new long[QUEUE_RECORDS];
+  private final short[] types = new short[QUEUE_RECORDS];
+  private final short[] channels = new short[QUEUE_RECORDS];
+  private final float[] values = new float[QUEUE_RECORDS * TelemetryRecorder.VALUES];
+  private int head = 0;
+  private int size = 0;
+  private int dropped = 0;
+  private long totalDropped = 0;
+  private volatile boolean connected = false;
+  /**
+   * The records being sent. Only used by the server thread.
+   */
+  private final ByteBuffer out =
+      ByteBuffer.allocate((QUEUE_RECORDS + 64) * TelemetryRecorder.RECORD_SIZE);
+
+  /**
+   * Creates a server on DEFAULT_PORT
+   */
+  public TelemetryServer() {
+    this(DEFAULT_PORT);
+  }
+
+  /**
+   * Creates a server
+   * @param port The port to listen on
+   */
+  public TelemetryServer(int port) {
+    this.port = port;
+  }
+
+  /**
+   * Starts listening for a client on a background thread
+   */
+  public void start() {
+    Thread t = new Thread(this, "TelemetryServer");
+    t.setDaemon(true);
+    t.setPriority(Thread.MIN_PRIORITY);
+    t.start();
+  }
+
+  /**
+   * Returns whether or not a client is connected
+   * @return True if records are being streamed
+   */
+  public boolean isConnected() {
+    return connected;
+  }
+
+  /**
+   * Returns the number of records dropped because the
+   * network could not keep up
+   * @return The number of dropped records
+   */
+  public synchronized long getDropped() {
+    return totalDropped;
+  }
+
+  /**
+   * Queues a record to be sent, or drops it if the queue is full.
+   * Does nothing if no client is connected.
+   * @param time The time of the record, in ns
+   * @param type The type of the record
+   * @param channel The channel of the record
+   * @param v0 The first value
+   * @param v1 The second value
+   * @param v2 The third value
+   * @param v3 The fourth value
+   * @param v4 The fifth value
+   */
+  public void offer(long time, short type, short channel, float v0, float v1, float v2,
+      float v3, float v4) {
+    if (!connected) {
+      return;
+    }
+    synchronized (this) {
+      if (size == QUEUE_RECORDS) {
+        dropped++;
+        totalDropped++;
+        return;
+      }
+      int i = (head + size) % QUEUE_RECORDS;
+      times[i] = time;
+      types[i] = type;
+      channels[i] = channel;
+      int v = i * TelemetryRecorder.VALUES;
+      values[v] = v0;
+      values[v + 1] = v1;
+      values[v + 2] = v2;
+      values[v + 3] = v3;
+      values[v + 4] = v4;
+      size++;
+    }
+  }
+
+  /**
+   * Accepts clients one at a time, and streams to each until it disconnects
+   */
+  public void run() {
+    ServerSocket server;
+    try {
+      server = new ServerSocket(port);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return;
+    }
+    while (true) {
+      Socket client = null;
+      try {
+        client = server.accept();
+        client.setTcpNoDelay(true);
+        stream(client.getOutputStream());
+      } catch (IOException e) {
+        // the client went away, wait for the next one
+      } finally {
+        connected = false;
+        if (client != null) {
+          try {
+            client.close();
+          } catch (IOException e) {
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends the header and then queued records to a client,
+   * until it disconnects
+   * @param stream The stream to the client
+   * @throws IOException when the client disconnects
+   */
+  private void stream(OutputStream stream) throws IOException {
+    out.clear();
+    out.put(TelemetryRecorder.MAGIC);
+    out.putInt(TelemetryRecorder.VERSION);
+    out.putInt(TelemetryRecorder.RECORD_SIZE);
+    send(stream);
+    synchronized (this) {
+      head = 0;
+      size = 0;
+      dropped = 0;
+    }
+    connected = true;
+    long lastStats = System.currentTimeMillis();
+    while (true) {
+      try {
+        Thread.sleep(SEND_PERIOD);
+      } catch (InterruptedException e) {
+      }
+      long now = TelemetryRecorder.now();
+      synchronized (this) {
+        while (size > 0) {
+          put(times[head], types[head], channels[head], head * TelemetryRecorder.VALUES);
+          head = (head + 1) % QUEUE_RECORDS;
+          size--;
+        }
+        if (dropped > 0) {
+          putRecord(now, TelemetryRecorder.DROPPED, (short) 0, dropped, 0, 0, 0, 0);
+          dropped = 0;
+        }
+      }
+      if (System.currentTimeMillis() - lastStats >= STATS_PERIOD) {
+        lastStats = System.currentTimeMillis();
+        putStats(now);
+      }
+      send(stream);
+    }
+  }
+
+  /**
+   * Adds a queued record to the outgoing buffer
+   * @param time The time of the record, in ns
+   * @param type The type of the record
+   * @param channel The channel of the record
+   * @param v The index of the record's first value in values
+   */
+  private void put(long time, short type, short channel, int v) {
+    putRecord(time, type, channel, values[v], values[v + 1], values[v + 2], values[v + 3],
+        values[v + 4]);
+  }
+
+  /**
+   * Adds a record to the outgoing buffer
+   * @param time The time of the record, in ns
+   * @param type The type of the record
+   * @param channel The channel of the record
+   * @param v0 The first value
+   * @param v1 The second value
+   * @param v2 The third value
+   * @param v3 The fourth value
+   * @param v4 The fifth value
+   */
+  private void putRecord(long time, short type, short channel, float v0, float v1, float v2,
+      float v3, float v4) {
+    if (out.remaining() < TelemetryRecorder.RECORD_SIZE) {
+      return;
+    }
+    out.putLong(time);
+    out.putShort(type);
+    out.putShort(channel);
+    out.putFloat(v0);
+    out.putFloat(v1);
+    out.putFloat(v2);
+    out.putFloat(v3);
+    out.putFloat(v4);
+  }
+
+  /**
+   * Adds the timing of every registered loop, and the waits on every
+   * registered lock, to the outgoing buffer
+   * @param time The time of the records, in ns
+   */
+  private void putStats(long time) {
+    for (int i = 0; i < TelemetryRecorder.COMPONENT_NAMES.length; i++) {
+      LoopMetrics m = MetricsRegistry.getLoop(TelemetryRecorder.COMPONENT_NAMES[i].toLowerCase());
+      if (m == null) {
+        continue;
+      }
+      Histogram p = m.getPeriod();
+      Histogram e = m.getExec();
+      putRecord(time, TelemetryRecorder.LOOP_STATS, (short) i, p.getPercentile(50) / 1000f,
+          p.getPercentile(99) / 1000f, e.getPercentile(50) / 1000f, e.getPercentile(99) / 1000f,
+          m.getDeadlineMisses());
+    }
+    for (int i = 0; i < TelemetryRecorder.LOCK_NAMES.length; i++) {
+      Histogram h = MetricsRegistry.getLock(TelemetryRecorder.LOCK_NAMES[i].toLowerCase());
+      if (h == null) {
+        continue;
+      }
+      putRecord(time, TelemetryRecorder.LOCK_STATS, (short) i, h.getCount(),
+          (float) h.getMean() / 1000f, h.getPercentile(99) / 1000f, h.getMax() / 1000f, 0);
+    }
+  }
+
+  /**
+   * Writes the outgoing buffer to the client and empties it
+   * @param stream The stream to the client
+   * @throws IOException when the client disconnects
+   */
+  private void send(OutputStream stream) throws IOException {
+    if (out.position() > 0) {
+      stream.write(out.array(), 0, out.position());
+      stream.flush();
+      out.clear();
+    }
+  }
+}
@@ -2,14 +2,11 @@ package ca.mcgill.ecse211.wifi;
 
 import java.awt.geom.Point2D;
 import java.util.Map;
-import ca.mcgill.ecse211.WiFiClient.WifiConnection;
 import ca.mcgill.ecse211.canhandling.CanColor;
-import ca.mcgill.ecse211.demo.FinalDemo;
-import ca.mcgill.ecse211.navigation.Navigation;
-import lejos.hardware.lcd.LCD;
+import ca.mcgill.ecse211.navigation.NavigationController;
 
 /**
- * Gets and holds values from the server to set up a game.
+ * Holds values from the server to set up a game. GameServer gets them.
  * 
  * Also performs pre-processing on server data to find way-points 
  * on the map that can be used for localization, search, and 
@@ -19,13 +16,13 @@ import lejos.hardware.lcd.LCD;
 public abstract class GameSettings {
 
   /**
-   * The IP address of the server
+   * Distance between lines in cm
    */
-  private static final String SERVER_IP = "192.168.2.4";
+  public static final float GRID_WIDTH = 30.48f;
   /**
    * Our robot's team number (6)
    */
-  private static final int TEAM_NUMBER = 6;
+  static final int TEAM_NUMBER = 6;
   
   /**
    * Stores whether or not data has been transmitted from the server
@@ -97,55 +94,42 @@ public abstract class GameSettings {
   public static double[] searchAngles;
 
   /**
-   * Communicates with the server to get access to game information
-   * Initializes public static fields, so that once this method has 
-   * been called, all information about the game map can be accessed
-   * using the static fields of this class.
+   * Initializes public static fields from the game data,
+   * as sent by the server. Used by GameServer.init(), and by tools that
+   * simulate a game without the server.
+   * @param data The game data, as keys from the server to Long values
+   * @return True if the fields were set, false if neither team is ours
    */
-  public static void init() {
+  public static boolean load(Map<?, ?> data) {
+    //Get team assignment
 
-    // Initialize WifiConnection class
-    WifiConnection conn = new WifiConnection(SERVER_IP, TEAM_NUMBER, false);
-
-    // Connect to server and get the data, catching any errors that might occur
-    try {
-      Map data = conn.getData();
-      LCD.clear();
-
-      //Get team assignment
-
-      long rTeam = ((Long) data.get("RedTeam")).intValue();
-      long greenTeam = ((Long) data.get("GreenTeam")).intValue();
-      //targetColor = CanColor.fromNumber((int) greenTeam);
-      if (rTeam == TEAM_NUMBER) {
-        redTeam = true;
-      } else if (greenTeam != TEAM_NUMBER) {
-        return;
-      }
-
-      String color = (redTeam? "Red" : "Green");
-      char colorAbrv = (redTeam? 'R' : 'G');
+    long rTeam = ((Long) data.get("RedTeam")).intValue();
+    long greenTeam = ((Long) data.get("GreenTeam")).intValue();
+    //targetColor = CanColor.fromNumber((int) greenTeam);
+    if (rTeam == TEAM_NUMBER) {
+      redTeam = true;
+    } else if (greenTeam != TEAM_NUMBER) {
+      return false;
+    }
 
-      corner = ((Long) data.get(color + "Corner")).intValue();
-      System.out.println("Corner: " + corner);
+    String color = (redTeam? "Red" : "Green");
+    char colorAbrv = (redTeam? 'R' : 'G');
 
-      startZone = new Rect(color, data);
-      island = new Rect("Island", data);
-      tunnel = new Rect("TN" + colorAbrv , data);
-      searchZone = new Rect("SZ" + colorAbrv, data);
+    corner = ((Long) data.get(color + "Corner")).intValue();
+    System.out.println("Corner: " + corner);
 
-      double[][] entranceAndExit = tunnelEntranceAndExit();
-      tunnelEntrance = entranceAndExit[0];
-      tunnelExit = entranceAndExit[1];
-      safeLocStart = safeLightLocalizationPointStart();
-      safeLocIsland = safeLightLocalizationPointIsland();
-      setSearchParams();
-    } catch (Exception e) {
-      System.err.println("Error: " + e.getMessage());
-      initialized = false;
-    }
-    initialized = true;
+    startZone = new Rect(color, data);
+    island = new Rect("Island", data);
+    tunnel = new Rect("TN" + colorAbrv , data);
+    searchZone = new Rect("SZ" + colorAbrv, data);
 
+    double[][] entranceAndExit = tunnelEntranceAndExit();
+    tunnelEntrance = entranceAndExit[0];
+    tunnelExit = entranceAndExit[1];
+    safeLocStart = safeLightLocalizationPointStart();
+    safeLocIsland = safeLightLocalizationPointIsland();
+    setSearchParams();
+    return true;
   }
   
   /**
@@ -157,19 +141,19 @@ public abstract class GameSettings {
     if (GameSettings.initialized) {
       switch (GameSettings.corner) {
         case 1:
-          return new Point2D.Double(14*FinalDemo.GRID_WIDTH,
-              FinalDemo.GRID_WIDTH);
+          return new Point2D.Double(14*GRID_WIDTH,
+              GRID_WIDTH);
         case 2:
-          return new Point2D.Double(14*FinalDemo.GRID_WIDTH,
-              8*FinalDemo.GRID_WIDTH);
+          return new Point2D.Double(14*GRID_WIDTH,
+              8*GRID_WIDTH);
         case 3:
-          return new Point2D.Double(FinalDemo.GRID_WIDTH,
-              8*FinalDemo.GRID_WIDTH);
+          return new Point2D.Double(GRID_WIDTH,
+              8*GRID_WIDTH);
         default:
-          return new Point2D.Double(FinalDemo.GRID_WIDTH, FinalDemo.GRID_WIDTH);
+          return new Point2D.Double(GRID_WIDTH, GRID_WIDTH);
       }
     } 
-    return new Point2D.Double(FinalDemo.GRID_WIDTH, FinalDemo.GRID_WIDTH);
+    return new Point2D.Double(GRID_WIDTH, GRID_WIDTH);
   }
 
   /**
@@ -178,9 +162,9 @@ public abstract class GameSettings {
    * @return A point of the form {x1,y1}
    */
   private static double[] safeLightLocalizationPointStart() {
-    double g = FinalDemo.GRID_WIDTH;
+    double g = GRID_WIDTH;
     double[] bestPoint = {g,g};
-    double bestDist = Navigation.dist(bestPoint, tunnelEntrance);
+    double bestDist = NavigationController.dist(bestPoint, tunnelEntrance);
     for (int x = startZone.LLx; x < startZone.URx; x++) {
       for (int y = startZone.LLy; y < startZone.URy; y++) {
         if (startZone.contains((x-.5)*g, (y-.5)*g) &&
@@ -191,7 +175,7 @@ public abstract class GameSettings {
             !tunnel.contains((x+.5)*g, (y-.5)*g) &&
             !tunnel.contains((x-.5)*g, (y+.5)*g) &&
             !tunnel.contains((x+.5)*g, (y+.5)*g)) {
-          double dist = Navigation.dist(tunnelEntrance, new double[] {x*g,y*g});
+          double dist = NavigationController.dist(tunnelEntrance, new double[] {x*g,y*g});
           if (dist < bestDist) {
             bestDist = dist;
             bestPoint = new double[] {x*g,y*g};
@@ -208,9 +192,9 @@ public abstract class GameSettings {
    * @return A point of the form {x1,y1}
    */
   private static double[] safeLightLocalizationPointIsland() {
-    double g = FinalDemo.GRID_WIDTH;
+    double g = GRID_WIDTH;
     double[] bestPoint = {g,g};
-    double bestDist = Navigation.dist(bestPoint, tunnelExit);
+    double bestDist = NavigationController.dist(bestPoint, tunnelExit);
     for (int x = island.LLx; x < island.URx; x++) {
       for (int y = island.LLy; y < island.URy; y++) {
         if (island.contains((x-.5)*g, (y-.5)*g) &&
@@ -221,7 +205,7 @@ public abstract class GameSettings {
             !tunnel.contains((x+.5)*g, (y-.5)*g) &&
             !tunnel.contains((x-.5)*g, (y+.5)*g) &&
             !tunnel.contains((x+.5)*g, (y+.5)*g)) {
-          double dist = Navigation.dist(tunnelExit, new double[] {x*g,y*g});
+          double dist = NavigationController.dist(tunnelExit, new double[] {x*g,y*g});
           if (dist < bestDist) {
             bestDist = dist;
             bestPoint = new double[] {x*g,y*g};
@@ -243,14 +227,14 @@ public abstract class GameSettings {
     Rect tunnel = GameSettings.tunnel;
     Rect startZone = GameSettings.startZone;
     Rect island = GameSettings.island;
-    double[] llBlock = {(tunnel.LLx + .5) * FinalDemo.GRID_WIDTH, 
-        (tunnel.LLy + .5) * FinalDemo.GRID_WIDTH};
-    double[] urBlock = {(tunnel.URx - .5) * FinalDemo.GRID_WIDTH, 
-        (tunnel.URy - .5) * FinalDemo.GRID_WIDTH};
-    double[] N = translate(urBlock, 0, FinalDemo.GRID_WIDTH);
-    double[] S = translate(llBlock, 0, -FinalDemo.GRID_WIDTH);
-    double[] E = translate(urBlock,FinalDemo.GRID_WIDTH, 0);
-    double[] W = translate(llBlock, -FinalDemo.GRID_WIDTH, 0);
+    double[] llBlock = {(tunnel.LLx + .5) * GRID_WIDTH, 
+        (tunnel.LLy + .5) * GRID_WIDTH};
+    double[] urBlock = {(tunnel.URx - .5) * GRID_WIDTH, 
+        (tunnel.URy - .5) * GRID_WIDTH};
+    double[] N = translate(urBlock, 0, GRID_WIDTH);
+    double[] S = translate(llBlock, 0, -GRID_WIDTH);
+    double[] E = translate(urBlock,GRID_WIDTH, 0);
+    double[] W = translate(llBlock, -GRID_WIDTH, 0);
     //strictly one of N, S, E, W is contained in start
     double[] entrance = N, exit = S;
     if (startZone.contains(N) && island.contains(S)) {
@@ -293,7 +277,7 @@ public abstract class GameSettings {
     startSearch = opts[0];
     int bestInd = 0;
     double bestDist = Double.MAX_VALUE;
-    double g = FinalDemo.GRID_WIDTH;
+    double g = GRID_WIDTH;
     for (int i = 0; i < 4; i++) {
       double x = opts[i][0];
       double y = opts[i][1];
@@ -1,7 +1,6 @@
 package ca.mcgill.ecse211.wifi;
 
 import java.util.Map;
-import ca.mcgill.ecse211.demo.FinalDemo;
 
 /**
  * Represents a rectangle with an UR and LL point.
@@ -28,6 +27,20 @@ public class Rect {
     this.URy = ((Long) data.get(prefix + "_UR_y")).intValue();
     this.LLy = ((Long) data.get(prefix + "_LL_y")).intValue(); 
   }
+
+  /**
+   * Creates a rectangle from its corners, in grid squares
+   * @param LLx The x of the lower left corner
+   * @param LLy The y of the lower left corner
+   * @param URx The x of the upper right corner
+   * @param URy The y of the upper right corner
+   */
+  public Rect(int LLx, int LLy, int URx, int URy) {
+    this.LLx = LLx;
+    this.LLy = LLy;
+    this.URx = URx;
+    this.URy = URy;
+  }
   
   /**
    * Whether or not a point (x,y) (in cm) is contained within
@@ -37,8 +50,8 @@ public class Rect {
    * @return True if the point is contained, else false
    */
   public boolean contains(double x, double y) {
-    return x <= FinalDemo.GRID_WIDTH*URx && x >= FinalDemo.GRID_WIDTH*LLx
-        && y <= FinalDemo.GRID_WIDTH*URy && y >= FinalDemo.GRID_WIDTH*LLy;
+    return x <= GameSettings.GRID_WIDTH*URx && x >= GameSettings.GRID_WIDTH*LLx
+        && y <= GameSettings.GRID_WIDTH*URy && y >= GameSettings.GRID_WIDTH*LLy;
   }
   
   /**
@@ -0,0 +1,37 @@
+package ca.mcgill.ecse211.localization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HeadingHistoryTest {
+  private static final double EPS = 1e-9;
+
+  @Test
+  public void interpolatesBetweenHeadings() {
+    HeadingHistory h = new HeadingHistory(4);
+    h.add(0, 10);
+    h.add(100, 20);
+    assertEquals(15, h.headingAt(50), EPS);
+  }
+
+  @Test
+  public void interpolatesAcrossNorth() {
+    HeadingHistory h = new HeadingHistory(4);
+    h.add(0, 350);
+    h.add(100, 10);
+    assertEquals(0, h.headingAt(50) % 360, EPS);
+    assertEquals(355, h.headingAt(25), EPS);
+  }
+
+  @Test
+  public void clampsToTheHistory() {
+    HeadingHistory h = new HeadingHistory(2);
+    assertTrue(Double.isNaN(h.headingAt(0)));
+    h.add(0, 10);
+    h.add(100, 20);
+    h.add(200, 30);
+    assertEquals(20, h.headingAt(0), EPS);
+    assertEquals(30, h.headingAt(300), EPS);
+  }
+}
@@ -0,0 +1,54 @@
+package ca.mcgill.ecse211.localization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import ca.mcgill.ecse211.sensors.SensorMount;
+import ca.mcgill.ecse211.sensors.UltrasonicFilter;
+import org.junit.Test;
+
+public class WallFitTest {
+
+  /**
+   * Turns once on the spot at (x, y) in the corner of a west wall at x = 0
+   * and a south wall at y = 0. The odometer reads north as the given heading.
+   */
+  private static WallFit sweep(double x, double y, double north) {
+    WallFit fit = new WallFit();
+    for (int i = 0; i < 360; i++) {
+      double t = Math.toRadians(i - north);
+      double sx = x + SensorMount.ULTRASONIC.forward * Math.sin(t);
+      double sy = y + SensorMount.ULTRASONIC.forward * Math.cos(t);
+      double d = UltrasonicFilter.MAX_RANGE;
+      if (Math.sin(t) < 0) {
+        d = Math.min(d, sx / -Math.sin(t));
+      }
+      if (Math.cos(t) < 0) {
+        d = Math.min(d, sy / -Math.cos(t));
+      }
+      fit.add((float) d, i);
+    }
+    return fit;
+  }
+
+  @Test
+  public void findsTheCorner() {
+    WallFit fit = sweep(15, 20, 0);
+    assertTrue(fit.fit());
+    assertTrue(fit.isGood());
+    assertHeading(0, fit.getNorth());
+    assertEquals(15, fit.getX(), 0.5);
+    assertEquals(20, fit.getY(), 0.5);
+  }
+
+  @Test
+  public void findsNorth() {
+    WallFit fit = sweep(15, 20, 12);
+    assertTrue(fit.fit());
+    assertTrue(fit.isHeadingGood());
+    assertHeading(12, fit.getNorth());
+  }
+
+  private static void assertHeading(double expected, double actual) {
+    assertEquals(0, ((actual - expected) % 360 + 540) % 360 - 180, 0.5);
+  }
+}
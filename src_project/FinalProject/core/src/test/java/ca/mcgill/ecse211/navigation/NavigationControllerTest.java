@@ -0,0 +1,35 @@
+package ca.mcgill.ecse211.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class NavigationControllerTest {
+
+  @Test
+  public void turnsThenDrivesThenStops() {
+    NavigationController nc = new NavigationController();
+    nc.travelTo(0, 30, new double[] {0, 0, 90});
+    assertEquals(NavigationController.Action.NONE, nc.step(new double[] {0, 0, 90}));
+    assertEquals(NavigationController.State.TURNING, nc.getState());
+    assertEquals(0, nc.getDestT(), 1e-9);
+    assertEquals(NavigationController.Action.TURN, nc.step(new double[] {0, 0, 90}));
+    assertTrue(nc.turned(new double[] {0, 0, 0}));
+    assertEquals(NavigationController.Action.DRIVE, nc.step(new double[] {0, 10, 0}));
+    assertEquals(NavigationController.Action.STOP, nc.step(new double[] {0, 30, 0}));
+    assertEquals(NavigationController.State.INIT, nc.getState());
+    assertFalse(nc.isNavigating());
+  }
+
+  @Test
+  public void measuresHeadingsClockwiseFromNorth() {
+    double[] origin = {0, 0, 0};
+    assertEquals(90, NavigationController.angleTo(origin, 10, 0), 1e-9);
+    assertEquals(180, NavigationController.angleTo(origin, 0, -10), 1e-9);
+    assertEquals(225, NavigationController.angleTo(origin, -10, -10), 1e-9);
+    assertTrue(NavigationController.facing(new double[] {0, 0, 359.5}, 0, 1));
+    assertEquals(5, NavigationController.dist(origin, new double[] {3, 4}), 1e-9);
+    assertEquals(-1, NavigationController.dist(origin, new double[] {3}), 0);
+  }
+}
@@ -0,0 +1,40 @@
+package ca.mcgill.ecse211.odometer;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class LineCorrectorTest {
+  private static final double EPS = 1e-9;
+
+  @Test
+  public void sensorPoseRoundTrips() {
+    double[] robot = {40, 50, 120};
+    double[] back = LineCorrector.toRobot(LineCorrector.toSensor(robot));
+    assertEquals(40, back[0], EPS);
+    assertEquals(50, back[1], EPS);
+    assertEquals(120, back[2], EPS);
+  }
+
+  @Test
+  public void roundsTheSensorOntoTheLine() {
+    LineCorrector lc = new LineCorrector();
+    for (int i = 0; i < 10; i++) {
+      lc.update(new double[] {0, 0, 0}, 0.5f, false);
+    }
+    // facing north, the sensor is 7 cm behind the robot
+    double[] first = {15, 2 * LineCorrector.LINE_SPACING + 7 + 1, 0};
+    assertEquals(LineCorrector.FIRST_LINE, lc.update(first, 0.1f, true));
+    double[] second = {15, 3 * LineCorrector.LINE_SPACING + 7 + 2, 0};
+    assertEquals(LineCorrector.CORRECTED_Y, lc.update(second, 0.1f, true));
+    assertEquals(3 * LineCorrector.LINE_SPACING + 7, lc.getCorrection(), 1e-4);
+  }
+
+  @Test
+  public void ignoresSamplesAboveTheThreshold() {
+    LineCorrector lc = new LineCorrector();
+    for (int i = 0; i < 10; i++) {
+      lc.update(new double[] {0, 0, 0}, 0.5f, false);
+    }
+    assertEquals(LineCorrector.NO_LINE, lc.update(new double[] {0, 40, 0}, 0.45f, true));
+  }
+}
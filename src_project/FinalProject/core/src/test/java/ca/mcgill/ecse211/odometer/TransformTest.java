@@ -0,0 +1,38 @@
+package ca.mcgill.ecse211.odometer;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TransformTest {
+  private static final double EPS = 1e-9;
+
+  @Test
+  public void applyFollowsTheHeading() {
+    double[] pt = new Transform(10, 20, 90).apply(1, 2, new double[2]);
+    // facing +x, so forward is +x and right is -y
+    assertEquals(12, pt[0], EPS);
+    assertEquals(19, pt[1], EPS);
+  }
+
+  @Test
+  public void composeMatchesApply() {
+    Transform robot = new Transform(10, 20, 30);
+    double[] pose = robot.compose(new Transform(-5.5, -7, 15), new Transform())
+        .toPose(new double[3]);
+    double[] pt = robot.apply(-5.5, -7, new double[2]);
+    assertEquals(pt[0], pose[0], EPS);
+    assertEquals(pt[1], pose[1], EPS);
+    assertEquals(45, pose[2], EPS);
+  }
+
+  @Test
+  public void invertUndoesCompose() {
+    Transform robot = new Transform(10, 20, 30);
+    Transform mount = new Transform(3, 4, -20);
+    Transform t = robot.compose(mount, new Transform());
+    double[] pose = t.compose(mount.invert(new Transform()), t).toPose(new double[3]);
+    assertEquals(10, pose[0], EPS);
+    assertEquals(20, pose[1], EPS);
+    assertEquals(30, pose[2], EPS);
+  }
+}
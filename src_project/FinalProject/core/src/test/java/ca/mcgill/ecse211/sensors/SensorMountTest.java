@@ -0,0 +1,26 @@
+package ca.mcgill.ecse211.sensors;
+
+import static org.junit.Assert.assertEquals;
+import ca.mcgill.ecse211.odometer.Transform;
+import org.junit.Test;
+
+public class SensorMountTest {
+  private static final double EPS = 1e-9;
+
+  @Test
+  public void toRobotUndoesToSensor() {
+    Transform robot = new Transform(30, 60, 200);
+    Transform t = SensorMount.LINE.toSensor(robot, new Transform());
+    double[] pose = SensorMount.LINE.toRobot(t, t).toPose(new double[3]);
+    assertEquals(30, pose[0], EPS);
+    assertEquals(60, pose[1], EPS);
+    assertEquals(200, pose[2], EPS);
+  }
+
+  @Test
+  public void projectsFromTheFaceOfTheSensor() {
+    double[] pt = SensorMount.ULTRASONIC.project(new Transform(10, 10, 180), 20, new double[2]);
+    assertEquals(10, pt[0], EPS);
+    assertEquals(10 - SensorMount.ULTRASONIC.forward - 20, pt[1], EPS);
+  }
+}
@@ -0,0 +1,48 @@
+package ca.mcgill.ecse211.sensors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+public class UltrasonicFilterTest {
+
+  @Test
+  public void holdsBackASingleSpike() {
+    UltrasonicFilter f = new UltrasonicFilter(3, 40);
+    f.push(50, 0);
+    f.push(51, 10);
+    assertEquals(50.5f, f.push(200, 20), 0);
+    assertEquals(200, f.getRaw(), 0);
+    assertEquals(51, f.push(52, 30), 0);
+  }
+
+  @Test
+  public void acceptsAConfirmedJump() {
+    UltrasonicFilter f = new UltrasonicFilter(1, 40);
+    f.push(50, 0);
+    assertEquals(50, f.push(120, 10), 0);
+    assertEquals(121, f.push(121, 20), 0);
+  }
+
+  @Test
+  public void clampsMissingEchoes() {
+    UltrasonicFilter f = new UltrasonicFilter(1, 1000);
+    f.push(Float.POSITIVE_INFINITY, 0);
+    assertEquals(UltrasonicFilter.MAX_RANGE, f.getFiltered(), 0);
+    assertFalse(f.isInRange());
+  }
+
+  @Test
+  public void timesTheMedian() {
+    UltrasonicFilter f = new UltrasonicFilter(3, 1000);
+    f.push(30, 100);
+    f.push(10, 200);
+    f.push(20, 300);
+    assertEquals(300, f.getTimestamp());
+    assertEquals(300, f.getMedianTimestamp());
+    f.push(40, 400);
+    // the window is now 10, 20, 40
+    assertEquals(20, f.getFiltered(), 0);
+    assertEquals(300, f.getMedianTimestamp());
+  }
+}
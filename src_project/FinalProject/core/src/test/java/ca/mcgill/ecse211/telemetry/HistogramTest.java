@@ -0,0 +1,40 @@
+package ca.mcgill.ecse211.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void keepsExactSmallValues() {
+    Histogram h = new Histogram();
+    for (int i = 1; i <= 10; i++) {
+      h.record(i);
+    }
+    assertEquals(10, h.getCount());
+    assertEquals(5.5, h.getMean(), 1e-9);
+    assertEquals(10, h.getMax());
+    assertEquals(5, h.getPercentile(50));
+  }
+
+  @Test
+  public void keepsLargeValuesToItsPrecision() {
+    Histogram h = new Histogram();
+    for (int i = 1; i <= 1000; i++) {
+      h.record(1000 * i);
+    }
+    long p99 = h.getPercentile(99);
+    assertTrue(p99 >= 990000 && p99 <= 990000 * 17 / 16);
+    assertEquals(1000000, h.getPercentile(100));
+  }
+
+  @Test
+  public void clampsOutOfRangeValues() {
+    Histogram h = new Histogram();
+    h.record(-5);
+    h.record(Long.MAX_VALUE);
+    assertEquals(0, h.getPercentile(50));
+    assertEquals(Histogram.MAX_VALUE, h.getMax());
+  }
+}
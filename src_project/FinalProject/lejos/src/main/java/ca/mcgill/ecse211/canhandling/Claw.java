@@ -0,0 +1,524 @@
+package ca.mcgill.ecse211.canhandling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import ca.mcgill.ecse211.demo.FinalDemo;
+import ca.mcgill.ecse211.navigation.NavigationController;
+import lejos.hardware.ev3.LocalEV3;
+import lejos.hardware.motor.UnregulatedMotor;
+
+/**
+ * Represents the robot's claw
+ * @author jacob
+ */
+public class Claw {
+  
+  /**
+   * The claw motor
+   */
+  private static final UnregulatedMotor CLAW_MOTOR =
+      new UnregulatedMotor(LocalEV3.get().getPort("D"));
+
+  /**
+   * The can classifier used by the Claw
+   */
+  public static final ColorClassifier CLASSIFIER = new ColorClassifier();
+  /**
+   * The thread that runs claw movements in the background,
+   * so that they can overlap with navigation.
+   * Movements are run one at a time, in the order they were requested.
+   */
+  private static final ExecutorService ACTUATOR =
+      Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "Claw");
+          t.setDaemon(true);
+          return t;
+        }
+      });
+  /**
+   * The angle the claw is at when it is fully closed
+   */
+  public static final int CLOSED_ANGLE = 170;
+  /**
+   * The standard power used by the claw
+   */
+  public static final int CLAW_POWER = 25;
+  /**
+   * The time taken by the claw to weight the robot
+   */
+  public static final int WEIGHT_TIME = 3000;
+  /**
+   * Whether or not the tachometer for the claw has
+   * been calibrated
+   */
+  private static boolean calibrated = false;
+  /**
+   * Whether or not the claw was last closed, rather than opened
+   */
+  private boolean closed = false;
+
+  /*
+   * Weighing variables:
+   */
+  /**
+   * The speed of the wheel motors used when
+   * navigating during the weighing routine
+   */
+  public static final int MOTOR_SPEED = 100;
+  /**
+   * The distance backwards to move when weighing the can.
+   */
+  public static final int BACK_DISTANCE = 3;
+  /**
+   * The power value at which the robot can move
+   * light cans but not heavy cans.
+   * Relies on friction conditions of the demo table,
+   * ie, this would need to be adjusted for the specific
+   * surface used.
+   */
+  public static final int THRESH_POWER = 15;
+  /**
+   * The angle past which the robot can assume it is 
+   * weighing a light can.
+   */
+  public static final int LIGHT_ANGLE = 165;
+  /**
+   * The time between samples of the claw tachometer
+   * while weighing, in ms
+   */
+  private static final int WEIGH_PERIOD = 10;
+  /**
+   * The number of tachometer samples the claw velocity is
+   * measured over while weighing (100 ms)
+   */
+  private static final int VEL_WINDOW = 10;
+  /**
+   * The minimum time spent weighing before the velocity is trusted,
+   * giving the claw time to take up the slack, in ms
+   */
+  private static final int MIN_WEIGH_TIME = 150;
+  /**
+   * The claw velocity (deg/s) at or under which the can is surely heavy
+   */
+  private static final double STALL_SPEED = 15;
+  /**
+   * The claw velocity (deg/s) at or over which the can is surely light
+   */
+  private static final double LIGHT_SPEED = 90;
+  /**
+   * The confidence needed to stop weighing early
+   */
+  private static final double WEIGHT_CONFIDENCE = 0.9;
+  /**
+   * Tachometer samples taken while weighing
+   */
+  private int[] weighTacho = new int[VEL_WINDOW + 1];
+  /**
+   * The times the weighing samples were taken at, in ns
+   */
+  private long[] weighTimes = new long[VEL_WINDOW + 1];
+  /**
+   * The confidence of the last weighing, from 0.5 (a guess) to 1
+   */
+  private double weightConfidence = 0;
+
+  /*
+   * Jam detection variables:
+   */
+  /**
+   * The time between samples of the claw tachometer
+   * while closing, in ms
+   */
+  private static final int CLOSE_PERIOD = 10;
+  /**
+   * The number of tachometer samples the claw velocity is
+   * measured over while closing (100 ms)
+   */
+  private static final int STALL_WINDOW = 10;
+  /**
+   * The claw velocity (deg/s) under which the claw is
+   * considered stalled before it is closed
+   */
+  private static final double JAM_SPEED = 20;
+  /**
+   * The power the claw is raised to after its first stall
+   */
+  private static final int JAM_POWER = 45;
+  /**
+   * The distance backwards to move before closing again
+   * when the claw stays jammed at JAM_POWER
+   */
+  private static final int JAM_BACKOFF = 5;
+  /**
+   * Tachometer samples taken while closing
+   */
+  private int[] closeTacho = new int[STALL_WINDOW + 1];
+  /**
+   * The times the closing samples were taken at, in ns
+   */
+  private long[] closeTimes = new long[STALL_WINDOW + 1];
+  /**
+   * The number of stalls detected while closing
+   */
+  private int jamCount = 0;
+  /**
+   * The number of times the claw had to be opened and closed again
+   */
+  private int retryCount = 0;
+  /**
+   * The number of calls to close()
+   */
+  private int closeCount = 0;
+  /**
+   * The longest time taken by close(), in ms
+   */
+  private long worstCloseTime = 0;
+  
+  /**
+   * Creates a claw
+   */
+  public Claw() {
+    if (!calibrated) {
+      calibrate();
+    }
+  }
+  
+  /**
+   * Calibrates the claw's tachometer by
+   * moving the claw all the way open (to a known stop point)
+   */
+  public void calibrate() {
+    CLAW_MOTOR.setPower(CLAW_POWER);
+    CLAW_MOTOR.backward();
+    sleep(2000);
+    CLAW_MOTOR.setPower(0);
+    CLAW_MOTOR.resetTachoCount();
+    calibrated = true;
+    closed = false;
+  }
+
+  /**
+   * Assuming a can is being currently held,
+   * classifies the can based on mass and color
+   * and beeps according to the final demo specs.
+   * If FinalDemo.SPIN_WEIGH_ON, the weight measured while spinning
+   * the can is used if it is confident enough, and the can is only
+   * weighed with the claw otherwise.
+   */
+  public void classifyAndBeep() {
+    CanColor c = getColor();
+    boolean heavy;
+    if (FinalDemo.SPIN_WEIGH_ON && CLASSIFIER.getWeightConfidence() >= WEIGHT_CONFIDENCE) {
+      heavy = CLASSIFIER.isHeavy();
+    } else {
+      heavy = isHeavy();
+      close();
+    }
+    int time = heavy ? 1000 : 500;
+    int numBeeps;
+    FinalDemo.SOUND.setVolume(100);
+    switch (c) {
+      case RED:
+        numBeeps = 4;
+        break;
+      case YELLOW:
+        numBeeps = 3;
+        break;
+      case GREEN:
+        numBeeps = 2;
+        break;
+      case BLUE:
+        numBeeps = 1;
+        break;
+      default: 
+        numBeeps = 0;
+    }
+    for (int i = 0; i < numBeeps; i++) {
+        FinalDemo.SOUND.playTone(440, time);
+        FinalDemo.SOUND.pause(100);
+    }
+    FinalDemo.SOUND.setVolume(0);
+  }
+  /**
+   * Closes the claw. If a jam is detected,
+   * the claw will first ramp up the power,
+   * and if the jam persists, the robot will open
+   * the claw and move back before trying again.
+   * This is to avoid the case where two cans are caught,
+   * preventing propper functioning of the claw.
+   * A jam is detected as soon as the claw velocity
+   * drops under JAM_SPEED for STALL_WINDOW samples.
+   * The robot is moved from the calling thread.
+   */
+  public synchronized void close() {
+    long start = System.currentTimeMillis();
+    while (!tryClose()) {
+      retryCount++;
+      moveBackwards(JAM_BACKOFF);
+    }
+    closeCount++;
+    worstCloseTime = Math.max(worstCloseTime, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Tries to close the claw once, raising the power to JAM_POWER after
+   * the first stall. Only moves the claw, never the robot.
+   * @return True if the claw closed, false if it stayed jammed and was opened again
+   */
+  private synchronized boolean tryClose() {
+    CLAW_MOTOR.setPower(CLAW_POWER);
+    CLAW_MOTOR.forward();
+    boolean escalated = false;
+    int n = 0;
+    int tacho;
+    while ((tacho = CLAW_MOTOR.getTachoCount()) < (CLOSED_ANGLE + LIGHT_ANGLE)/2.0) {
+      closeTacho[n % closeTacho.length] = tacho;
+      closeTimes[n % closeTimes.length] = System.nanoTime();
+      n++;
+      if (n > STALL_WINDOW && velocity(closeTacho, closeTimes, n, STALL_WINDOW) < JAM_SPEED) {
+        jamCount++;
+        if (escalated) {
+          open();
+          return false;
+        }
+        CLAW_MOTOR.setPower(JAM_POWER);
+        escalated = true;
+        n = 0;
+      }
+      sleep(CLOSE_PERIOD);
+    }
+    CLAW_MOTOR.setPower(CLAW_POWER);
+    closed = true;
+    return true;
+  }
+
+  /**
+   * Finds the claw velocity from a history of tachometer samples, over the
+   * time that actually passed between them rather than the time slept
+   * @param history The tachometer samples, used as a circular buffer
+   * @param times The time each sample was taken at, in ns, used the same way
+   * @param n The number of samples recorded so far (more than window)
+   * @param window The number of sample periods to measure the velocity over
+   * @return The claw velocity over the last window samples, in deg/s
+   */
+  private static double velocity(int[] history, long[] times, int n, int window) {
+    int last = (n - 1) % history.length;
+    int first = (n - 1 - window) % history.length;
+    return (history[last] - history[first]) * 1e9 / Math.max(1, times[last] - times[first]);
+  }
+
+  /**
+   * Returns the number of stalls detected while closing the claw
+   * @return The number of jams seen since the last resetJamStats()
+   */
+  public int getJamCount() {
+    return jamCount;
+  }
+
+  /**
+   * Returns the number of times the claw had to back off
+   * and close again after a persistent jam
+   * @return The number of retries since the last resetJamStats()
+   */
+  public int getRetryCount() {
+    return retryCount;
+  }
+
+  /**
+   * Returns the number of times the claw was closed
+   * @return The number of calls to close() since the last resetJamStats()
+   */
+  public int getCloseCount() {
+    return closeCount;
+  }
+
+  /**
+   * Returns the longest time taken to close the claw
+   * @return The worst case close() time since the last resetJamStats(), in ms
+   */
+  public long getWorstCloseTime() {
+    return worstCloseTime;
+  }
+
+  /**
+   * Resets the jam statistics
+   */
+  public synchronized void resetJamStats() {
+    jamCount = 0;
+    retryCount = 0;
+    closeCount = 0;
+    worstCloseTime = 0;
+  }
+  /**
+   * Moves the robot backwards (straight) a certain distance, using the odometer.
+   * @param dist
+   */
+  private static void moveBackwards(double dist) {
+    FinalDemo.NAV.setSpeeds(MOTOR_SPEED,MOTOR_SPEED);
+    double[] start = FinalDemo.NAV.getOdo().getXYT();
+
+    FinalDemo.LEFT_MOTOR.backward();
+    FinalDemo.RIGHT_MOTOR.backward();
+
+    while (NavigationController.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
+      try {
+        Thread.sleep(30);
+      } catch (InterruptedException e) {
+      }
+    }
+    FinalDemo.NAV.setSpeeds(0, 0);
+  }
+  
+  /**
+   * Opens the claw
+   */
+  public synchronized void open() {
+    closed = false;
+    CLAW_MOTOR.setPower(CLAW_POWER);
+    CLAW_MOTOR.backward();
+    while (CLAW_MOTOR.getTachoCount() > 3) {
+      sleep(30);
+    }
+    CLAW_MOTOR.setPower(0);
+    CLAW_MOTOR.stop();
+  }
+
+  /**
+   * Opens the claw in the background, as with open()
+   * @return A handle that can be waited on until the claw is open
+   */
+  public ClawAction openAsync() {
+    return new ClawAction(ACTUATOR.submit(new Runnable() {
+      public void run() {
+        open();
+      }
+    }));
+  }
+
+  /**
+   * Returns whether or not a can is in the claw. The claw is closed first
+   * if it is not, since the background is learned with it closed.
+   * @return True if a can is held in the claw
+   */
+  public synchronized boolean hasCan() {
+    if (!closed) {
+      close();
+    }
+    return CLASSIFIER.canDetected();
+  }
+  
+  /**
+   * Gets the color of the can currently held by 
+   * the claw. If no can is detected, returns CanColor.UNKONWN
+   * @return The color of the can held in the claw
+   */
+  public CanColor getColor() {
+    return CLASSIFIER.classify();
+  }
+
+  /**
+   * Checks if the can in the claw is heavy or not
+   * by trying to pull the can inwards. When this method is called,
+   * a can must be held in the claw so it is at a known position.
+   * Reuqires the robot to have clearance of distance BACK_DISTANCE
+   * directly behind it. The can is light if the claw passes LIGHT_ANGLE
+   * within WEIGHT_TIME, or, if FinalDemo.CLAW_VELOCITY_WEIGH_ON, as decided
+   * by weigh().
+   * @param nav The navigation used to move the robot for this routine
+   * @return true for heavy, else false
+   */
+  public boolean isHeavy() {
+    open();
+    moveForward(BACK_DISTANCE);
+    CLAW_MOTOR.setPower(THRESH_POWER);
+    CLAW_MOTOR.forward();
+    if (FinalDemo.CLAW_VELOCITY_WEIGH_ON) {
+      return weigh();
+    }
+    sleep(WEIGHT_TIME);
+    weightConfidence = 1;
+    return CLAW_MOTOR.getTachoCount() < LIGHT_ANGLE;
+  }
+
+  /**
+   * Watches the claw pull the can in at THRESH_POWER and decides whether
+   * the can is heavy from how fast the claw moves. A light can is pulled
+   * in quickly, while a heavy one barely moves, so the answer is usually 
+   * known within a few hundred milliseconds. If the velocity stays ambiguous,
+   * falls back to checking the claw angle after WEIGHT_TIME.
+   * STALL_SPEED and LIGHT_SPEED are first estimates, and the claw may
+   * still be closing freely on the can after MIN_WEIGH_TIME, so this is
+   * only used with FinalDemo.CLAW_VELOCITY_WEIGH_ON.
+   * @return true for heavy, else false
+   */
+  private boolean weigh() {
+    long start = System.currentTimeMillis();
+    int n = 0;
+    double mid = (STALL_SPEED + LIGHT_SPEED) / 2;
+    double halfRange = (LIGHT_SPEED - STALL_SPEED) / 2;
+    while (true) {
+      int tacho = CLAW_MOTOR.getTachoCount();
+      weighTacho[n % weighTacho.length] = tacho;
+      weighTimes[n % weighTimes.length] = System.nanoTime();
+      n++;
+      long elapsed = System.currentTimeMillis() - start;
+      if (tacho >= LIGHT_ANGLE) {
+        weightConfidence = 1;
+        return false;
+      }
+      if (elapsed >= WEIGHT_TIME) {
+        weightConfidence = 0.5;
+        return true;
+      }
+      if (elapsed >= MIN_WEIGH_TIME && n > VEL_WINDOW) {
+        double vel = velocity(weighTacho, weighTimes, n, VEL_WINDOW);
+        double confidence = 0.5 + 0.5 * Math.min(1, Math.abs(vel - mid) / halfRange);
+        if (confidence >= WEIGHT_CONFIDENCE) {
+          weightConfidence = confidence;
+          return vel < mid;
+        }
+      }
+      sleep(WEIGH_PERIOD);
+    }
+  }
+
+  /**
+   * Returns how sure the last call to isHeavy() was of its answer
+   * @return The confidence of the last weighing, from 0.5 (a guess) to 1
+   */
+  public double getWeightConfidence() {
+    return weightConfidence;
+  }
+  
+  /**
+   * Moves the robot forwards (straight) a certain distance, using the odometer.
+   * 
+   * @param dist
+   */
+  private void moveForward(double dist) {
+    FinalDemo.NAV.setSpeeds(MOTOR_SPEED,MOTOR_SPEED);
+    double[] start = FinalDemo.NAV.getOdo().getXYT();
+
+    FinalDemo.LEFT_MOTOR.forward();
+    FinalDemo.RIGHT_MOTOR.forward();
+
+    while (NavigationController.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
+      sleep(30);
+    }
+    FinalDemo.NAV.setSpeeds(0, 0);
+  }
+  
+  /**
+   * Waits for a certain period of time 
+   * @param amt The amount of time to wait in milliseconds
+   */
+  public void sleep(int amt) {
+    try {
+      Thread.sleep(amt);
+    } catch (InterruptedException e) {
+      
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package ca.mcgill.ecse211.canhandling;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A handle on a claw movement running in the background,
+ * as returned by Claw.openAsync().
+ * @author jacob
+ */
+public class ClawAction {
+  private Future<?> future;
+
+  /**
+   * Creates a handle on a claw movement
+   * @param future The task moving the claw
+   */
+  ClawAction(Future<?> future) {
+    this.future = future;
+  }
+
+  /**
+   * Returns whether or not the claw has finished moving
+   * @return True if the movement is over
+   */
+  public boolean isDone() {
+    return future.isDone();
+  }
+
+  /**
+   * Blocks until the claw has finished moving
+   */
+  public void waitUntilDone() {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+    } catch (ExecutionException e) {
+      e.printStackTrace();
+    }
+  }
+}
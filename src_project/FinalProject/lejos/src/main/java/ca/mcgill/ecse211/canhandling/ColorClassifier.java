@@ -0,0 +1,319 @@
+package ca.mcgill.ecse211.canhandling;
+
+import ca.mcgill.ecse211.demo.FinalDemo;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
+
+/**
+ * This is a routine that can be used to identify the color of a soda can
+ * located in the claw of the robot
+ * @author group 6
+ */
+public class ColorClassifier {
+  /**
+   * The speed to spin the can, in deg/sec of the
+   * can spinning motor
+   */
+  public static final int SCAN_SPD = 180;
+  /**
+   * Time to wait between samples
+   */
+  private static final int SLEEP_TIME = 20;
+  /**
+   * The most the can is spun when classifying, in degrees of the
+   * can spinning motor, if the classifier never becomes confident
+   */
+  private static final int MAX_SCAN_ANGLE = 360*3;
+  /**
+   * The color model file loaded at startup, as written by
+   * tools.ColorCalibrator. If there is no such file, the
+   * default model is used.
+   */
+  public static final String MODEL_FILE = "colors.model";
+  /**
+   * The distance from the background, in standard deviations, under
+   * which a sample is considered to be the background
+   */
+  private static final double BACKGROUND_DIST = 4;
+  /**
+   * The number of samples averaged to decide whether or not a can is present
+   */
+  private static final int PRESENCE_SAMPLES = 5;
+  /**
+   * Time between background samples while the claw is empty, in ms
+   */
+  private static final int BACKGROUND_PERIOD = 50;
+  /**
+   * The rotation of the can spinning motor between samples, in degrees
+   */
+  private static final int ANGLE_STEP = 4;
+  /**
+   * The labels of the mean and standard deviation
+   * of each channel, as shown by getData()
+   */
+  private static final String[] CHANNEL_LABELS = {"r: ", "g: ", "b: "};
+  private CanColor colorLabel;
+  private ColorModel model;
+  private SequentialClassifier sprt;
+  private SpinWeigher weigher;
+  private BackgroundModel background;
+  private volatile boolean learning;
+  private Thread learner;
+  private Object sensorLock;
+  private ColorScanner scanner;
+
+
+  /**
+   * Creates a ColorClassifier
+   */
+  public ColorClassifier() {
+    colorLabel = CanColor.UNKNOWN;
+    model = ColorModel.loadOrDefault(MODEL_FILE);
+    sprt = new SequentialClassifier(model);
+    weigher = new SpinWeigher(SCAN_SPD);
+    background = new BackgroundModel();
+    learning = false;
+    sensorLock = new Object();
+    scanner = new ColorScanner(FinalDemo.COLOR_SENSOR, FinalDemo.CAN_MOTOR, sensorLock);
+  }
+
+  /**
+   * Changes the color model used to classify cans
+   * @param model The new color model
+   */
+  public void setModel(ColorModel model) {
+    this.model = model;
+    sprt.setModel(model);
+  }
+
+  /**
+   * Returns the color model used to classify cans
+   * @return The color model
+   */
+  public ColorModel getModel() {
+    return model;
+  }
+  
+  /**
+   * Starts learning the background seen by the color sensor in the
+   * background, until stopBackgroundLearning() is called.
+   * Must only be called when the claw is closed and empty.
+   */
+  public synchronized void startBackgroundLearning() {
+    learning = true;
+    if (learner == null) {
+      learner = new Thread() {
+        public void run() {
+          float[] bgSample = new float[FinalDemo.COLOR_SENSOR.sampleSize()];
+          while (true) {
+            synchronized (sensorLock) {
+              if (learning) {
+                FinalDemo.COLOR_SENSOR.fetchSample(bgSample, 0);
+                background.learn(bgSample);
+              }
+            }
+            try {
+              Thread.sleep(BACKGROUND_PERIOD);
+            } catch (InterruptedException e) {
+            }
+          }
+        }
+      };
+      learner.setDaemon(true);
+      learner.setPriority(Thread.MIN_PRIORITY);
+      learner.start();
+    }
+  }
+
+  /**
+   * Stops learning the background. Must be called before a can
+   * is put in front of the color sensor.
+   */
+  public void stopBackgroundLearning() {
+    synchronized (sensorLock) {
+      learning = false;
+    }
+  }
+
+  /**
+   * Returns true if a can is seen, else false.
+   * Must be called with the claw closed, as it is when the background
+   * is learned. Once the background has been learned, the mean of
+   * PRESENCE_SAMPLES samples is compared to it, so that the noise of
+   * a single sample cannot decide.
+   * @return true if a can is seen, else false
+   */
+  public boolean canDetected() {
+    if (background.isReady()) {
+      ColorStatistics stats = new ColorStatistics();
+      scanner.sample(PRESENCE_SAMPLES, SLEEP_TIME, stats);
+      float[] mean = new float[3];
+      for (int i = 0; i < 3; i++) {
+        mean[i] = (float) stats.getMean(i);
+      }
+      return background.distance(mean) >= BACKGROUND_DIST;
+    }
+    ColorStatistics stats = new ColorStatistics();
+    scanner.sample(10, SLEEP_TIME, canOnly(stats));
+    return stats.getCount() > 0;
+  }
+
+  /**
+   * Uses the light sensor to calculate the 
+   * color of the can. The can is spun until the classifier
+   * is confident of its color, or until MAX_SCAN_ANGLE is reached.
+   * If FinalDemo.SPIN_WEIGH_ON, the can is also weighed from the same
+   * spin, see isHeavy().
+   * @return The color of the can. CanColor.UNKONWN if no can is detected
+   */
+  public CanColor classify() {
+    sprt.reset();
+    weigher.reset();
+    final ColorSampleListener colors = canOnly(sprt);
+    if (FinalDemo.SPIN_WEIGH_ON) {
+      scanner.spin(SCAN_SPD, MAX_SCAN_ANGLE, ANGLE_STEP, new ColorSampleListener() {
+        private boolean classifying = true;
+        public boolean sampleTaken(float[] rgb, int angle) {
+          if (classifying) {
+            classifying = colors.sampleTaken(rgb, angle);
+          }
+          boolean weighing = weigher.sampleTaken(rgb, angle);
+          return classifying || weighing;
+        }
+      });
+    } else {
+      scanner.spin(SCAN_SPD, MAX_SCAN_ANGLE, ANGLE_STEP, colors);
+    }
+
+    if (sprt.getNumSamples() == 0) {
+      FinalDemo.DISPLAY.clear();
+      FinalDemo.DISPLAY.setText(0, "NO CAN");
+      return CanColor.UNKNOWN;
+    }
+    colorLabel = sprt.getBest();
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.CLASSIFIER, colorLabel.ordinal(),
+        sprt.getConfidence());
+    FinalDemo.DISPLAY.setText(4, colorLabel.toString());
+    FinalDemo.DISPLAY.setValue(5, "p: ", sprt.getConfidence(), 3);
+    FinalDemo.DISPLAY.setValue(6, "n: ", sprt.getNumSamples(), 0);
+
+    FinalDemo.CAN_MOTOR.flt();
+    
+    return colorLabel;
+  }
+  
+  /**
+   * Prints out information of the can
+   * used for testing. This method can be modified
+   * to find the mean, std dev, and other stats
+   * about a can
+   */
+  public void getData() {
+    getData(null, CanColor.UNKNOWN);
+  }
+
+  /**
+   * Prints out information of the can, as with getData(),
+   * and records every sample taken into a trainer, so that
+   * a ColorModel can be fit to the recorded cans.
+   * @param trainer The trainer to record into, or null to only print
+   * @param label The true color of the can in the claw
+   */
+  public void getData(final ColorModel.Trainer trainer, final CanColor label) {
+    ColorStatistics stats = new ColorStatistics();
+    if (trainer == null) {
+      scanner.spin(SCAN_SPD, 360*3, ANGLE_STEP, canOnly(stats));
+    } else {
+      scanner.spin(SCAN_SPD, 360*3, ANGLE_STEP, canOnly(stats), 
+          canOnly(new ColorSampleListener() {
+            public boolean sampleTaken(float[] rgb, int angle) {
+              trainer.add(label, rgb[0], rgb[1], rgb[2]);
+              return true;
+            }
+          }));
+    }
+
+    if (stats.getCount() == 0) {
+      FinalDemo.DISPLAY.clear();
+      FinalDemo.DISPLAY.setText(1, "NO CAN");
+      return;
+    }
+    for (int i = 0; i < 3; i++) {
+      FinalDemo.DISPLAY.setValues(1+i, CHANNEL_LABELS[i],
+          stats.getMean(i) * 1000, stats.getStdDev(i) * 1000, 0);
+    }
+    colorLabel = model.classify(stats.getMean(0), stats.getMean(1), stats.getMean(2));
+    FinalDemo.DISPLAY.setText(0, colorLabel.toString());
+  }
+
+
+  /**
+   * Returns whether or not the can was heavy, as measured
+   * from the can spinning motor during the last classify()
+   * @return True if the can is heavy
+   */
+  public boolean isHeavy() {
+    return weigher.isHeavy();
+  }
+
+  /**
+   * Returns how sure the last classify() was of isHeavy()
+   * @return The confidence, from 0.5 (a guess) to 1,
+   * or 0 if the can was not weighed
+   */
+  public double getWeightConfidence() {
+    return weigher.getConfidence();
+  }
+
+  /**
+   * Returns the identified color of the can
+   * 
+   * @return the color of the can being identified
+   */
+  public CanColor getColor() {
+    return colorLabel;
+  }
+
+  /**
+   * Tells whether or not a sample is of the empty claw rather than a can.
+   * Uses the learned background if it is ready, and isWhite() otherwise.
+   * 
+   * @param color an arry of 3 floats, r, g, and b each 0-1
+   * @return true for the background, false for a can
+   */
+  private boolean isBackground(float[] color) {
+    if (background.isReady()) {
+      return background.distance(color) < BACKGROUND_DIST;
+    }
+    return isWhite(color);
+  }
+
+  /**
+   * Wraps a listener so that it is only given samples of a can,
+   * and not of the background
+   * @param l The listener to wrap
+   * @return A listener that passes samples of a can on to l
+   */
+  private ColorSampleListener canOnly(final ColorSampleListener l) {
+    return new ColorSampleListener() {
+      public boolean sampleTaken(float[] rgb, int angle) {
+        return isBackground(rgb) || l.sampleTaken(rgb, angle);
+      }
+    };
+  }
+
+  /**
+   * Tells whether or not a certain color is white or not
+   * 
+   * @param color an arry of 3 floats, r, g, and b each 0-1
+   * @return true for white, false for non-white (ie, a color)
+   */
+  private static boolean isWhite(float[] color) {
+    float min = color[0];
+    float max = color[0];
+    for (float f : color) {
+      min = min > f ? f : min;
+      max = max < f ? f : max;
+    }
+    return (max - min < .015);
+  }
+}
@@ -0,0 +1,129 @@
+package ca.mcgill.ecse211.canhandling;
+
+import lejos.robotics.RegulatedMotor;
+import lejos.robotics.SampleProvider;
+
+/**
+ * Takes color samples of the can in the claw and hands them to a set of
+ * listeners, such as a classifier, a statistics recorder or a presence
+ * detector. All sampling of the can goes through here, using one sample 
+ * buffer for every scan.
+ * 
+ * When the can is spun, samples are taken every few degrees of the can
+ * spinning motor rather than every few milliseconds, so each scan sees the
+ * same points of the can no matter how the motor speed varies.
+ * @author group 6
+ */
+public class ColorScanner {
+  /**
+   * The shortest time between polls of the motor's tachometer, in ms
+   */
+  private static final int MIN_POLL_TIME = 5;
+
+  private SampleProvider sensor;
+  private RegulatedMotor motor;
+  private Object sensorLock;
+  private float[] sample;
+
+  /**
+   * Creates a ColorScanner
+   * @param sensor The color sensor, in RGB mode
+   * @param motor The motor that spins the can
+   * @param sensorLock The lock held while the sensor is polled
+   */
+  public ColorScanner(SampleProvider sensor, RegulatedMotor motor, Object sensorLock) {
+    this.sensor = sensor;
+    this.motor = motor;
+    this.sensorLock = sensorLock;
+    sample = new float[sensor.sampleSize()];
+  }
+
+  /**
+   * Spins the can, taking a sample every angleStep degrees, until
+   * maxAngle is reached or a listener asks to stop.
+   * @param speed The speed to spin the can at, in deg/sec
+   * @param maxAngle The most the can is spun, in degrees of the motor
+   * @param angleStep The rotation between samples, in degrees of the motor
+   * @param listeners The listeners given each sample
+   * @return The number of samples taken
+   */
+  public int spin(int speed, int maxAngle, int angleStep, ColorSampleListener... listeners) {
+    motor.resetTachoCount();
+    motor.setSpeed(speed);
+    motor.backward();
+
+    int numSamples = 0;
+    int nextAngle = 0;
+    int angle;
+    boolean going = true;
+    while (going && (angle = Math.abs(motor.getTachoCount())) < maxAngle) {
+      if (angle >= nextAngle) {
+        fetch();
+        numSamples++;
+        nextAngle = angle + angleStep;
+        going = dispatch(angle, listeners);
+      } else {
+        //Sleep for as long as the motor takes to reach the next angle
+        sleep(Math.max(MIN_POLL_TIME, (nextAngle - angle) * 1000 / Math.max(speed, 1)));
+      }
+    }
+    motor.setSpeed(0);
+    motor.stop();
+    return numSamples;
+  }
+
+  /**
+   * Takes up to n samples without spinning the can, until a listener
+   * asks to stop.
+   * @param n The most samples to take
+   * @param period The time between samples, in ms
+   * @param listeners The listeners given each sample
+   * @return The number of samples taken
+   */
+  public int sample(int n, int period, ColorSampleListener... listeners) {
+    for (int i = 0; i < n; i++) {
+      if (i > 0) {
+        sleep(period);
+      }
+      fetch();
+      if (!dispatch(0, listeners)) {
+        return i + 1;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Hands the current sample to every listener
+   * @param angle The angle the sample was taken at
+   * @param listeners The listeners to notify
+   * @return False if any listener asked to stop
+   */
+  private boolean dispatch(int angle, ColorSampleListener[] listeners) {
+    boolean going = true;
+    for (ColorSampleListener l : listeners) {
+      going &= l.sampleTaken(sample, angle);
+    }
+    return going;
+  }
+
+  /**
+   * Polls the color sensor into the sample buffer
+   */
+  private void fetch() {
+    synchronized (sensorLock) {
+      sensor.fetchSample(sample, 0);
+    }
+  }
+
+  /**
+   * Sleeps for a given amount of time
+   * @param amt The time to sleep, in ms
+   */
+  private static void sleep(int amt) {
+    try {
+      Thread.sleep(amt);
+    } catch (InterruptedException e) {
+    }
+  }
+}
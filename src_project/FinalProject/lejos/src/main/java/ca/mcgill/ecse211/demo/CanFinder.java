@@ -1,11 +1,18 @@
 package ca.mcgill.ecse211.demo;
 
 import java.awt.geom.Point2D;
+import ca.mcgill.ecse211.canhandling.Claw;
+import ca.mcgill.ecse211.canhandling.ClawAction;
+import ca.mcgill.ecse211.localization.HeadingHistory;
 import ca.mcgill.ecse211.localization.LightLocalizer;
-import ca.mcgill.ecse211.navigation.Navigation;
+import ca.mcgill.ecse211.navigation.NavigationController;
 import ca.mcgill.ecse211.odometer.Odometer;
 import ca.mcgill.ecse211.odometer.OdometerExceptions;
+import ca.mcgill.ecse211.odometer.Transform;
+import ca.mcgill.ecse211.sensors.UltrasonicPoller;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
 import ca.mcgill.ecse211.wifi.GameSettings;
+import ca.mcgill.ecse211.wifi.Rect;
 
 /**
  * Gives the robot the ability to search for cans
@@ -18,6 +25,11 @@ public class CanFinder implements Runnable {
   private Odometer odo;
   private Point nextCan;
   private State state;
+  private UltrasonicPoller us;
+  private ScanProfile profile;
+  private HeadingHistory headings;
+  private final Transform approach = new Transform();
+  private final double[] stop = new double[2];
   public static final float GRID_WIDTH = FinalDemo.GRID_WIDTH;
   /**
    * The speed to turn when scanning for cans
@@ -32,9 +44,32 @@ public class CanFinder implements Runnable {
    */
   public static final int TURN_SPEED = 100;
   /**
-   * The radius of a can
+   * The number of US readings the median is taken over while scanning.
+   * Kept small since the robot is turning while it reads.
    */
-  public static final double CAN_RAD = 5;
+  public static final int US_WINDOW = 3;
+  /**
+   * The jump in US reading (cm) considered to be a spurious echo
+   */
+  public static final float US_SPIKE_THRESH = 40;
+  /**
+   * The number of headings remembered while scanning, enough to reach
+   * back past the median of the ultrasonic filter
+   */
+  public static final int HISTORY_SIZE = 8;
+
+  /*
+   * States recorded to telemetry on the CAN_FINDER channel:
+   */
+  /**
+   * A scan starts, with the search zone's LLx, LLy, URx and URy as values
+   */
+  public static final int SCAN = 0;
+  /**
+   * A scan ended, with the can's x and y (NaN if none was found)
+   * and the robot's x and y as values
+   */
+  public static final int SCAN_DONE = 1;
 
   /**
    * Creates a can finder.
@@ -43,6 +78,9 @@ public class CanFinder implements Runnable {
   public CanFinder() {
     nextCan = null;
     state = State.INIT;
+    us = new UltrasonicPoller(FinalDemo.US_FRONT, US_WINDOW, US_SPIKE_THRESH);
+    profile = new ScanProfile();
+    headings = new HeadingHistory(HISTORY_SIZE);
     try {
       odo = Odometer.getOdometer();
     } catch (OdometerExceptions e) {
@@ -96,59 +134,52 @@ public class CanFinder implements Runnable {
   /**
    * Finds the next can to grab using the US sensor
    * Must be called once the robot is in the search zone.
+   * 
+   * The robot sweeps across the search angles recording a profile of
+   * (angle, distance) pairs. Each object shows up in the profile as a run of
+   * close readings between a falling edge and a rising edge. The bearing of
+   * the object's centre is the midpoint of its two edges, and its range is
+   * taken from the readings around that centre, so the can's position is
+   * known well enough to approach it directly. The objects are picked
+   * out of the profile by ScanProfile. Each filtered distance is paired
+   * with the heading the robot had when the readings of its median were
+   * taken, or both edges would lag in the direction of the turn.
    */
   public void search() {
     FinalDemo.NAV.turnTo(GameSettings.searchAngles[0]);
     FinalDemo.NAV.setSpeeds(SCAN_SPEED, -SCAN_SPEED);
-    double minDist = Double.MAX_VALUE;
-    double[] minPt = new double[2];
-    double minT = -1;
+    Rect zone = GameSettings.searchZone;
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.CAN_FINDER, SCAN, zone.LLx, zone.LLy,
+        zone.URx, zone.URy);
+    profile.clear();
+    us.clear();
+    headings.clear();
     while (odo.getXYT()[2] < GameSettings.searchAngles[1] 
-        && odo.getXYT()[2] + 2 >= GameSettings.searchAngles[0]) {
+        && odo.getXYT()[2] + 2 >= GameSettings.searchAngles[0]
+        && !profile.isFull()) {
       float dist = readUS();
-      double t = (odo.getXYT()[2] - Math.toDegrees(CAN_RAD/dist) + 360) % 360;
-      double[] pt = pointFromDist(dist, t);
-      if (GameSettings.searchZone.contains(pt)) {
-        if (dist < minDist) {
-          minDist = dist;
-          minPt = pt;
-          minT = t;
-        }
-      }
+      double[] xyt = odo.getXYT();
+      headings.add(us.getTimestamp(), xyt[2]);
+      profile.add(dist, headings.headingAt(us.getMedianTimestamp()));
+      FinalDemo.TELEMETRY.sensor(TelemetryRecorder.SCAN_US, dist, us.getRaw(), xyt);
       sleep();
     }
-    if (minT == - 1) {
-      nextCan = null;
-    } else {
-      nextCan = new Point((float)minPt[0], (float)minPt[1]);
-    }
-  }
-  
-  /**
-   * Given an angle and a distance, finds a point that angle and
-   * distance away from the robot of form {x,y}
-   * @param d The distance from the robot in cm
-   * @param t The angle away from the robot of the point in degrees
-   * @return The point specified by d, t, and the robot's position, as {x,y} in cm
-   */
-  private double[] pointFromDist(double d, double t) {
-    double[] pt = odo.getXYT();
-    pt[0] += d * Math.sin(Math.toRadians(t));
-    pt[1] += d * Math.cos(Math.toRadians(t));
-    return pt;
+    FinalDemo.NAV.setSpeeds(0, 0);
+    double[] xyt = odo.getXYT();
+    double[] can = profile.findCan(xyt[0], xyt[1], zone);
+    nextCan = can == null ? null : new Point((float) can[0], (float) can[1]);
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.CAN_FINDER, SCAN_DONE,
+        can == null ? Double.NaN : can[0], can == null ? Double.NaN : can[1], xyt[0], xyt[1]);
   }
   
   /**
    * Gets the point to navigate to so as to be a comfortable 
    * distance away from the can we are going to grab.
-   * @return The point to navigate to in form {x,y}
+   * @return The point to navigate to in form {x,y}, reused by the next call
    */
   private double[] canStoppingPoint() {
-    double[] pt = {nextCan.x, nextCan.y};
     double t = FinalDemo.NAV.angleTo(nextCan.x, nextCan.y);
-    pt[0] -=  CAN_STOP_DIST * Math.sin(Math.toRadians(t));
-    pt[1] -= CAN_STOP_DIST * Math.cos(Math.toRadians(t));
-    return pt;
+    return approach.set(nextCan.x, nextCan.y, t).apply(0, -CAN_STOP_DIST, stop);
   }
   
   
@@ -253,16 +284,24 @@ public class CanFinder implements Runnable {
   public boolean grabNextCan() {
     if (nextCan != null) {
       double[] stop = canStoppingPoint();
+      Claw.CLASSIFIER.stopBackgroundLearning();
+      //Open the claw while driving up to the can
+      ClawAction opening = FinalDemo.CLAW.openAsync();
       FinalDemo.NAV.travelTo(stop[0], stop[1]);
       FinalDemo.NAV.waitUntilDone();
-      FinalDemo.CLAW.open();
       FinalDemo.NAV.turnTo(FinalDemo.NAV.angleTo(nextCan.x, nextCan.y) + 180);
+      opening.waitUntilDone();
       moveBackward(10);
+      //The can is only looked for once the claw is closed, as the background was learned
       FinalDemo.CLAW.close();
     } 
     //We no longer know what the next can is, because we just picked up the last one
     nextCan = null;
-    return FinalDemo.CLAW.hasCan();
+    boolean hasCan = FinalDemo.CLAW.hasCan();
+    if (!hasCan) {
+      Claw.CLASSIFIER.startBackgroundLearning();
+    }
+    return hasCan;
   }
   
   /**
@@ -313,17 +352,12 @@ public class CanFinder implements Runnable {
   }
   
   /**
-   * Polls the ultrasonic sensor and returns the result
+   * Polls the ultrasonic sensor and returns the filtered result
    * 
    * @return The US reading in cm
    */
   private float readUS() {
-    float[] usData = new float[FinalDemo.US_FRONT.sampleSize()];
-    FinalDemo.US_FRONT.fetchSample(usData, 0);
-    if (usData[0] == 255) {
-      return -1;
-    }
-    return usData[0] * 100f;
+    return us.fetch();
   }
   
   /**
@@ -338,7 +372,7 @@ public class CanFinder implements Runnable {
     FinalDemo.LEFT_MOTOR.backward();
     FinalDemo.RIGHT_MOTOR.backward();
 
-    while (Navigation.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
+    while (NavigationController.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
       try {
         Thread.sleep(30);
       } catch (InterruptedException e) {
@@ -359,7 +393,7 @@ public class CanFinder implements Runnable {
     FinalDemo.LEFT_MOTOR.forward();
     FinalDemo.RIGHT_MOTOR.forward();
 
-    while (Navigation.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
+    while (NavigationController.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
       try {
         Thread.sleep(30);
       } catch (InterruptedException e) {
@@ -389,5 +423,6 @@ public class CanFinder implements Runnable {
     moveForward(15);
     FinalDemo.CLAW.close();
     moveBackward(20);
+    Claw.CLASSIFIER.startBackgroundLearning();
   }
 }
@@ -1,17 +1,26 @@
 package ca.mcgill.ecse211.demo;
 
 import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.util.List;
 import ca.mcgill.ecse211.canhandling.Claw;
+import ca.mcgill.ecse211.feedback.Display;
+import ca.mcgill.ecse211.feedback.SoundQueue;
 import ca.mcgill.ecse211.localization.LightLocalizer;
 import ca.mcgill.ecse211.localization.UltrasonicLocalizer;
 import ca.mcgill.ecse211.localization.WallLocalizer;
 import ca.mcgill.ecse211.navigation.Navigation;
+import ca.mcgill.ecse211.odometer.LineCorrector;
 import ca.mcgill.ecse211.odometer.Odometer;
 import ca.mcgill.ecse211.odometer.OdometerExceptions;
 import ca.mcgill.ecse211.odometer.OdometryCorrection;
+import ca.mcgill.ecse211.telemetry.LoopMetrics;
+import ca.mcgill.ecse211.telemetry.MetricsRegistry;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
+import ca.mcgill.ecse211.telemetry.TelemetryServer;
+import ca.mcgill.ecse211.wifi.GameServer;
 import ca.mcgill.ecse211.wifi.GameSettings;
 import lejos.hardware.Button;
-import lejos.hardware.Sound;
 import lejos.hardware.ev3.LocalEV3;
 import lejos.hardware.lcd.TextLCD;
 import lejos.hardware.motor.EV3LargeRegulatedMotor;
@@ -36,6 +45,52 @@ public class FinalDemo {
    * Sets whether or not debug sounds should be played
    */
   public static final boolean DEBUG_ON = true;
+  /**
+   * Plays sounds without blocking the calling thread
+   */
+  public static final SoundQueue SOUND = new SoundQueue();
+  /**
+   * Sets whether or not telemetry from the control
+   * loops should be recorded to TELEMETRY_FILE
+   */
+  public static final boolean RECORD_ON = false;
+  /**
+   * The file telemetry is recorded to
+   */
+  public static final String TELEMETRY_FILE = "telemetry.bin";
+  /**
+   * Records telemetry from the control loops,
+   * once started
+   */
+  public static final TelemetryRecorder TELEMETRY = new TelemetryRecorder();
+  /**
+   * Sets whether or not telemetry should be streamed live to a
+   * workstation running tools.TelemetryViewer, on TelemetryServer.DEFAULT_PORT
+   */
+  public static final boolean STREAM_ON = false;
+  /**
+   * Sets whether or not ultrasonic localization fits the walls from one
+   * full turn, rather than turning to find an edge each way
+   */
+  public static final boolean US_SWEEP_ON = true;
+  /**
+   * Sets whether or not cans are weighed from the classification spin,
+   * rather than with the claw. Leave off until SpinWeigher's HEAVY_LAG
+   * and LAG_MARGIN have been measured on the robot.
+   */
+  public static final boolean SPIN_WEIGH_ON = false;
+  /**
+   * Sets whether or not the claw decides the weight of a can from how fast
+   * it pulls the can in, rather than from its angle after Claw.WEIGHT_TIME.
+   * Leave off until Claw's STALL_SPEED and LIGHT_SPEED have been measured
+   * on the robot.
+   */
+  public static final boolean CLAW_VELOCITY_WEIGH_ON = false;
+  /**
+   * Sets whether or not pressing enter shows the loop metrics, over
+   * whatever is on the LCD. For test runs only.
+   */
+  public static final boolean METRICS_BUTTON_ON = false;
   /**
    * The robot's left motor
    */
@@ -84,16 +139,6 @@ public class FinalDemo {
    * of the robot.
    */
   public static double TRACK = TRACK_WITHOUT_CAN;
-  /**
-   * The offset between the robot turning center and the line sensor in
-   * the Y direction, in cm. Note: magnitude only.
-   */
-  public static final double LINE_OFFSET_Y = 7;
-  /**
-   * The offset between the robot turning center and the line sensor in
-   * the X direction, in cm. Note: magnitude only.
-   */
-  public static final double LINE_OFFSET_X = 5.5;
   /**
    * The can classifier used by the program
    */
@@ -128,6 +173,11 @@ public class FinalDemo {
    * The LCD used to output during the robot's journey
    */
   public static final TextLCD LCD = LocalEV3.get().getTextLCD();
+  /**
+   * Draws telemetry to the LCD from its own thread.
+   * Control loops should write here rather than to the LCD.
+   */
+  public static final Display DISPLAY = new Display(LCD);
   /**
    * The Odometry correction system for the robot
    */
@@ -153,7 +203,7 @@ public class FinalDemo {
   /**
    * Distance between lines in cm
    */
-  public static final float GRID_WIDTH = 30.48f;
+  public static final float GRID_WIDTH = GameSettings.GRID_WIDTH;
 
   /**
    * The main method. Runs the final demo mode.
@@ -170,12 +220,13 @@ public class FinalDemo {
    * Runs the code associated with the final demo. 
    */
   private static void finalDemo() throws OdometerExceptions, InterruptedException{
-	Sound.setVolume(0);
+	SOUND.setVolume(0);
     init();
     OC.setOn(false);
     localizeWall();
     CLAW.calibrate();
     CLAW.close();
+    Claw.CLASSIFIER.startBackgroundLearning();
     OC.setOn(true);
     CanFinder cf = new CanFinder();
     while (true) {
@@ -183,12 +234,12 @@ public class FinalDemo {
       beepNTimes(3);
       cf.search();
       OC.setOn(false);
-      while (!cf.grabNextCan()) {
+      if (!cf.grabNextCan()) {
         if (DEBUG_ON) {
-          Sound.buzz();
+          SOUND.buzz();
         }
-        cf.goToSearchArea(false);
-        cf.search();
+        OC.setOn(true);
+        continue;
       }
       TRACK = TRACK_WITH_CAN;
       CLAW.classifyAndBeep();
@@ -211,8 +262,23 @@ public class FinalDemo {
    * @throws OdometerExceptions
    */
   private static void init() throws OdometerExceptions {
+    if (RECORD_ON) {
+      try {
+        TELEMETRY.start(TELEMETRY_FILE);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    if (STREAM_ON) {
+      TelemetryServer server = new TelemetryServer();
+      server.start();
+      TELEMETRY.setStream(server);
+    }
     (new Thread(Odometer.getOdometer())).start();
-    GameSettings.init();
+    if (METRICS_BUTTON_ON) {
+      startMetricsButton();
+    }
+    GameServer.init();
     NAV.start();
     OC.start();
     LEFT_MOTOR.setAcceleration(ACCELERATION);
@@ -242,8 +308,14 @@ public class FinalDemo {
    * @throws OdometerExceptions
    */
   private static void localizeWall() throws OdometerExceptions {
-    (new UltrasonicLocalizer()).run();
-    WallLocalizer.run();
+    // if the ultrasonic sweep found the walls, only the south wall is
+    // rammed. An uneven turn can rotate every reading of the sweep alike,
+    // which the walls' shape cannot show, and ramming resets t exactly
+    if ((new UltrasonicLocalizer()).run()) {
+      WallLocalizer.ramSouth();
+    } else {
+      WallLocalizer.run();
+    }
     NAV.travelTo(GRID_WIDTH, GRID_WIDTH);
     NAV.waitUntilDone();
     beepNTimes(3);
@@ -297,18 +369,7 @@ public class FinalDemo {
    * @return The location of the sensor in the form {x,y,t}
    */
   public static double[] toSensor(double[] robot) {
-    double[] result = new double[3];
-    if (robot.length == 3) {
-      double t = robot[2];
-      result[0] = robot[0] 
-          - FinalDemo.LINE_OFFSET_X * Math.cos(Math.toRadians(t))
-          - FinalDemo.LINE_OFFSET_Y * Math.sin(Math.toRadians(t));
-      result[1] = robot[1] 
-          + FinalDemo.LINE_OFFSET_X * Math.sin(Math.toRadians(t))
-          - FinalDemo.LINE_OFFSET_Y * Math.cos(Math.toRadians(t));
-      result[2] = t;
-    }
-    return result;
+    return LineCorrector.toSensor(robot);
   }
 
   /**
@@ -319,33 +380,21 @@ public class FinalDemo {
    * @return
    */
   public static double[] toRobot(double[] sensor) {
-    double[] result = new double[3];
-    if (sensor.length == 3) {
-      double t = sensor[2];
-      result[0] = sensor[0] 
-          + FinalDemo.LINE_OFFSET_X * Math.cos(Math.toRadians(t))
-          + FinalDemo.LINE_OFFSET_Y * Math.sin(Math.toRadians(t));
-      result[1] = sensor[1] 
-          - FinalDemo.LINE_OFFSET_X * Math.sin(Math.toRadians(t))
-          + FinalDemo.LINE_OFFSET_Y * Math.cos(Math.toRadians(t));
-      result[2] = t;
-    }
-    return result;
+    return LineCorrector.toRobot(sensor);
   }
 
   /**
-   * Beeps n times
+   * Beeps n times. Returns right away, the beeps
+   * are played in the background.
    * @param n the number of times to beep ( :O )
    */
   public static void beepNTimes(int n) {
-	Sound.setVolume(100);
+    SOUND.setVolume(100);
     for (int i = 0; i < n; i++) {
-      Sound.beep();
-      try {
-        Thread.sleep(100);
-      } catch (InterruptedException e) {}
+      SOUND.beep();
+      SOUND.pause(100);
     }
-    Sound.setVolume(0);
+    SOUND.setVolume(0);
   }
 
 
@@ -397,6 +446,42 @@ public class FinalDemo {
     }
   }
   
+  /**
+   * Shows the timing of each loop on the LCD, one row per loop:
+   * the 99th percentile period and execution time in ms, and the
+   * number of missed deadlines. Also prints the full report to the console.
+   * For checking whether the brick is overloaded after a test run
+   */
+  private static void showMetrics() {
+    List<LoopMetrics> loops = MetricsRegistry.getLoops();
+    DISPLAY.clear();
+    for (int i = 0; i < loops.size() && i < Display.ROWS; i++) {
+      LoopMetrics m = loops.get(i);
+      DISPLAY.setValues(i, m.getLabel(), m.getPeriod().getPercentile(99) / 1000.0,
+          m.getExec().getPercentile(99) / 1000.0, m.getDeadlineMisses(), 1);
+    }
+    MetricsRegistry.report(System.out);
+  }
+
+  /**
+   * Starts a thread that calls showMetrics() whenever the
+   * enter button is pressed
+   */
+  private static void startMetricsButton() {
+    Thread t = new Thread("Metrics") {
+      public void run() {
+        while (true) {
+          if (Button.waitForAnyPress() == Button.ID_ENTER) {
+            showMetrics();
+          }
+        }
+      }
+    };
+    t.setDaemon(true);
+    t.setPriority(Thread.MIN_PRIORITY);
+    t.start();
+  }
+
   /**
    * Sets the odometer to 1,1,0
    * For testing features without considering efficacy of localization
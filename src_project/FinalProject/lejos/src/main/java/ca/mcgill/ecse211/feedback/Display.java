@@ -0,0 +1,218 @@
+package ca.mcgill.ecse211.feedback;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lejos.hardware.lcd.TextLCD;
+
+/**
+ * Draws telemetry to the LCD from its own low priority thread, so that
+ * control loops never wait on LCD I/O or build strings.
+ *
+ * Each row of the LCD is a slot holding a label and up to three numbers.
+ * Writing a slot only stores the values, without locking or allocating,
+ * and marks the row dirty if anything changed. Every RENDER_PERIOD, the
+ * display thread formats and draws the dirty rows, and nothing else.
+ * Labels should be string constants, so that no string is built by the
+ * writer.
+ * @author jacob
+ */
+public class Display implements Runnable {
+  /**
+   * The number of text rows on the LCD
+   */
+  public static final int ROWS = 8;
+  /**
+   * The most numbers a single row can hold
+   */
+  private static final int MAX_VALUES = 3;
+  /**
+   * The time between redraws of the LCD, in ms
+   */
+  private static final int RENDER_PERIOD = 200;
+
+  private final TextLCD lcd;
+  private final AtomicReferenceArray<String> labels = new AtomicReferenceArray<String>(ROWS);
+  private final AtomicLongArray values = new AtomicLongArray(ROWS * MAX_VALUES);
+  private final AtomicIntegerArray numValues = new AtomicIntegerArray(ROWS);
+  private final AtomicIntegerArray decimals = new AtomicIntegerArray(ROWS);
+  /**
+   * Incremented each time a row changes
+   */
+  private final AtomicIntegerArray versions = new AtomicIntegerArray(ROWS);
+  /**
+   * The version of each row currently on the LCD.
+   * Only used by the display thread.
+   */
+  private final int[] drawn = new int[ROWS];
+  private final StringBuilder line = new StringBuilder();
+
+  /**
+   * Creates a Display drawing to the given LCD, and starts its thread
+   * @param lcd The LCD to draw to
+   */
+  public Display(TextLCD lcd) {
+    this.lcd = lcd;
+    Thread t = new Thread(this, "Display");
+    t.setDaemon(true);
+    t.setPriority(Thread.MIN_PRIORITY);
+    t.start();
+  }
+
+  /**
+   * Shows a line of text on a row
+   * @param row The row, 0-7
+   * @param text The text to show
+   */
+  public void setText(int row, String text) {
+    set(row, text, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Shows a label followed by a number on a row
+   * @param row The row, 0-7
+   * @param label The text before the number
+   * @param value The number to show
+   * @param decimals The number of decimals to show
+   */
+  public void setValue(int row, String label, double value, int decimals) {
+    set(row, label, 1, value, 0, 0, decimals);
+  }
+
+  /**
+   * Shows a label followed by two comma separated numbers on a row
+   * @param row The row, 0-7
+   * @param label The text before the numbers
+   * @param v0 The first number
+   * @param v1 The second number
+   * @param decimals The number of decimals to show
+   */
+  public void setValues(int row, String label, double v0, double v1, int decimals) {
+    set(row, label, 2, v0, v1, 0, decimals);
+  }
+
+  /**
+   * Shows a label followed by three comma separated numbers on a row
+   * @param row The row, 0-7
+   * @param label The text before the numbers
+   * @param v0 The first number
+   * @param v1 The second number
+   * @param v2 The third number
+   * @param decimals The number of decimals to show
+   */
+  public void setValues(int row, String label, double v0, double v1, double v2, int decimals) {
+    set(row, label, 3, v0, v1, v2, decimals);
+  }
+
+  /**
+   * Blanks every row
+   */
+  public void clear() {
+    for (int row = 0; row < ROWS; row++) {
+      set(row, null, 0, 0, 0, 0, 0);
+    }
+  }
+
+  /**
+   * Stores the contents of a row, and marks it dirty if they changed
+   * @param row The row, 0-7
+   * @param label The text before the numbers, or null for none
+   * @param n The number of numbers to show
+   * @param v0 The first number
+   * @param v1 The second number
+   * @param v2 The third number
+   * @param d The number of decimals to show
+   */
+  private void set(int row, String label, int n, double v0, double v1, double v2, int d) {
+    int base = row * MAX_VALUES;
+    long b0 = Double.doubleToLongBits(v0);
+    long b1 = Double.doubleToLongBits(v1);
+    long b2 = Double.doubleToLongBits(v2);
+    if (labels.get(row) == label && numValues.get(row) == n && decimals.get(row) == d
+        && values.get(base) == b0 && values.get(base + 1) == b1 && values.get(base + 2) == b2) {
+      return;
+    }
+    labels.set(row, label);
+    numValues.set(row, n);
+    decimals.set(row, d);
+    values.set(base, b0);
+    values.set(base + 1, b1);
+    values.set(base + 2, b2);
+    versions.incrementAndGet(row);
+  }
+
+  /**
+   * Redraws the dirty rows every RENDER_PERIOD
+   */
+  public void run() {
+    while (true) {
+      for (int row = 0; row < ROWS; row++) {
+        int version = versions.get(row);
+        if (version != drawn[row]) {
+          drawn[row] = version;
+          render(row);
+        }
+      }
+      try {
+        Thread.sleep(RENDER_PERIOD);
+      } catch (InterruptedException e) {
+      }
+    }
+  }
+
+  /**
+   * Formats a row and draws it, padded to the width of the LCD
+   * so that it covers whatever was there before
+   * @param row The row to draw
+   */
+  private void render(int row) {
+    line.setLength(0);
+    String label = labels.get(row);
+    if (label != null) {
+      line.append(label);
+    }
+    int n = numValues.get(row);
+    int d = decimals.get(row);
+    for (int i = 0; i < n; i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      appendFixed(Double.longBitsToDouble(values.get(row * MAX_VALUES + i)), d);
+    }
+    int width = lcd.getTextWidth();
+    while (line.length() < width) {
+      line.append(' ');
+    }
+    line.setLength(width);
+    lcd.drawString(line.toString(), 0, row);
+  }
+
+  /**
+   * Appends a number to the line with a fixed number of decimals
+   * @param v The number
+   * @param d The number of decimals
+   */
+  private void appendFixed(double v, int d) {
+    if (Double.isNaN(v) || Double.isInfinite(v)) {
+      line.append(v);
+      return;
+    }
+    long scale = 1;
+    for (int i = 0; i < d; i++) {
+      scale *= 10;
+    }
+    long scaled = Math.round(Math.abs(v) * scale);
+    if (v < 0 && scaled != 0) {
+      line.append('-');
+    }
+    line.append(scaled / scale);
+    if (d > 0) {
+      line.append('.');
+      String frac = Long.toString(scaled % scale);
+      for (int i = frac.length(); i < d; i++) {
+        line.append('0');
+      }
+      line.append(frac);
+    }
+  }
+}
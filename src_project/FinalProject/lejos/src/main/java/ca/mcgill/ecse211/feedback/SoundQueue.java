@@ -0,0 +1,201 @@
+package ca.mcgill.ecse211.feedback;
+
+import lejos.hardware.Sound;
+
+/**
+ * Plays sounds on a low priority background thread, so that signalling
+ * never stalls navigation, odometry correction or classification.
+ * Sounds are queued and played one after the other, in the order they
+ * were requested. Queuing a sound never blocks and never allocates: if the
+ * queue is full, the sound is dropped.
+ * @author jacob
+ */
+public class SoundQueue implements Runnable {
+  /**
+   * The most sounds that can be waiting to be played
+   */
+  private static final int CAPACITY = 64;
+
+  private static final int BEEP = 0;
+  private static final int TWO_BEEPS = 1;
+  private static final int BEEP_SEQUENCE_UP = 2;
+  private static final int BUZZ = 3;
+  private static final int TONE = 4;
+  private static final int PAUSE = 5;
+  private static final int VOLUME = 6;
+
+  /**
+   * The queued commands, as a circular buffer of
+   * (type, first argument, second argument)
+   */
+  private final int[] type = new int[CAPACITY];
+  private final int[] arg0 = new int[CAPACITY];
+  private final int[] arg1 = new int[CAPACITY];
+  private int head = 0;
+  private int size = 0;
+  private boolean playing = false;
+  private int dropped = 0;
+
+  /**
+   * Creates a SoundQueue and starts its thread
+   */
+  public SoundQueue() {
+    Thread t = new Thread(this, "Sound");
+    t.setDaemon(true);
+    t.setPriority(Thread.MIN_PRIORITY);
+    t.start();
+  }
+
+  /**
+   * Plays a single beep
+   */
+  public void beep() {
+    push(BEEP, 0, 0);
+  }
+
+  /**
+   * Plays two beeps
+   */
+  public void twoBeeps() {
+    push(TWO_BEEPS, 0, 0);
+  }
+
+  /**
+   * Plays a rising sequence of beeps
+   */
+  public void beepSequenceUp() {
+    push(BEEP_SEQUENCE_UP, 0, 0);
+  }
+
+  /**
+   * Plays a low buzz
+   */
+  public void buzz() {
+    push(BUZZ, 0, 0);
+  }
+
+  /**
+   * Plays a tone
+   * @param freq The frequency of the tone, in Hz
+   * @param duration The length of the tone, in ms
+   */
+  public void playTone(int freq, int duration) {
+    push(TONE, freq, duration);
+  }
+
+  /**
+   * Waits before playing the next sound
+   * @param duration The time to wait, in ms
+   */
+  public void pause(int duration) {
+    push(PAUSE, duration, 0);
+  }
+
+  /**
+   * Sets the volume of the sounds queued after this call
+   * @param vol The volume, 0-100
+   */
+  public void setVolume(int vol) {
+    push(VOLUME, vol, 0);
+  }
+
+  /**
+   * Blocks until every queued sound has been played
+   */
+  public synchronized void waitUntilDone() {
+    while (size > 0 || playing) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+      }
+    }
+  }
+
+  /**
+   * Returns the number of sounds dropped because the queue was full
+   * @return The number of dropped sounds
+   */
+  public synchronized int getDropped() {
+    return dropped;
+  }
+
+  /**
+   * Adds a command to the queue, or drops it if the queue is full
+   * @param t The type of the command
+   * @param a0 The first argument of the command
+   * @param a1 The second argument of the command
+   */
+  private synchronized void push(int t, int a0, int a1) {
+    if (size == CAPACITY) {
+      dropped++;
+      return;
+    }
+    int i = (head + size) % CAPACITY;
+    type[i] = t;
+    arg0[i] = a0;
+    arg1[i] = a1;
+    size++;
+    notifyAll();
+  }
+
+  /**
+   * Plays queued sounds as they come in
+   */
+  public void run() {
+    while (true) {
+      int t;
+      int a0;
+      int a1;
+      synchronized (this) {
+        playing = false;
+        notifyAll();
+        while (size == 0) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+          }
+        }
+        t = type[head];
+        a0 = arg0[head];
+        a1 = arg1[head];
+        head = (head + 1) % CAPACITY;
+        size--;
+        playing = true;
+      }
+      play(t, a0, a1);
+    }
+  }
+
+  /**
+   * Plays a single command
+   * @param t The type of the command
+   * @param a0 The first argument of the command
+   * @param a1 The second argument of the command
+   */
+  private static void play(int t, int a0, int a1) {
+    switch (t) {
+      case BEEP:
+        Sound.beep();
+        break;
+      case TWO_BEEPS:
+        Sound.twoBeeps();
+        break;
+      case BEEP_SEQUENCE_UP:
+        Sound.beepSequenceUp();
+        break;
+      case BUZZ:
+        Sound.buzz();
+        break;
+      case TONE:
+        Sound.playTone(a0, a1);
+        break;
+      case PAUSE:
+        Sound.pause(a0);
+        break;
+      case VOLUME:
+        Sound.setVolume(a0);
+        break;
+      default:
+    }
+  }
+}
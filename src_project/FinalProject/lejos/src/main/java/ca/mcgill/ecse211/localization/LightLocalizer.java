@@ -1,11 +1,13 @@
 package ca.mcgill.ecse211.localization;
 
-import lejos.hardware.Sound;
-import ca.mcgill.ecse211.demo.AveragedBuffer;
 import ca.mcgill.ecse211.demo.FinalDemo;
-import ca.mcgill.ecse211.navigation.Navigation;
+import ca.mcgill.ecse211.navigation.NavigationController;
 import ca.mcgill.ecse211.odometer.Odometer;
 import ca.mcgill.ecse211.odometer.OdometerExceptions;
+import ca.mcgill.ecse211.sensors.SensorMount;
+import ca.mcgill.ecse211.telemetry.LoopMetrics;
+import ca.mcgill.ecse211.telemetry.MetricsRegistry;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
 
 /**
  * This class represents a routine used by the robot
@@ -27,6 +29,10 @@ public class LightLocalizer {
    * The time between polling the sensor, in ms
    */
   public static final int POLL_DELAY = 7;
+  /**
+   * The timing metrics of the line polling loop
+   */
+  private static final LoopMetrics METRICS = MetricsRegistry.loop("light_localizer", POLL_DELAY);
 
   /**
    * The time (ms) waited before checking that the navigation is done
@@ -36,15 +42,36 @@ public class LightLocalizer {
    * This represents the minimum difference from the mean for a light sensor reading to be
    * considered significant
    */
-  private static final float LIGHT_THRESHOLD = 0.05f;
+  public static final float LIGHT_THRESHOLD = 0.05f;
   
   /**
    * Making this smaller leads to CW rotation
    */
-  private static final double CORRECTION = -14;//smaller for cw
+  public static final double CORRECTION = -14;//smaller for cw
+
+  /*
+   * States recorded to telemetry on the LIGHT_LOCALIZER channel:
+   */
+  /**
+   * The robot starts turning to find the 4 lines, with the x and y of the
+   * cross and the starting heading as values
+   */
+  public static final int LINES = 0;
+  /**
+   * A line was found, with the heading the robot stopped at as value
+   */
+  public static final int LINE_FOUND = 1;
+  /**
+   * The odometer was corrected, with the new x, y and theta as values
+   */
+  public static final int DONE = 2;
+  /**
+   * The robot turned too far without finding a line
+   */
+  public static final int FAILED = 3;
 
   private Odometer odo;
-  private AveragedBuffer<Float> samples;
+  private LineDetector lines;
   private double x;
   private double y;
   private boolean midTravel;
@@ -63,7 +90,7 @@ public class LightLocalizer {
       e.printStackTrace();
     }
 
-    samples = new AveragedBuffer<Float>(100);
+    lines = new LineDetector(LIGHT_THRESHOLD);
     this.x = x;
     this.y = y;
     midTravel = true;
@@ -83,7 +110,7 @@ public class LightLocalizer {
       e.printStackTrace();
     }
 
-    samples = new AveragedBuffer<Float>(100);
+    lines = new LineDetector(LIGHT_THRESHOLD);
     this.x = x;
     this.y = y;
     this.midTravel = midTravel;
@@ -101,45 +128,54 @@ public class LightLocalizer {
       moveBackwards(8);
     }
     FinalDemo.NAV.turnTo(25);
-    //Find the 4 intersections
-    if (rotateToLine(false)) {
-      if (FinalDemo.DEBUG_ON) {
-        Sound.buzz();
-      }
-      return false;
-    }
-    double tYN = odo.getXYT()[2];
-    
-    if (rotateToLine(false)) {
-      if (FinalDemo.DEBUG_ON) {
-        Sound.buzz();
-      }
-      return false;
-    }
-    double tXP = odo.getXYT()[2];
-    if (rotateToLine(false)) {
-      if (FinalDemo.DEBUG_ON) {
-        Sound.buzz();
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.LIGHT_LOCALIZER, LINES, x, y,
+        odo.getXYT()[2], 0);
+    //Find the 4 intersections: tYN, tXP, tYP, tXN
+    double[] t = new double[4];
+    for (int i = 0; i < t.length; i++) {
+      if (rotateToLine(false)) {
+        FinalDemo.TELEMETRY.state(TelemetryRecorder.LIGHT_LOCALIZER, FAILED, i);
+        if (FinalDemo.DEBUG_ON) {
+          FinalDemo.SOUND.buzz();
+        }
+        return false;
       }
-      return false;
+      t[i] = odo.getXYT()[2];
+      FinalDemo.TELEMETRY.state(TelemetryRecorder.LIGHT_LOCALIZER, LINE_FOUND, t[i]);
     }
-    double tYP = odo.getXYT()[2];
-    if (rotateToLine(false)) {
-      if (FinalDemo.DEBUG_ON) {
-        Sound.buzz();
-      }
-      return false;
-    }
-    double tXN = odo.getXYT()[2];
-    
-    
+
     //calculates & updates values
-    double d = Math.sqrt(Math.pow(FinalDemo.LINE_OFFSET_X,2) + Math.pow(FinalDemo.LINE_OFFSET_Y, 2));
-    double tS = Math.toDegrees(Math.atan(FinalDemo.LINE_OFFSET_X / FinalDemo.LINE_OFFSET_Y));
+    double[] xyt = fromLines(x, y, t[0], t[1], t[2], t[3], odo.getXYT()[2], CORRECTION);
+    odo.setX(xyt[0]);
+    odo.setY(xyt[1]);
+    odo.setTheta(xyt[2]);
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.LIGHT_LOCALIZER, DONE, xyt[0], xyt[1],
+        xyt[2], 0);
+    return true;
+  }
+
+  /**
+   * Calculates the pose of the robot from the headings at which the line
+   * sensor crossed each of the 4 lines around a cross, turning counterclockwise
+   * @param x The x coordinate of the cross
+   * @param y The y coordinate of the cross
+   * @param tYN The heading when crossing the negative y line
+   * @param tXP The heading when crossing the positive x line
+   * @param tYP The heading when crossing the positive y line
+   * @param tXN The heading when crossing the negative x line
+   * @param t The current heading of the odometer
+   * @param correction The correction added to the heading, in degrees
+   * @return The corrected pose, as {x, y, theta}
+   */
+  public static double[] fromLines(double x, double y, double tYN, double tXP, double tYP,
+      double tXN, double t, double correction) {
+    double d = Math.hypot(SensorMount.LINE.right, SensorMount.LINE.forward);
+    double tS = Math.toDegrees(Math.atan(SensorMount.LINE.right / SensorMount.LINE.forward));
     double tY = (tYN > tYP) ? (tYN - tYP) : (tYN + 360 - tYP);
     double tX = (tXP > tXN) ? (tXP - tXN) : (tXP + 360 - tXN);
-    odo.setX(x - d * Math.cos(Math.toRadians(tY/2)));
-    odo.setY(y - d * Math.cos(Math.toRadians(tX/2)));
+    double[] xyt = new double[3];
+    xyt[0] = x - d * Math.cos(Math.toRadians(tY/2));
+    xyt[1] = y - d * Math.cos(Math.toRadians(tX/2));
     //FROM THE Y POINTS:
     double odo180 = (tXP - tX/2.0 + tS + 360) % 360;
     double odo270 =  (tYN - tY/2.0 + tS + 360) % 360;
@@ -147,8 +183,8 @@ public class LightLocalizer {
     double err180 = (180 - odo180 + 360) % 360;
     double err270 = (270 - odo270 + 360) % 360;
     double avgError = (err180 + err270) / 2;
-    odo.setTheta(odo.getXYT()[2] + avgError + CORRECTION);
-    return true;
+    xyt[2] = t + avgError + correction;
+    return xyt;
   }
 
   /**
@@ -161,7 +197,7 @@ public class LightLocalizer {
     FinalDemo.NAV.setSpeeds(dir * MOTOR_SPEED, dir * MOTOR_SPEED);
     waitUntilLine();
     if (FinalDemo.DEBUG_ON) {
-      Sound.beep(); //found a line
+      FinalDemo.SOUND.beep(); //found a line
     }
     FinalDemo.NAV.setSpeeds(0, 0);
   }
@@ -179,7 +215,7 @@ public class LightLocalizer {
     FinalDemo.NAV.setSpeeds(dir * MOTOR_SPEED * 0.5f, -dir * MOTOR_SPEED * 0.5f);
     waitUntilLine();
     if (FinalDemo.DEBUG_ON) {
-      Sound.beep(); //found a line
+      FinalDemo.SOUND.beep(); //found a line
     }
     FinalDemo.NAV.setSpeeds(0, 0);
     double endT = odo.getXYT()[2];
@@ -197,16 +233,21 @@ public class LightLocalizer {
    */
   private void waitUntilLine() {
     float[] sample = new float[FinalDemo.LINE_SENSOR.sampleSize()];
+    boolean found;
     do {
+      METRICS.startIteration();
       FinalDemo.LINE_SENSOR.fetchSample(sample, 0);
-      samples.add(sample[0]);
-      FinalDemo.LCD.clear();
-      FinalDemo.LCD.drawString(sample[0] + ", " + samples.getAvg() + "      ",0,4);
+      found = lines.add(sample[0]);
+      FinalDemo.DISPLAY.setValues(4, "Line:", sample[0], lines.getAvg(), 3);
+      if (FinalDemo.TELEMETRY.isActive()) {
+        FinalDemo.TELEMETRY.sensor(TelemetryRecorder.LOCALIZER_LINE, sample[0], lines.getAvg(),
+            odo.getXYT());
+      }
+      METRICS.endIteration();
       sleep();
-    } while (sample[0] > samples.getAvg() - LIGHT_THRESHOLD);
-    samples.clear();
+    } while (!found);
     if (FinalDemo.DEBUG_ON) {
-      Sound.beep();
+      FinalDemo.SOUND.beep();
     }
   }
 
@@ -233,7 +274,7 @@ public class LightLocalizer {
     FinalDemo.LEFT_MOTOR.backward();
     FinalDemo.RIGHT_MOTOR.backward();
 
-    while (Navigation.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
+    while (NavigationController.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
       try {
         Thread.sleep(30);
       } catch (InterruptedException e) {
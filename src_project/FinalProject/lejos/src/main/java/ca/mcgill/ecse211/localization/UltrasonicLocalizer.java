@@ -0,0 +1,283 @@
+package ca.mcgill.ecse211.localization;
+import ca.mcgill.ecse211.demo.AveragedBuffer;
+import ca.mcgill.ecse211.demo.FinalDemo;
+import ca.mcgill.ecse211.odometer.Odometer;
+import ca.mcgill.ecse211.odometer.OdometerExceptions;
+import ca.mcgill.ecse211.sensors.UltrasonicPoller;
+import ca.mcgill.ecse211.telemetry.LoopMetrics;
+import ca.mcgill.ecse211.telemetry.MetricsRegistry;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
+
+/**
+ * This class represents a routine used by the robot
+ * to calibrate the theta value of the odometer, using
+ * the ultrasonic sensor.
+ * 
+ * With FinalDemo.US_SWEEP_ON, the robot turns once and fits the
+ * walls of the corner (see WallFit), and only falls back to edges
+ * if the walls are not found or fit too loosely. Edges are found by falling edge
+ * detection only.
+ * 
+ * @author jacob silcoff & helen lin
+ *
+ */
+public class UltrasonicLocalizer {
+
+  /**
+   * The time (ms) between polling the sensor
+   */
+  public static final int SLEEP_TIME = 15;
+  /**
+   * The timing metrics of the sensor polling loop
+   */
+  private static final LoopMetrics METRICS = MetricsRegistry.loop("us_localizer", SLEEP_TIME);
+  /**
+   * The distance (cm) below which the robot assumes it is looking at the wall
+   */
+  public static final double DETECTION_DISTANCE = 30;
+  /**
+   * The motor speed (deg/s) used by the robot when turning
+   */
+  private static final int ROTATE_SPEED = 200;//was 100
+  /**
+   * The number of headings remembered while sweeping, enough to reach
+   * back past the median of the ultrasonic filter
+   */
+  public static final int HISTORY_SIZE = 16;
+
+  /*
+   * States recorded to telemetry on the US_LOCALIZER channel:
+   */
+  /**
+   * The robot starts turning to find an edge, with 1 for clockwise
+   * or -1 for counterclockwise as value
+   */
+  public static final int EDGE = 0;
+  /**
+   * An edge was found, with the heading the robot stopped at as value
+   */
+  public static final int EDGE_FOUND = 1;
+  /**
+   * The heading was corrected, with the new heading, the heading
+   * before the correction, and the new x and y as values
+   */
+  public static final int DONE = 2;
+  /**
+   * The robot starts one full turn to fit the walls, with 0 as value
+   */
+  public static final int SWEEP = 3;
+  /**
+   * The full turn is done, with the north it found, the error of the
+   * fit in cm, and the x and y it found as values, or NaN if the walls
+   * were not found
+   */
+  public static final int SWEEP_DONE = 4;
+
+
+  private Odometer odo;
+  private AveragedBuffer<Float> samples;
+  private UltrasonicPoller us;
+  private EdgeDetector edges;
+  private WallFit fit;
+  private HeadingHistory headings;
+
+
+
+  /**
+   * Creates an ultrasonic sensor localizer instance for rising or falling edge localization
+   */
+  public UltrasonicLocalizer() {
+    samples = new AveragedBuffer<Float>(5);
+    us = new UltrasonicPoller(FinalDemo.US_FRONT);
+    edges = new EdgeDetector(DETECTION_DISTANCE);
+    fit = new WallFit();
+    headings = new HeadingHistory(HISTORY_SIZE);
+    try {
+      odo = Odometer.getOdometer();
+    } catch (OdometerExceptions e) {
+      e.printStackTrace();
+    }
+  }
+
+
+  /**
+   * Turns the robot clockwise or counterclockwise
+   * until a falling or rising edge is detected, as 
+   * measured by the ultrasonic sensor, and then returns
+   * the angle of that edge.
+   * @param rising True to find the rising edge, false for falling
+   * @param cw True to turn clockwise, false for counter clockwise
+   * @return The angle of the edge found
+   */
+  public double getEdge(boolean cw) {
+    int dir = cw? 1 : -1;
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.US_LOCALIZER, EDGE, dir);
+    FinalDemo.NAV.setSpeeds(dir * ROTATE_SPEED, - dir * ROTATE_SPEED); //set clockwise or counterclockwise turn
+    FinalDemo.DISPLAY.setText(4, "STAGE 1");
+    //Must not see the wall for 20 readings, then turn until it is seen
+    edges.reset();
+    boolean stage2 = false;
+    while (!edges.add(readUS())) {
+      if (!stage2 && edges.isSeekingEdge()) {
+        stage2 = true;
+        FinalDemo.DISPLAY.setText(4, "STAGE 2");
+      }
+      sleep(); //keep turning + updating readings
+    }
+    FinalDemo.NAV.setSpeeds(0, 0);// stop
+
+    FinalDemo.DISPLAY.setText(4, "Edge detected");
+    if (FinalDemo.DEBUG_ON) {
+      FinalDemo.SOUND.beep(); //audio notification
+    }
+    FinalDemo.NAV.setSpeeds(0, 0); //stop robot
+    double edge = odo.getXYT()[2];
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.US_LOCALIZER, EDGE_FOUND, edge);
+    return edge;
+  }
+
+  /**
+   * Turns the robot clockwise once on the spot, recording every reading,
+   * and fits the two walls of the corner to the readings.
+   * The filtered distance is the median of readings a few polls old, and
+   * the robot only turns one way, so each distance is paired with the
+   * heading the robot had when its median reading was taken.
+   * The LCD is not written to, to keep the readings evenly spaced.
+   * @return The heading of the odometer that is actually north,
+   * or NaN if the walls were not found or fit them too loosely
+   */
+  public double sweep() {
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.US_LOCALIZER, SWEEP, 0);
+    FinalDemo.DISPLAY.setText(4, "SWEEP");
+    fit.clear();
+    us.clear();
+    headings.clear();
+    double last = odo.getXYT()[2];
+    double turned = 0;
+    FinalDemo.NAV.setSpeeds(ROTATE_SPEED, -ROTATE_SPEED);
+    while (turned < 360 && !fit.isFull()) {
+      METRICS.startIteration();
+      float dist = us.fetch();
+      double[] xyt = odo.getXYT();
+      FinalDemo.TELEMETRY.sensor(TelemetryRecorder.US_SENSOR, us.getRaw(), dist, xyt);
+      METRICS.endIteration();
+      headings.add(us.getTimestamp(), xyt[2]);
+      fit.add(dist, headings.headingAt(us.getMedianTimestamp()));
+      turned += (xyt[2] - last + 540) % 360 - 180;
+      last = xyt[2];
+      sleep();
+    }
+    FinalDemo.NAV.setSpeeds(0, 0);
+
+    boolean found = fit.fit();
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.US_LOCALIZER, SWEEP_DONE,
+        found ? fit.getNorth() : Double.NaN, found ? fit.getRms() : Double.NaN,
+        found ? fit.getX() : Double.NaN, found ? fit.getY() : Double.NaN);
+    return found && fit.isHeadingGood() ? fit.getNorth() : Double.NaN;
+  }
+
+  /**
+   * Calculates north heading according to the edges found
+   * 
+   * @param theta1 first angle detected from localization
+   * @param theta2 2nd angle detected from localization
+   * @return The heading of the odometer that is actually north
+   */
+  public static double localizeNorth(double theta1, double theta2) {
+    double avgAngle = (theta1 + theta2) / 2;
+
+    if (minAngle(avgAngle, theta1) > 90) {
+      avgAngle = (avgAngle + 180) % 360;
+    }
+
+    return (avgAngle + 135 + 360) % 360;
+  }
+
+  /**
+   * Returns the min angle between two angles
+   * @param t1 the first angle
+   * @param t2 the second angle
+   */
+  private static double minAngle(double t1, double t2) {
+    double ang = (t1 - t2 + 360) % 360;
+    if (ang > 180) {
+      return 360 - ang;
+    } else {
+      return ang;
+    }
+  }
+
+  /**
+   * Executes the localization routine. Theta is always corrected. If a
+   * full turn fitted the walls well, x and y are set from the walls too,
+   * and otherwise they are set to 0.
+   * @return True if x and y were found, so the robot need only ram one
+   * wall to reset theta exactly
+   */
+  public boolean run() {
+    double north = FinalDemo.US_SWEEP_ON ? sweep() : Double.NaN;
+    boolean located = !Double.isNaN(north) && fit.isGood();
+    double x = located ? fit.getX() : 0;
+    double y = located ? fit.getY() : 0;
+    if (Double.isNaN(north)) {
+      //Find first edge
+      double theta1 = getEdge(false);
+      // switch directions and turn until another edge is detected
+      double theta2 = getEdge(true);
+      north = localizeNorth(theta1, theta2);
+    }
+
+    // correct current theta
+    double t = odo.getXYT()[2];
+    double realAngle = (t - north + 360) % 360;
+    odo.setXYT(x, y, realAngle); 
+    FinalDemo.TELEMETRY.state(TelemetryRecorder.US_LOCALIZER, DONE, realAngle, t, x, y);
+    
+    FinalDemo.NAV.waitUntilDone();
+    return located;
+  }
+
+  /**
+   * Sleeps for the default amount of time
+   */
+  private void sleep() {
+    try {
+      Thread.sleep(SLEEP_TIME);
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Polls the ultrasonic sensor and returns the filtered result
+   * 
+   * @return The US reading in cm
+   */
+  private float readUS() {
+    METRICS.startIteration();
+    float dist = us.fetch();
+    FinalDemo.DISPLAY.setValue(7, "US:", dist, 1);
+    if (FinalDemo.TELEMETRY.isActive()) {
+      FinalDemo.TELEMETRY.sensor(TelemetryRecorder.US_SENSOR, us.getRaw(), dist, odo.getXYT());
+    }
+    METRICS.endIteration();
+    samples.add(dist);
+    return dist;
+  }
+
+  /**
+   * Polls the ultrasonic sensor and returns the result,
+   * which can use the averaged filter if desired
+   * @param buffered True to use rolling average filter, false to get simple reading
+   * @return The US reading (cm)
+   */
+  public float readUS(boolean buffered) {
+    if (buffered) {
+      readUS();
+      return (float) samples.getAvg();
+    } else {
+      return readUS();
+    }
+  }
+
+}
\ No newline at end of file
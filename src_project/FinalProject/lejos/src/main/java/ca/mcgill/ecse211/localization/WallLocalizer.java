@@ -1,9 +1,10 @@
 package ca.mcgill.ecse211.localization;
 
 import ca.mcgill.ecse211.demo.FinalDemo;
-import ca.mcgill.ecse211.navigation.Navigation;
+import ca.mcgill.ecse211.navigation.NavigationController;
 import ca.mcgill.ecse211.odometer.Odometer;
 import ca.mcgill.ecse211.odometer.OdometerExceptions;
+import ca.mcgill.ecse211.sensors.SensorMount;
 
 /**
  * Enables the robot to be localized by
@@ -15,9 +16,10 @@ public class WallLocalizer {
   
   /**
    * Distance from front of US sensor to wheel center
-   * in CM
+   * in CM, which is how far the turning centre is from a wall
+   * the robot has rammed
    */
-  public static final double US_OFFSET = 6.5;
+  private static final double US_OFFSET = SensorMount.ULTRASONIC.forward;
   /**
    * The speed of the motors for the localization routine
    */
@@ -30,18 +32,33 @@ public class WallLocalizer {
    * @throws OdometerExceptions
    */
   public static void run() throws OdometerExceptions {
+    ramWest();
+    ramSouth();
+  }
+
+  /**
+   * Rams into the west wall, which sets t and x, then backs away from it
+   * @throws OdometerExceptions
+   */
+  public static void ramWest() throws OdometerExceptions {
     FinalDemo.NAV.turnTo(270);
     moveForward(FinalDemo.GRID_WIDTH - US_OFFSET);
     Odometer.getOdometer().setTheta(270);
     Odometer.getOdometer().setX(US_OFFSET);
     moveForward(-(FinalDemo.GRID_WIDTH /2.5));
-    
+  }
+
+  /**
+   * Rams into the south wall, which sets t and y, then backs away from it
+   * @throws OdometerExceptions
+   */
+  public static void ramSouth() throws OdometerExceptions {
     FinalDemo.NAV.turnTo(180);
     moveForward(FinalDemo.GRID_WIDTH - US_OFFSET);
     Odometer.getOdometer().setTheta(180);
     Odometer.getOdometer().setY(US_OFFSET);
     moveForward(-(FinalDemo.GRID_WIDTH /2.));
- }
+  }
   
   /**
    * Moves the robot forward a certain distance
@@ -61,7 +78,7 @@ public class WallLocalizer {
       FinalDemo.RIGHT_MOTOR.forward();
     }
 
-    while (Navigation.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
+    while (NavigationController.dist(FinalDemo.NAV.getOdo().getXYT(), start) < Math.abs(dist)) {
       try {
         Thread.sleep(30);
       } catch (InterruptedException e) {
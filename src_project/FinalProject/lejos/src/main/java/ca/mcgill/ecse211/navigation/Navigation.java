@@ -3,6 +3,9 @@ package ca.mcgill.ecse211.navigation;
 import ca.mcgill.ecse211.demo.FinalDemo;
 import ca.mcgill.ecse211.odometer.Odometer;
 import ca.mcgill.ecse211.odometer.OdometerExceptions;
+import ca.mcgill.ecse211.telemetry.LoopMetrics;
+import ca.mcgill.ecse211.telemetry.MetricsRegistry;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
 
 
 /**
@@ -10,52 +13,33 @@ import ca.mcgill.ecse211.odometer.OdometerExceptions;
  * @author Jacob Silcoff & Helen Lin
  */
 public class Navigation extends Thread {
-  /**
-   * The motor speed of the robot when moving forward
-   */
-  private static final int FORWARD_SPEED = 270;
   /**
    * The motor speed used by the robot when turning
    */
-  private static final int ROTATE_SPEED = 180; //was 150
-  /**
-   * The maximum distance between two points where they are considered to be roughly equal.
-   */
-  private static final double DIST_THRESH = 0.5;
+  public static final int ROTATE_SPEED = 180; //was 150
   /**
    * The distance at which an object is considered to be close enough to the robot to initiate the
    * emergency obstacle avoidance sequence
    */
   public static final double EMERGENCY_THRESH = 17;
-  /**
-   * The max difference between two angles where they are considered to be roughly equal
-   */
-  private static final double T_THRESH = 0.8;
 
   /**
    * The amount of time, in ms, that the thread will sleep for in between cycles
    */
   private static final int SLEEP_TIME = 20;
-
   /**
-   * The distance after which the robot will no longer attempt to update its heading
+   * The timing metrics of the navigation loop
    */
-  private static final int CORRECTION_DIST = 4;
+  private static final LoopMetrics METRICS = MetricsRegistry.loop("navigation", SLEEP_TIME);
+
   /**
    * Whether or not the OC is on
    */
   private static final boolean OC_ON = true;
-  /**
-   * Minimum distance to use the gyroscope
-   */
-  private static final double MIN_GYRO_DIST = FinalDemo.GRID_WIDTH * Math.sqrt(2);
 
 
-  private boolean isNavigating;
   private Odometer odo;
-  private double destX;
-  private double destY;
-  private double destT;
+  private NavigationController controller;
   private boolean on;
 
   /**
@@ -64,8 +48,7 @@ public class Navigation extends Thread {
    */
   public Navigation() throws OdometerExceptions {
     odo = Odometer.getOdometer();
-    isNavigating = false;
-    destX = destY = destT = 0;
+    controller = new NavigationController();
     on = true;
   }
 
@@ -77,12 +60,9 @@ public class Navigation extends Thread {
    * @param y The desired y in cm
    */
   public void travelTo(double x, double y) {
-    destX = x ;
-    destY = y; // convert Y tile pt
-    updateT();
-    isNavigating = true;
+    controller.travelTo(x, y, odo.getXYT());
     FinalDemo.OC.stopGyro();
-    FinalDemo.LCD.drawString("Dest:" + (int) destX + "," + (int) destY + "," + (int) destT, 0, 4);
+    FinalDemo.DISPLAY.setValues(4, "Dest:", x, y, controller.getDestT(), 0);
   }
 
     /**
@@ -112,7 +92,7 @@ public class Navigation extends Thread {
    *         otherwise false
    */
   public boolean isNavigating() {
-    return isNavigating;
+    return controller.isNavigating();
   }
 
 
@@ -130,18 +110,18 @@ public class Navigation extends Thread {
 
     // turn using MINIMUM angle
     if (ang < 180) {
-      FinalDemo.LCD.drawString("Ang: " + ang + "deg  ", 0, 5);
+      FinalDemo.DISPLAY.setValue(5, "Ang: ", ang, 1);
       // increase angle
       FinalDemo.LEFT_MOTOR.rotate(convertAngle(ang), true);
       FinalDemo.RIGHT_MOTOR.rotate(-convertAngle(ang), false);
     } else {
       ang = 360 - ang;
-      FinalDemo.LCD.drawString("Ang: " + ang + "deg   ", 0, 5); // display angle of rotation
+      FinalDemo.DISPLAY.setValue(5, "Ang: ", ang, 1); // display angle of rotation
       // Need to check against odometer
       FinalDemo.LEFT_MOTOR.rotate(-convertAngle(ang), true);
       FinalDemo.RIGHT_MOTOR.rotate(convertAngle(ang), false);
     }
-    updateT();// update new angle after turn;
+    controller.updateT(odo.getXYT());// update new angle after turn;
   }
 
   /**
@@ -155,62 +135,51 @@ public class Navigation extends Thread {
   }
 
 
-  /**
-   * An enumeration of states the robot can be in as it navigates from point to point
-   * 
-   * @author jacob silcoff
-   */
-  enum State {
-    INIT, TURNING, TRAVELING
-  }
-
   /**
    * Implements a state machine of initializing, turning traveling, or handling an emergency
-   * obstacle
+   * obstacle. The decisions are made by the NavigationController, and carried out here.
    */
   @Override
   public void run() {
-    State state = State.INIT;
+    NavigationController.State lastState = null;
     while (on) {
-      double[] lastPos = {0, 0};
+      METRICS.startIteration();
+      NavigationController.State state = controller.getState();
+      if (state != lastState) {
+        FinalDemo.TELEMETRY.state(TelemetryRecorder.NAVIGATION, state.ordinal(), 0);
+        lastState = state;
+      }
       switch (state) {
         case INIT:
-          FinalDemo.LCD.drawString("State: INIT", 0, 6);
-          if (isNavigating) {
-            state = State.TURNING;
-          }
+          FinalDemo.DISPLAY.setText(6, "State: INIT");
           break;
         case TURNING:
           FinalDemo.OC.setOn(false);
-          FinalDemo.LCD.drawString("State: TURN", 0, 6);
-          turnTo(destT);
-          if (facing(destT)) {
-            state = State.TRAVELING;
-            lastPos = odo.getXYT();
-            if (!FinalDemo.OC.getGyroOn() 
-                && dist(lastPos, new double[] {destX,destY}) > MIN_GYRO_DIST) {
-              FinalDemo.OC.startGyro();
-            }
-          }
+          FinalDemo.DISPLAY.setText(6, "State: TURN");
           break;
         case TRAVELING:
           FinalDemo.OC.setOn(OC_ON);
-          FinalDemo.LCD.drawString("State: TRVL", 0, 6);
-          updateT();
-          if (getDist() > CORRECTION_DIST && dist(lastPos, odo.getXYT()) > CORRECTION_DIST
-              && !facing(destT, 2)) {
-            // re-check heading and finish turning
-            state = State.TURNING;
-          } else if (!checkIfDone()) {
-            updateTravel();
-          } else { // Arrived
-            setSpeeds(0, 0); // stop
-            isNavigating = false; // finished traveling
-            state = State.INIT; // return to initialize case
-            FinalDemo.OC.stopGyro();
+          FinalDemo.DISPLAY.setText(6, "State: TRVL");
+          break;
+      }
+      switch (controller.step(odo.getXYT())) {
+        case TURN:
+          turnTo(controller.getDestT());
+          if (controller.turned(odo.getXYT()) && !FinalDemo.OC.getGyroOn()
+              && controller.needsGyro(odo.getXYT())) {
+            FinalDemo.OC.startGyro();
           }
           break;
+        case DRIVE:
+          updateTravel();
+          break;
+        case STOP: // Arrived
+          setSpeeds(0, 0); // stop
+          FinalDemo.OC.stopGyro();
+          break;
+        default:
       }
+      METRICS.endIteration();
       try {
         sleep(SLEEP_TIME);
       } catch (InterruptedException e) {
@@ -223,7 +192,7 @@ public class Navigation extends Thread {
    * Uses 1/2 second intervals to save compute time
    */
   public void waitUntilDone() {
-    while (isNavigating) {
+    while (controller.isNavigating()) {
       try {
         sleep(500);
       } catch (InterruptedException e) {
@@ -236,17 +205,9 @@ public class Navigation extends Thread {
    * Slows the motor speeds when nearing destination (<20cm)
    */
   private void updateTravel() {
-    double dist = getDist();
     // slows down upon nearing destination
-    if (dist > DIST_THRESH) {
-      double speed = FORWARD_SPEED;
-      //if (dist < SLOW_DIST) {
-        //speed = dist / SLOW_DIST * (FORWARD_SPEED - MIN_SPEED) + MIN_SPEED;
-      //}
-      setSpeeds((float) speed, (float) speed);
-    } else {
-      setSpeeds(0, 0);
-    }
+    int speed = controller.getSpeed(odo.getXYT());
+    setSpeeds(speed, speed);
     FinalDemo.LEFT_MOTOR.forward();
     FinalDemo.RIGHT_MOTOR.forward();
   }
@@ -257,7 +218,7 @@ public class Navigation extends Thread {
    * @return The distance from the current position to the destination, in cm
    */
   public double getDist() {
-    return dist(new double[] {destX, destY}, odo.getXYT());
+    return controller.getDist(odo.getXYT());
   }
 
   /**
@@ -266,67 +227,18 @@ public class Navigation extends Thread {
    * @return the angle from the robot to the destination, in cm
    */
   public double getDestT() {
-    return destT;
+    return controller.getDestT();
   }
 
-
   /**
-   * Updates the destT (heading) to reflect the real position of the robot
-   */
-  private void updateT() {
-    double dx = destX - odo.getXYT()[0];
-    double dy = destY - odo.getXYT()[1];
-    if (dy == 0) {
-      destT = (dx > 0) ? 90 : 270;
-    } else {
-      destT = Math.toDegrees(Math.atan(dx / dy)) + ((dy > 0) ? 0 : 180);
-      destT = (destT + 360) % 360; // normalize theta
-    }
-  }
-  
-  public double angleTo(double x, double y) {
-    double dx = x - odo.getXYT()[0];
-    double dy = y - odo.getXYT()[1];
-    if (dy == 0) {
-      return (dx > 0) ? 90 : 270;
-    } else {
-      double d = Math.toDegrees(Math.atan(dx / dy)) + ((dy > 0) ? 0 : 180);
-      return (d + 360) % 360; // normalize theta
-    }
-  }
-
-  /**
-   * Checks if the robot is facing a certain angle
-   * 
-   * @param ang The angle to check
-   * @return True if the robot is facing the given angle, false otherwise
-   */
-  private boolean facing(double ang) {
-    double diff = Math.abs(odo.getXYT()[2] - (ang + 360) % 360);
-    diff = (diff + 360) % 360;
-    return (diff < T_THRESH) || ((360 - diff) < T_THRESH);
-  }
-  
-  /**
-   * Checks if the robot is facing a certain angle
+   * Gets the angle from the robot to a point
    * 
-   * @param ang The angle to check
-   * @param threshold the allowable error in heading
-   * @return True if the robot is facing the given angle, false otherwise
+   * @param x The x of the point, in cm
+   * @param y The y of the point, in cm
+   * @return the angle from the robot to the point, in degrees
    */
-  private boolean facing(double ang, double threshold) {
-    double diff = Math.abs(odo.getXYT()[2] - (ang + 360) % 360);
-    diff = (diff + 360) % 360;
-    return (diff < threshold) || ((360 - diff) < threshold);
-  }
-
-  /**
-   * Checks if the robot has arrived at its destination
-   * 
-   * @return True if the robot has arrived, false otherwise
-   */
-  private boolean checkIfDone() {
-    return dist(odo.getXYT(), new double[] {destX, destY}) < DIST_THRESH;
+  public double angleTo(double x, double y) {
+    return NavigationController.angleTo(odo.getXYT(), x, y);
   }
 
   /**
@@ -387,21 +299,6 @@ public class Navigation extends Thread {
   private static int convertAngle(double angle) {
     return convertDistance(Math.PI * FinalDemo.TRACK * angle / 360.0);
   }
-
-  /**
-   * Gets distance (cm) between two coordinates
-   * 
-   * @param a position array 1 where a[0] is its x, and a[1] is its y
-   * @param b position array 2 where b[0] is its x, and b[1] is its y
-   * @return The distance between a and b, in cm
-   */
-  public static double dist(double[] a, double[] b) {
-    if (a.length < 2 || b.length < 2) {
-      return -1;
-    }
-    return Math.sqrt(Math.pow(a[0] - b[0], 2) + Math.pow(a[1] - b[1], 2)); // minimum distance
-                                                                           // formula
-  }
   
 
 
@@ -11,6 +11,9 @@
 package ca.mcgill.ecse211.odometer;
 
 import ca.mcgill.ecse211.demo.FinalDemo;
+import ca.mcgill.ecse211.telemetry.LoopMetrics;
+import ca.mcgill.ecse211.telemetry.MetricsRegistry;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
 
 public class Odometer extends OdometerData implements Runnable {
 
@@ -28,6 +31,8 @@ public class Odometer extends OdometerData implements Runnable {
 
   private static final long ODOMETER_PERIOD = 25; // odometer update period in ms, equiv to 40Hz
 
+  private static final LoopMetrics METRICS = MetricsRegistry.loop("odometer", ODOMETER_PERIOD);
+
   /**
    * This is the default constructor of this class. It initiates all motors and variables once.It
    * cannot be accessed externally.
@@ -77,9 +82,11 @@ public class Odometer extends OdometerData implements Runnable {
   @Override
   public void run() {
     long updateStart, updateEnd;
+    long lastStart = System.currentTimeMillis();
 
     while (true) {
       updateStart = System.currentTimeMillis();
+      METRICS.startIteration();
 
       // Measure differences then update
       int leftDiff = FinalDemo.LEFT_MOTOR.getTachoCount() - leftMotorTachoCount;
@@ -99,14 +106,23 @@ public class Odometer extends OdometerData implements Runnable {
 
       dt = Math.toDegrees((leftDist - rightDist) / FinalDemo.TRACK);
 
-      dx = disp * Math.sin(Math.toRadians(odo.getXYT()[2] + dt));
-      dy = disp * Math.cos(Math.toRadians(odo.getXYT()[2] + dt));
+      double t = Math.toRadians(odo.getXYT()[2] + dt);
+      dx = disp * Math.sin(t);
+      dy = disp * Math.cos(t);
 
 
       odo.update(dx, dy, dt);
 
       // this ensures that the odometer only runs once every period
       updateEnd = System.currentTimeMillis();
+      METRICS.endIteration();
+      if (FinalDemo.TELEMETRY.isActive()) {
+        double[] xyt = odo.getXYT();
+        FinalDemo.TELEMETRY.pose(xyt[0], xyt[1], xyt[2]);
+        FinalDemo.TELEMETRY.loop(TelemetryRecorder.ODOMETER,
+            updateStart - lastStart, updateEnd - updateStart);
+      }
+      lastStart = updateStart;
       if (updateEnd - updateStart < ODOMETER_PERIOD) {
         try {
           Thread.sleep(ODOMETER_PERIOD - (updateEnd - updateStart));
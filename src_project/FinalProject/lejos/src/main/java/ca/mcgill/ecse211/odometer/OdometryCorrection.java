@@ -1,8 +1,9 @@
 package ca.mcgill.ecse211.odometer;
 
-import ca.mcgill.ecse211.demo.AveragedBuffer;
 import ca.mcgill.ecse211.demo.FinalDemo;
-import lejos.hardware.Sound;
+import ca.mcgill.ecse211.telemetry.LoopMetrics;
+import ca.mcgill.ecse211.telemetry.MetricsRegistry;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
 
 /**
  * Represents a thread that uses a light sensor and gyro to update the values 
@@ -13,26 +14,31 @@ import lejos.hardware.Sound;
 public class OdometryCorrection extends Thread {
 
   /**
-   * This represents the minimum difference from the mean for a light sensor reading to be
-   * considered significant
+   * The time period between polling of the sensor, in ms
    */
-  private static final float LIGHT_THRESHOLD = 0.22f;//was .08
+  private static final long CORRECTION_PERIOD = 7;
   /**
-   * This represents the distance between lines on the grid, in cm
+   * The timing metrics of the correction loop
+   */
+  private static final LoopMetrics METRICS =
+      MetricsRegistry.loop("correction", CORRECTION_PERIOD);
+
+  /*
+   * States recorded to telemetry on the CORRECTION channel:
    */
-  public static final float LINE_SPACING = 30.48f;
   /**
-   * This represents the minimum distance for the robot to travel before reading another line
+   * Light correction was turned off
    */
-  private static final float DIST_THRESHOLD = 5;
+  public static final int OFF = 0;
   /**
-   * The time period between polling of the sensor, in ms
+   * Light correction was turned on
    */
-  private static final long CORRECTION_PERIOD = 7;
+  public static final int ON = 1;
   /**
-   * The maximum amount that the OC will round
+   * A line was seen, with the result of LineCorrector.update()
+   * and the corrected coordinate (NaN if nothing was corrected) as values
    */
-  private static final float ROUND_LIMIT = 10;
+  public static final int LINE = 2;
 
   private Odometer odometer;
 
@@ -61,15 +67,15 @@ public class OdometryCorrection extends Thread {
    */
   @Override
   public void run() {
-    int lineCount = 0;
     long correctionStart, correctionEnd;
-    double[] lastPos = null;
     float[] sample = new float[FinalDemo.LINE_SENSOR.sampleSize()];
-    AveragedBuffer<Float> samples = new AveragedBuffer<Float>(100);
+    LineCorrector corrector = new LineCorrector();
+    long lastStart = System.currentTimeMillis();
 
     while (true) {
       double[] pos = odometer.getXYT(); // current odo-position
       correctionStart = System.currentTimeMillis();
+      METRICS.startIteration();
       /*
        * -----------------
        * GYRO CORRECTION:
@@ -88,58 +94,36 @@ public class OdometryCorrection extends Thread {
        */
       FinalDemo.LINE_SENSOR.fetchSample(sample, 0);
 
-      /*
-       * To avoid a single line triggering this many times, verify that either we haven't seen a
-       * line yet at all (lastPos == null) or we're sufficiently far from the last line.
-       */
-      if (lightOn && (sample[0] < samples.getAvg() - LIGHT_THRESHOLD
-          && (lastPos == null || dist(pos, lastPos) > DIST_THRESHOLD))) {
-        // update last pos of line detected
-        lastPos = pos;
-        lineCount++;
-
-
-        double[] sensor = FinalDemo.toSensor(pos);
-        if (lineCount != 1) {
-          double roundedX = Math.round(sensor[0] / LINE_SPACING) * LINE_SPACING;
-          double roundedY = Math.round(sensor[1] / LINE_SPACING) * LINE_SPACING;
-          if (Math.abs(sensor[0] - roundedX) < Math.abs(sensor[1] - roundedY)) {
-            // here we round the x position
-            if (Math.abs(sensor[0] - roundedX) < ROUND_LIMIT) {
-              sensor[0] = roundedX;
-              odometer.setX(FinalDemo.toRobot(sensor)[0]);
-              if (FinalDemo.DEBUG_ON) {
-                Sound.beepSequenceUp();
-              }
-            } else {
-              //indicates severe error
-              if (FinalDemo.DEBUG_ON) {
-                Sound.buzz();
-              }
-            }
-          } else {
-            // here we round the y position
-            if (Math.abs(sensor[1] - roundedY) < ROUND_LIMIT) {
-              sensor[1] = roundedY;
-              odometer.setY(FinalDemo.toRobot(sensor)[1]);
-              if (FinalDemo.DEBUG_ON) {
-                Sound.beepSequenceUp();
-              }
-            } else {
-              //indicates severe error
-              if (FinalDemo.DEBUG_ON) {
-                Sound.buzz();
-              }
-            }
-          }
+      int result = corrector.update(pos, sample[0], lightOn);
+      if (result == LineCorrector.CORRECTED_X) {
+        odometer.setX(corrector.getCorrection());
+      } else if (result == LineCorrector.CORRECTED_Y) {
+        odometer.setY(corrector.getCorrection());
+      }
+      if (FinalDemo.DEBUG_ON) {
+        if (result == LineCorrector.CORRECTED_X || result == LineCorrector.CORRECTED_Y) {
+          FinalDemo.SOUND.beepSequenceUp();
+        } else if (result == LineCorrector.TOO_FAR) {
+          //indicates severe error
+          FinalDemo.SOUND.buzz();
         }
       }
-
-      // Add the sample to the rolling average
-      samples.add(sample[0]);
+      if (result != LineCorrector.NO_LINE) {
+        // only a correction has a new value, the others would repeat an old one
+        boolean corrected =
+            result == LineCorrector.CORRECTED_X || result == LineCorrector.CORRECTED_Y;
+        FinalDemo.TELEMETRY.state(TelemetryRecorder.CORRECTION, LINE, result,
+            corrected ? corrector.getCorrection() : Double.NaN, 0, 0);
+      }
 
       // this ensure the odometry correction occurs only once every period
       correctionEnd = System.currentTimeMillis();
+      METRICS.endIteration();
+      FinalDemo.TELEMETRY.sensor(TelemetryRecorder.LINE_SENSOR, sample[0], corrector.getAvg(),
+          pos);
+      FinalDemo.TELEMETRY.loop(TelemetryRecorder.CORRECTION,
+          correctionStart - lastStart, correctionEnd - correctionStart);
+      lastStart = correctionStart;
       if (correctionEnd - correctionStart < CORRECTION_PERIOD) {
         try {
           Thread.sleep(CORRECTION_PERIOD - (correctionEnd - correctionStart));
@@ -156,6 +140,9 @@ public class OdometryCorrection extends Thread {
    * @param value True turns the correction on, false is off
    */
   public void setOn(boolean t) {
+    if (lightOn != t) {
+      FinalDemo.TELEMETRY.state(TelemetryRecorder.CORRECTION, t ? ON : OFF, 0);
+    }
     lightOn = t;
   }
 
@@ -180,20 +167,6 @@ public class OdometryCorrection extends Thread {
     gyroOn = false;
   }
 
-  /**
-   * Calculates distance between two positions
-   * 
-   * @param a The first point, as an array of coordinates
-   * @param b The second point, as an array of coordinates
-   * @return The distance, in cm, between a and b
-   */
-  private static double dist(double[] a, double[] b) {
-    if (a.length < 2 || b.length < 2) {
-      return -1;
-    }
-    return Math.sqrt(Math.pow(a[0] - b[0], 2) + Math.pow(a[1] - b[1], 2)); // fixed distance formula
-  }
-  
   /**
    * Gets the value of the gyroscope
    * @return
@@ -0,0 +1,49 @@
+package ca.mcgill.ecse211.sensors;
+
+import lejos.robotics.SampleProvider;
+
+/**
+ * An UltrasonicPoller is an UltrasonicFilter fed straight from the
+ * ultrasonic sensor: each fetch() polls the sensor and runs the
+ * reading through the filter.
+ *
+ * @author jacob
+ */
+public class UltrasonicPoller extends UltrasonicFilter {
+  private SampleProvider us;
+  private float[] usData;
+
+  /**
+   * Creates a poller over the given sensor that takes the median
+   * of a default number of readings
+   * @param us The ultrasonic sensor, in distance mode
+   */
+  public UltrasonicPoller(SampleProvider us) {
+    super();
+    this.us = us;
+    usData = new float[us.sampleSize()];
+  }
+
+  /**
+   * Creates a poller over the given sensor
+   * @param us The ultrasonic sensor, in distance mode
+   * @param n The number of readings the median is taken over
+   * @param spikeThresh The jump (cm) from the filtered value past which
+   * a single reading is rejected as a spike
+   */
+  public UltrasonicPoller(SampleProvider us, int n, float spikeThresh) {
+    super(n, spikeThresh);
+    this.us = us;
+    usData = new float[us.sampleSize()];
+  }
+
+  /**
+   * Polls the sensor and runs the reading through the filter
+   *
+   * @return The filtered distance, in cm
+   */
+  public float fetch() {
+    us.fetchSample(usData, 0);
+    return push(usData[0] * 100f);
+  }
+}
@@ -0,0 +1,47 @@
+package ca.mcgill.ecse211.testing;
+
+import java.io.IOException;
+import ca.mcgill.ecse211.canhandling.CanColor;
+import ca.mcgill.ecse211.canhandling.Claw;
+import ca.mcgill.ecse211.canhandling.ColorModel;
+import lejos.hardware.Button;
+import lejos.hardware.lcd.LCD;
+
+/**
+ * Records color samples of known cans to data.csv, as lines of the form
+ * "label,r,g,b", for tools.ColorCalibrator to fit a color model to.
+ * 
+ * Up/down selects the color of the can in the claw, enter spins
+ * and records the can, and escape saves and exits.
+ */
+public class ColorRecorder {
+  public static void main(String[] args) throws IOException {
+    final SSHLogger log = new SSHLogger();
+    final CanColor[] colors = {CanColor.RED, CanColor.GREEN, CanColor.YELLOW, CanColor.BLUE};
+    ColorModel.Trainer trainer = new ColorModel.Trainer() {
+      @Override
+      public void add(CanColor label, double r, double g, double b) {
+        super.add(label, r, g, b);
+        log.println(label + "," + r + "," + g + "," + b);
+      }
+    };
+    int c = 0;
+    while (true) {
+      LCD.clear();
+      LCD.drawString("Can: " + colors[c], 0, 0);
+      LCD.drawString("n: " + trainer.getCount(colors[c]), 0, 1);
+      int b = Button.waitForAnyPress();
+      if (b == Button.ID_ESCAPE) {
+        break;
+      } else if (b == Button.ID_UP) {
+        c = (c + 1) % colors.length;
+      } else if (b == Button.ID_DOWN) {
+        c = (c + colors.length - 1) % colors.length;
+      } else if (b == Button.ID_ENTER) {
+        Claw.CLASSIFIER.getData(trainer, colors[c]);
+      }
+    }
+    log.close();
+    System.exit(0);
+  }
+}
@@ -1,5 +1,6 @@
 package ca.mcgill.ecse211.testing;
 
+import ca.mcgill.ecse211.sensors.UltrasonicPoller;
 import lejos.hardware.Button;
 import lejos.hardware.Sound;
 import lejos.hardware.ev3.LocalEV3;
@@ -16,6 +17,7 @@ public class USTester {
     SensorModes usSensor = new EV3UltrasonicSensor(LocalEV3.get().getPort("S4"));
     DIST = usSensor.getMode("Distance");
   }
+  private static final UltrasonicPoller FILTER = new UltrasonicPoller(DIST);
 
   public static void main(String[] args) throws InterruptedException {
     Sound.twoBeeps();
@@ -50,16 +52,11 @@ public class USTester {
 }
 
 /**
- * Polls the ultrasonic sensor and returns the result
+ * Polls the ultrasonic sensor and returns the filtered result
  * 
  * @return The US reading in cm
  */
 private static float readUS() {
-  float[] usData = new float[DIST.sampleSize()];
-  DIST.fetchSample(usData, 0);
-  if (usData[0] == 255) {
-    return -1;
-  }
-  return usData[0] * 100f;
+  return FILTER.fetch();
 }
 }
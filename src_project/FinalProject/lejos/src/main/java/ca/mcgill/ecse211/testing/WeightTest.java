@@ -48,6 +48,11 @@ public class WeightTest {
       } else {
         Sound.beepSequenceUp();
       }
+      LCD.clear();
+      LCD.drawString("Jams: " + FinalDemo.CLAW.getJamCount()
+          + "/" + FinalDemo.CLAW.getCloseCount(), 0, 0);
+      LCD.drawString("Retries: " + FinalDemo.CLAW.getRetryCount(), 0, 1);
+      LCD.drawString("Worst: " + FinalDemo.CLAW.getWorstCloseTime() + "ms", 0, 2);
       if (Button.waitForAnyPress() == Button.ID_ESCAPE) break;
     }
   }
@@ -0,0 +1,41 @@
+package ca.mcgill.ecse211.wifi;
+
+import java.util.Map;
+import ca.mcgill.ecse211.WiFiClient.WifiConnection;
+import lejos.hardware.lcd.LCD;
+
+/**
+ * Gets the values that set up a game from the server, over WiFi,
+ * and loads them into GameSettings.
+ * @author jacob
+ */
+public abstract class GameServer {
+
+  /**
+   * The IP address of the server
+   */
+  private static final String SERVER_IP = "192.168.2.4";
+
+  /**
+   * Communicates with the server to get access to game information
+   * Initializes the public static fields of GameSettings, so that once
+   * this method has been called, all information about the game map can
+   * be accessed using them.
+   */
+  public static void init() {
+
+    // Initialize WifiConnection class
+    WifiConnection conn = new WifiConnection(SERVER_IP, GameSettings.TEAM_NUMBER, false);
+
+    // Connect to server and get the data, catching any errors that might occur
+    try {
+      Map<?, ?> data = conn.getData();
+      LCD.clear();
+      GameSettings.initialized = GameSettings.load(data);
+    } catch (Exception e) {
+      System.err.println("Error: " + e.getMessage());
+      GameSettings.initialized = false;
+    }
+
+  }
+}
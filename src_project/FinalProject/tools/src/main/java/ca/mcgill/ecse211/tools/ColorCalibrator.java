@@ -0,0 +1,94 @@
+package ca.mcgill.ecse211.tools;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import ca.mcgill.ecse211.canhandling.CanColor;
+import ca.mcgill.ecse211.canhandling.ColorModel;
+
+/**
+ * A workstation tool that fits a ColorModel to recorded color samples
+ * and writes it to a model file, to be copied onto the brick next to
+ * the program jar. This way the robot can be recalibrated for a new venue
+ * without editing the averages in CanColor and reflashing.
+ *
+ * Samples are read from CSV files of the form "label,r,g,b", as written
+ * by testing.ColorRecorder. Blank lines and lines that don't start with a
+ * can color are skipped.
+ *
+ * Usage: ColorCalibrator [-o model file] [-r reject distance] log.csv...
+ *
+ * @author group 6
+ */
+public class ColorCalibrator {
+
+  public static void main(String[] args) throws IOException {
+    String output = "colors.model";
+    double rejectDist = ColorModel.DEFAULT_REJECT_DIST;
+    ColorModel.Trainer trainer = new ColorModel.Trainer();
+    int numFiles = 0;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-o") && i + 1 < args.length) {
+        output = args[++i];
+      } else if (args[i].equals("-r") && i + 1 < args.length) {
+        rejectDist = Double.parseDouble(args[++i]);
+      } else {
+        read(args[i], trainer);
+        numFiles++;
+      }
+    }
+    if (numFiles == 0) {
+      System.err.println("Usage: ColorCalibrator [-o model file] [-r reject distance] log.csv...");
+      System.exit(1);
+    }
+
+    ColorModel model;
+    try {
+      model = trainer.fit(rejectDist);
+    } catch (IllegalStateException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+      return;
+    }
+    for (int i = 0; i < model.getNumColors(); i++) {
+      double[] mean = model.getMean(i);
+      double[] cov = model.getCovariance(i);
+      System.out.printf("%-7s n=%-6d mean=(%.4f, %.4f) sd=(%.4f, %.4f)%n",
+          model.getColor(i), trainer.getCount(model.getColor(i)),
+          mean[0], mean[1], Math.sqrt(cov[0]), Math.sqrt(cov[2]));
+    }
+    model.save(output);
+    System.out.println("Wrote " + output);
+  }
+
+  /**
+   * Reads the samples in a CSV log into a trainer
+   * @param path The CSV file
+   * @param trainer The trainer to add the samples to
+   * @throws IOException if the file cannot be read
+   */
+  private static void read(String path, ColorModel.Trainer trainer) throws IOException {
+    BufferedReader in = new BufferedReader(new FileReader(path));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.trim().split(",");
+        if (fields.length < 4) {
+          continue;
+        }
+        CanColor label = CanColor.getWithName(fields[0].trim());
+        if (label == CanColor.UNKNOWN) {
+          continue;
+        }
+        try {
+          trainer.add(label, Double.parseDouble(fields[1]),
+              Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+        } catch (NumberFormatException e) {
+          // not a sample line
+        }
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
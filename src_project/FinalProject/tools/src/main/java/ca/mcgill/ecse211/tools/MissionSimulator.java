@@ -0,0 +1,669 @@
+package ca.mcgill.ecse211.tools;
+
+import java.awt.geom.Point2D;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import ca.mcgill.ecse211.demo.CanFinder;
+import ca.mcgill.ecse211.demo.FinalDemo;
+import ca.mcgill.ecse211.demo.ScanProfile;
+import ca.mcgill.ecse211.navigation.Navigation;
+import ca.mcgill.ecse211.navigation.NavigationController;
+import ca.mcgill.ecse211.odometer.LineCorrector;
+import ca.mcgill.ecse211.odometer.Transform;
+import ca.mcgill.ecse211.sensors.SensorMount;
+import ca.mcgill.ecse211.wifi.GameSettings;
+
+/**
+ * A headless, deterministic simulation of one mission of the final demo:
+ * from the start corner through the tunnel to the search zone, a scan for
+ * cans, driving up to the closest can, and back through the tunnel to the
+ * start corner. Localizations are not simulated in detail; they reset the
+ * odometer to the true pose with a small error.
+ *
+ * The robot's own decision logic runs against a simple model of the robot:
+ * navigation is a NavigationController, odometry correction is a
+ * LineCorrector and the can search is a ScanProfile, each with the given
+ * Params. The model has wheels of slightly wrong size that slip, a line
+ * sensor over the grid, a gyroscope that drifts and reads whole degrees,
+ * and an ultrasonic sensor that sees the cans. All noise comes from one
+ * seed, so a mission with the same parameters and seed always gives the
+ * same result, whatever thread it runs on.
+ *
+ * GameSettings must be loaded (see loadLayout()) before missions run.
+ * @author jacob
+ */
+public class MissionSimulator {
+  /**
+   * The time step of the model, in ms
+   */
+  private static final int STEP = 1;
+  /**
+   * The periods of the odometer, correction, navigation and scanning loops, in ms
+   */
+  private static final int ODOMETER_PERIOD = 25;
+  private static final int CORRECTION_PERIOD = 7;
+  private static final int NAV_PERIOD = 20;
+  private static final int SCAN_PERIOD = 30;
+  /**
+   * The time taken by one light localization, in ms
+   */
+  private static final int LOCALIZE_TIME = 10000;
+  /**
+   * The longest a mission may take before it counts as failed, in ms
+   */
+  private static final int MAX_TIME = 600000;
+  /**
+   * The largest relative error in the size of each wheel, and in the track
+   */
+  private static final double WHEEL_ERROR = 0.01;
+  /**
+   * The standard deviation of wheel slip, relative to the distance turned
+   */
+  private static final double SLIP = 0.02;
+  /**
+   * The standard deviation of the pose error left by a localization, in cm and degrees
+   */
+  private static final double LOCALIZE_XY_ERROR = 0.5;
+  private static final double LOCALIZE_T_ERROR = 1;
+  /**
+   * The largest drift of the gyroscope, in deg/s
+   */
+  private static final double GYRO_DRIFT = 0.1;
+  /**
+   * The width of a grid line, in cm
+   */
+  private static final double LINE_WIDTH = 0.6;
+  /**
+   * The line sensor's reading over the board and over a line, and its noise
+   */
+  private static final double BOARD_LIGHT = 0.55;
+  private static final double LINE_LIGHT = 0.15;
+  private static final double LIGHT_NOISE = 0.01;
+  /**
+   * Half the angle of the ultrasonic beam, in degrees, and the noise of a reading, in cm
+   */
+  private static final double BEAM_HALF_WIDTH = 12;
+  private static final double US_NOISE = 0.5;
+  /**
+   * The number of cans in the search zone, and how close two cans may be, in cm
+   */
+  private static final int CANS = 3;
+  private static final double CAN_SPACING = 20;
+  /**
+   * How far from the middle of the tunnel the robot may be before it hits a wall, in cm
+   */
+  private static final double TUNNEL_CLEARANCE = FinalDemo.GRID_WIDTH / 2 - 9;
+  /**
+   * The penalty added to the score of a failed mission
+   */
+  private static final double FAIL_PENALTY = 1000;
+
+  /**
+   * The parameters of the robot that can be tuned
+   */
+  public static class Params implements Cloneable {
+    public int forwardSpeed = NavigationController.FORWARD_SPEED;
+    public double tThresh = NavigationController.T_THRESH;
+    public double correctionDist = NavigationController.CORRECTION_DIST;
+    public float roundLimit = LineCorrector.ROUND_LIMIT;
+    public float distThreshold = LineCorrector.DIST_THRESHOLD;
+    public int scanSpeed = CanFinder.SCAN_SPEED;
+    public float edgeJump = ScanProfile.EDGE_JUMP;
+    public int canStopDist = CanFinder.CAN_STOP_DIST;
+
+    /**
+     * The names of the parameters, as used by set()
+     */
+    public static final String[] NAMES = {"nav.forward_speed", "nav.t_thresh",
+        "nav.correction_dist", "oc.round", "oc.dist", "scan.speed", "scan.jump",
+        "can.stop_dist"};
+
+    /**
+     * Sets a parameter by name
+     * @param name One of NAMES
+     * @param value The value of the parameter
+     */
+    public void set(String name, double value) {
+      switch (name) {
+        case "nav.forward_speed":
+          forwardSpeed = (int) value;
+          break;
+        case "nav.t_thresh":
+          tThresh = value;
+          break;
+        case "nav.correction_dist":
+          correctionDist = value;
+          break;
+        case "oc.round":
+          roundLimit = (float) value;
+          break;
+        case "oc.dist":
+          distThreshold = (float) value;
+          break;
+        case "scan.speed":
+          scanSpeed = (int) value;
+          break;
+        case "scan.jump":
+          edgeJump = (float) value;
+          break;
+        case "can.stop_dist":
+          canStopDist = (int) value;
+          break;
+        default:
+          throw new IllegalArgumentException("No such parameter: " + name);
+      }
+    }
+
+    @Override
+    public Params clone() {
+      try {
+        return (Params) super.clone();
+      } catch (CloneNotSupportedException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return String.format("speed=%d t=%.2f cdist=%.1f round=%.1f odist=%.1f scan=%d "
+          + "jump=%.1f stop=%d", forwardSpeed, tThresh, correctionDist, roundLimit,
+          distThreshold, scanSpeed, edgeJump, canStopDist);
+    }
+  }
+
+  /**
+   * The outcome of one mission
+   */
+  public static class Result {
+    /**
+     * The time the mission took, in s
+     */
+    public double time;
+    /**
+     * How far the robot ended from the start corner, in cm
+     */
+    public double poseError;
+    /**
+     * How far the robot's heading ended from where it meant to face, in degrees
+     */
+    public double headingError;
+    /**
+     * How far the can the robot went for was from the nearest real can, in cm
+     */
+    public double canError;
+    /**
+     * Whether or not the robot finished the mission without hitting the tunnel
+     * or running out of time
+     */
+    public boolean completed;
+
+    /**
+     * Combines the outcome into one number, where lower is better:
+     * seconds, plus cm of pose and can error, plus degrees of heading
+     * error, plus a penalty if the mission failed
+     * @return The score of the mission
+     */
+    public double score() {
+      return time + poseError + headingError + canError + (completed ? 0 : FAIL_PENALTY);
+    }
+  }
+
+  private final Params params;
+  private final Random random;
+  private final NavigationController nav;
+  private final LineCorrector corrector;
+  private final ScanProfile profile;
+  private final double leftScale;
+  private final double rightScale;
+  private final double track;
+  private final double gyroDrift;
+  private final double[][] cans = new double[CANS][];
+
+  private long now = 0;
+  // the true pose, and the odometer's
+  private double x;
+  private double y;
+  private double t;
+  private double[] odo = new double[3];
+  // the true pose of the ultrasonic sensor
+  private final Transform usPose = new Transform();
+  private final double[] usXYT = new double[3];
+  // the wheels: speed and target speed in deg/s, position in deg
+  private double leftSpeed;
+  private double rightSpeed;
+  private double leftTarget;
+  private double rightTarget;
+  private double leftTacho;
+  private double rightTacho;
+  private int leftCount;
+  private int rightCount;
+  private boolean ocOn = false;
+  private boolean gyroOn = false;
+  private double gyroStart;
+  private double gyroTurned;
+  private long gyroTime;
+  private boolean hitTunnel = false;
+  private double[] tunnelFrom = null;
+  private double[] tunnelTo = null;
+
+  /**
+   * Sets up a mission
+   * @param params The parameters of the robot
+   * @param seed The seed of all noise in the mission
+   */
+  public MissionSimulator(Params params, long seed) {
+    this.params = params;
+    this.random = new Random(seed);
+    nav = new NavigationController(params.forwardSpeed, params.tThresh, params.correctionDist,
+        NavigationController.DIST_THRESH);
+    corrector = new LineCorrector(LineCorrector.LIGHT_THRESHOLD, params.distThreshold,
+        params.roundLimit);
+    profile = new ScanProfile(params.edgeJump, ScanProfile.MIN_EDGE_SAMPLES,
+        ScanProfile.MAX_CAN_WIDTH);
+    leftScale = 1 + WHEEL_ERROR * (2 * random.nextDouble() - 1);
+    rightScale = 1 + WHEEL_ERROR * (2 * random.nextDouble() - 1);
+    track = FinalDemo.TRACK_WITHOUT_CAN * (1 + WHEEL_ERROR * (2 * random.nextDouble() - 1));
+    gyroDrift = GYRO_DRIFT * (2 * random.nextDouble() - 1);
+    placeCans();
+  }
+
+  /**
+   * Loads a game layout into GameSettings: the start zone in corner 0,
+   * a tunnel going east to the island, and a search zone on the island
+   */
+  public static void loadLayout() {
+    Map<String, Long> data = new HashMap<String, Long>();
+    data.put("RedTeam", 6L);
+    data.put("GreenTeam", 1L);
+    data.put("RedCorner", 0L);
+    putRect(data, "Red", 0, 0, 4, 4);
+    putRect(data, "Island", 6, 0, 15, 9);
+    putRect(data, "TNR", 4, 2, 6, 3);
+    putRect(data, "SZR", 7, 5, 10, 8);
+    GameSettings.initialized = GameSettings.load(data);
+  }
+
+  /**
+   * Adds a rectangle to game data, the way the server sends it
+   * @param data The game data
+   * @param prefix The name of the rectangle
+   * @param llx The x of the lower left corner
+   * @param lly The y of the lower left corner
+   * @param urx The x of the upper right corner
+   * @param ury The y of the upper right corner
+   */
+  private static void putRect(Map<String, Long> data, String prefix, long llx, long lly,
+      long urx, long ury) {
+    data.put(prefix + "_LL_x", llx);
+    data.put(prefix + "_LL_y", lly);
+    data.put(prefix + "_UR_x", urx);
+    data.put(prefix + "_UR_y", ury);
+  }
+
+  /**
+   * Runs the mission
+   * @return The outcome of the mission
+   */
+  public Result run() {
+    Result result = new Result();
+    double g = FinalDemo.GRID_WIDTH;
+    Point2D corner = GameSettings.getStartingCornerPoint();
+    //the robot starts roughly on the corner, and localizes there
+    x = corner.getX() + LOCALIZE_XY_ERROR * random.nextGaussian();
+    y = corner.getY() + LOCALIZE_XY_ERROR * random.nextGaussian();
+    t = (LOCALIZE_T_ERROR * random.nextGaussian() + 360) % 360;
+    odo = new double[] {corner.getX(), corner.getY(), 0};
+    localize(corner.getX(), corner.getY());
+
+    // to the search zone, as in CanFinder.goToSearchArea(true)
+    travelTo(GameSettings.safeLocStart);
+    localize(GameSettings.safeLocStart[0], GameSettings.safeLocStart[1]);
+    turnTo(0);
+    travelTo(GameSettings.tunnelEntrance);
+    throughTunnel(GameSettings.tunnelEntrance, GameSettings.tunnelExit);
+    travelTo(new double[] {GameSettings.startSearch[0] * g, GameSettings.startSearch[1] * g});
+
+    // find and drive up to a can, as in CanFinder.search() and grabNextCan()
+    double[] can = search();
+    if (can != null) {
+      result.canError = Double.MAX_VALUE;
+      for (double[] c : cans) {
+        result.canError = Math.min(result.canError, NavigationController.dist(can, c));
+      }
+      double a = NavigationController.angleTo(odo, can[0], can[1]);
+      travelTo(new double[] {can[0] - params.canStopDist * Math.sin(Math.toRadians(a)),
+          can[1] - params.canStopDist * Math.cos(Math.toRadians(a))});
+      turnTo(NavigationController.angleTo(odo, can[0], can[1]) + 180);
+    } else {
+      result.canError = FinalDemo.GRID_WIDTH;
+    }
+
+    // back to the start corner, as in CanFinder.goToStart(true) and dropOffCan()
+    travelTo(GameSettings.safeLocIsland);
+    localize(GameSettings.safeLocIsland[0], GameSettings.safeLocIsland[1]);
+    travelTo(GameSettings.tunnelExit);
+    throughTunnel(GameSettings.tunnelExit, GameSettings.tunnelEntrance);
+    travelTo(GameSettings.safeLocStart);
+    localize(GameSettings.safeLocStart[0], GameSettings.safeLocStart[1]);
+    travelTo(new double[] {corner.getX(), corner.getY()});
+    turnTo(45);
+
+    result.time = now / 1000.0;
+    result.poseError = Math.hypot(x - corner.getX(), y - corner.getY());
+    result.headingError = Math.abs(angleDiff(t, 45));
+    result.completed = !hitTunnel && now < MAX_TIME;
+    return result;
+  }
+
+  /**
+   * Places the cans at random in the search zone, apart from each other
+   */
+  private void placeCans() {
+    double g = FinalDemo.GRID_WIDTH;
+    double llx = (GameSettings.searchZone.LLx + 0.5) * g;
+    double lly = (GameSettings.searchZone.LLy + 0.5) * g;
+    double w = (GameSettings.searchZone.URx - GameSettings.searchZone.LLx - 1) * g;
+    double h = (GameSettings.searchZone.URy - GameSettings.searchZone.LLy - 1) * g;
+    for (int i = 0; i < CANS; i++) {
+      boolean apart;
+      do {
+        cans[i] = new double[] {llx + random.nextDouble() * w, lly + random.nextDouble() * h};
+        apart = true;
+        for (int j = 0; j < i; j++) {
+          apart &= NavigationController.dist(cans[i], cans[j]) > CAN_SPACING;
+        }
+      } while (!apart);
+    }
+  }
+
+  /**
+   * Drives through the tunnel, watching for the robot hitting its walls
+   * @param from The end of the tunnel the robot is at
+   * @param to The other end of the tunnel
+   */
+  private void throughTunnel(double[] from, double[] to) {
+    tunnelFrom = from;
+    tunnelTo = to;
+    travelTo(to);
+    tunnelFrom = tunnelTo = null;
+  }
+
+  /**
+   * Resets the odometer to the true pose, with a small error, as a light
+   * localization at a cross would. Does nothing if the robot is too far from
+   * the cross to see its lines.
+   * @param cx The x of the cross
+   * @param cy The y of the cross
+   */
+  private void localize(double cx, double cy) {
+    now += LOCALIZE_TIME;
+    if (Math.hypot(x - cx, y - cy) < FinalDemo.GRID_WIDTH / 2) {
+      odo[0] = x + LOCALIZE_XY_ERROR * random.nextGaussian();
+      odo[1] = y + LOCALIZE_XY_ERROR * random.nextGaussian();
+      odo[2] = (t + LOCALIZE_T_ERROR * random.nextGaussian() + 360) % 360;
+    }
+  }
+
+  /**
+   * Travels to a point, as Navigation.travelTo() and waitUntilDone() do
+   * @param dest The point, as {x, y}
+   */
+  private void travelTo(double[] dest) {
+    gyroOn = false;
+    nav.travelTo(dest[0], dest[1], odo.clone());
+    while (nav.isNavigating() && now < MAX_TIME) {
+      switch (nav.getState()) {
+        case TURNING:
+          ocOn = false;
+          break;
+        case TRAVELING:
+          ocOn = true;
+          break;
+        default:
+      }
+      switch (nav.step(odo.clone())) {
+        case TURN:
+          turnTo(nav.getDestT());
+          if (nav.turned(odo.clone()) && !gyroOn && nav.needsGyro(odo)) {
+            startGyro();
+          }
+          break;
+        case DRIVE:
+          int speed = nav.getSpeed(odo);
+          leftTarget = speed;
+          rightTarget = speed;
+          break;
+        case STOP:
+          leftTarget = 0;
+          rightTarget = 0;
+          gyroOn = false;
+          break;
+        default:
+      }
+      advance(NAV_PERIOD);
+    }
+  }
+
+  /**
+   * Turns on the spot to a heading, blocking, as Navigation.turnTo() does
+   * @param theta The heading, in degrees
+   */
+  private void turnTo(double theta) {
+    double ang = (theta - odo[2] + 360) % 360;
+    double wheel = Math.toDegrees(Math.PI * FinalDemo.TRACK_WITHOUT_CAN * ang / 360.0
+        / FinalDemo.WHEEL_RAD);
+    if (ang >= 180) {
+      wheel = Math.toDegrees(Math.PI * FinalDemo.TRACK_WITHOUT_CAN * (360 - ang) / 360.0
+          / FinalDemo.WHEEL_RAD);
+      wheel = -wheel;
+    }
+    rotate((int) wheel, (int) -wheel, Navigation.ROTATE_SPEED);
+    nav.updateT(odo.clone());
+  }
+
+  /**
+   * Turns both wheels by a number of degrees, and waits for them to stop
+   * @param left The rotation of the left wheel, in degrees
+   * @param right The rotation of the right wheel, in degrees
+   * @param speed The top speed of the wheels, in deg/s
+   */
+  private void rotate(int left, int right, int speed) {
+    double leftEnd = leftTacho + left;
+    double rightEnd = rightTacho + right;
+    while ((Math.abs(leftEnd - leftTacho) > 0.5 || Math.abs(rightEnd - rightTacho) > 0.5)
+        && now < MAX_TIME) {
+      leftTarget = towards(leftEnd - leftTacho, speed);
+      rightTarget = towards(rightEnd - rightTacho, speed);
+      advance(STEP);
+    }
+    leftTarget = rightTarget = leftSpeed = rightSpeed = 0;
+  }
+
+  /**
+   * The speed a regulated motor runs at to stop at a position
+   * @param remaining The rotation left, in degrees
+   * @param speed The top speed, in deg/s
+   * @return The target speed, in deg/s
+   */
+  private static double towards(double remaining, int speed) {
+    double v = Math.min(speed, Math.sqrt(2 * FinalDemo.ACCELERATION * Math.abs(remaining)));
+    return Math.signum(remaining) * Math.max(v, 5);
+  }
+
+  /**
+   * Scans for cans, as CanFinder.search() does
+   * @return The can found, as {x, y}, or null
+   */
+  private double[] search() {
+    turnTo(GameSettings.searchAngles[0]);
+    leftTarget = params.scanSpeed;
+    rightTarget = -params.scanSpeed;
+    profile.clear();
+    while (odo[2] < GameSettings.searchAngles[1] && odo[2] + 2 >= GameSettings.searchAngles[0]
+        && !profile.isFull() && now < MAX_TIME) {
+      profile.add(readUS(), odo[2]);
+      advance(SCAN_PERIOD);
+    }
+    leftTarget = rightTarget = 0;
+    advance(NAV_PERIOD);
+    return profile.findCan(odo[0], odo[1], GameSettings.searchZone);
+  }
+
+  /**
+   * Reads the ultrasonic sensor: the distance to the face of the
+   * nearest can in the beam
+   * @return The reading, in cm
+   */
+  private float readUS() {
+    double best = 255;
+    double[] sensor = SensorMount.ULTRASONIC.toSensor(usPose.set(x, y, t), usPose).toPose(usXYT);
+    for (double[] c : cans) {
+      double d = Math.hypot(c[0] - sensor[0], c[1] - sensor[1]);
+      double bearing = NavigationController.angleTo(sensor, c[0], c[1]);
+      if (Math.abs(angleDiff(bearing, sensor[2])) < BEAM_HALF_WIDTH) {
+        best = Math.min(best, d - ScanProfile.CAN_RAD);
+      }
+    }
+    if (best >= 255) {
+      return 255;
+    }
+    return (float) (best + US_NOISE * random.nextGaussian());
+  }
+
+  /**
+   * Starts holding the heading with the gyroscope, as OdometryCorrection.startGyro() does
+   */
+  private void startGyro() {
+    gyroOn = true;
+    gyroStart = odo[2];
+    gyroTurned = 0;
+    gyroTime = now;
+  }
+
+  /**
+   * Runs the model and the robot's loops for some time
+   * @param ms The time to run for, in ms
+   */
+  private void advance(int ms) {
+    for (int i = 0; i < ms; i += STEP) {
+      now += STEP;
+      physics(STEP / 1000.0);
+      if (now % ODOMETER_PERIOD == 0) {
+        odometer();
+      }
+      if (now % CORRECTION_PERIOD == 0) {
+        correction();
+      }
+    }
+  }
+
+  /**
+   * Moves the wheels and the robot for one step
+   * @param dt The length of the step, in s
+   */
+  private void physics(double dt) {
+    leftSpeed = accelerate(leftSpeed, leftTarget, dt);
+    rightSpeed = accelerate(rightSpeed, rightTarget, dt);
+    double l = leftSpeed * dt;
+    double r = rightSpeed * dt;
+    leftTacho += l;
+    rightTacho += r;
+    double leftDist = l * Math.PI * FinalDemo.WHEEL_RAD * leftScale / 180
+        * (1 + SLIP * random.nextGaussian());
+    double rightDist = r * Math.PI * FinalDemo.WHEEL_RAD * rightScale / 180
+        * (1 + SLIP * random.nextGaussian());
+    double disp = 0.5 * (leftDist + rightDist);
+    double dt2 = Math.toDegrees((leftDist - rightDist) / track);
+    gyroTurned += dt2;
+    t = (t + dt2 + 360) % 360;
+    x += disp * Math.sin(Math.toRadians(t));
+    y += disp * Math.cos(Math.toRadians(t));
+    if (tunnelFrom != null && distToLine(tunnelFrom, tunnelTo) > TUNNEL_CLEARANCE) {
+      hitTunnel = true;
+    }
+  }
+
+  /**
+   * Changes a wheel's speed towards its target, within the motors' acceleration
+   * @param v The current speed, in deg/s
+   * @param target The target speed, in deg/s
+   * @param dt The length of the step, in s
+   * @return The new speed, in deg/s
+   */
+  private static double accelerate(double v, double target, double dt) {
+    double dv = FinalDemo.ACCELERATION * dt;
+    return Math.abs(target - v) <= dv ? target : v + Math.signum(target - v) * dv;
+  }
+
+  /**
+   * Updates the odometer from the whole-degree tacho counts, as Odometer.run() does
+   */
+  private void odometer() {
+    int leftDiff = (int) leftTacho - leftCount;
+    int rightDiff = (int) rightTacho - rightCount;
+    leftCount += leftDiff;
+    rightCount += rightDiff;
+    double distMult = Math.PI * FinalDemo.WHEEL_RAD / 180;
+    double leftDist = leftDiff * distMult;
+    double rightDist = rightDiff * distMult;
+    double disp = 0.5 * (leftDist + rightDist);
+    double dt = Math.toDegrees((leftDist - rightDist) / FinalDemo.TRACK_WITHOUT_CAN);
+    odo[0] += disp * Math.sin(Math.toRadians(odo[2] + dt));
+    odo[1] += disp * Math.cos(Math.toRadians(odo[2] + dt));
+    odo[2] = (odo[2] + (360 + dt) % 360) % 360;
+  }
+
+  /**
+   * Runs one iteration of OdometryCorrection: the gyroscope, then the line sensor
+   */
+  private void correction() {
+    if (gyroOn) {
+      double gyro = Math.round(gyroTurned + gyroDrift * (now - gyroTime) / 1000.0);
+      odo[2] = gyroStart + gyro;
+    }
+    double[] sensor = LineCorrector.toSensor(new double[] {x, y, t});
+    double sample = onLine(sensor[0]) || onLine(sensor[1]) ? LINE_LIGHT : BOARD_LIGHT;
+    sample += LIGHT_NOISE * random.nextGaussian();
+    int result = corrector.update(odo.clone(), (float) sample, ocOn);
+    if (result == LineCorrector.CORRECTED_X) {
+      odo[0] = corrector.getCorrection();
+    } else if (result == LineCorrector.CORRECTED_Y) {
+      odo[1] = corrector.getCorrection();
+    }
+  }
+
+  /**
+   * Returns whether or not a coordinate is on a grid line
+   * @param c The coordinate, in cm
+   * @return True if the coordinate is within half a line width of a line
+   */
+  private static boolean onLine(double c) {
+    double g = FinalDemo.GRID_WIDTH;
+    double d = Math.abs(c - Math.round(c / g) * g);
+    return d < LINE_WIDTH / 2;
+  }
+
+  /**
+   * Returns the distance from the robot to the line through two points
+   * @param a The first point
+   * @param b The second point
+   * @return The distance, in cm
+   */
+  private double distToLine(double[] a, double[] b) {
+    double dx = b[0] - a[0];
+    double dy = b[1] - a[1];
+    return Math.abs(dy * (x - a[0]) - dx * (y - a[1])) / Math.hypot(dx, dy);
+  }
+
+  /**
+   * Returns the signed difference between two headings
+   * @param a The first heading, in degrees
+   * @param b The second heading, in degrees
+   * @return a - b, between -180 and 180
+   */
+  private static double angleDiff(double a, double b) {
+    double d = ((a - b) % 360 + 360) % 360;
+    return d > 180 ? d - 360 : d;
+  }
+}
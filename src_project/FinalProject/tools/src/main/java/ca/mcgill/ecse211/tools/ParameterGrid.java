@@ -0,0 +1,96 @@
+package ca.mcgill.ecse211.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The parameter values given to a workstation tool as
+ * -p name=value[,value...] options, and every combination of them.
+ * The grid starts at the first combination, and next() steps through
+ * the rest, changing the first parameter fastest.
+ * @author jacob
+ */
+public class ParameterGrid {
+  private final String[] allowed;
+  private final List<String> names = new ArrayList<String>();
+  private final List<double[]> sweeps = new ArrayList<double[]>();
+  private int[] at = new int[0];
+
+  /**
+   * Creates an empty grid
+   * @param allowed The names of the parameters the tool can set
+   */
+  public ParameterGrid(String[] allowed) {
+    this.allowed = allowed;
+  }
+
+  /**
+   * Adds a parameter to the grid, and goes back to the first combination
+   * @param option The argument of a -p option, as name=value[,value...]
+   * @throws IllegalArgumentException if the name is not allowed, or there
+   * are no values or a value is not a number
+   */
+  public void add(String option) {
+    String[] p = option.split("=");
+    String[] v = p.length == 2 ? p[1].split(",") : new String[0];
+    double[] sweep = new double[v.length];
+    for (int j = 0; j < v.length; j++) {
+      sweep[j] = Double.parseDouble(v[j]);
+    }
+    if (!Arrays.asList(allowed).contains(p[0]) || sweep.length == 0) {
+      throw new IllegalArgumentException("Bad parameter " + option + ", expected one of "
+          + Arrays.toString(allowed) + " with values");
+    }
+    names.add(p[0]);
+    sweeps.add(sweep);
+    at = new int[names.size()];
+  }
+
+  /**
+   * @return The number of parameters in the grid
+   */
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * @param i The index of a parameter, in the order they were added
+   * @return The name of the parameter
+   */
+  public String getName(int i) {
+    return names.get(i);
+  }
+
+  /**
+   * @param i The index of a parameter, in the order they were added
+   * @return The value of the parameter in the current combination
+   */
+  public double getValue(int i) {
+    return sweeps.get(i)[at[i]];
+  }
+
+  /**
+   * Moves on to the next combination
+   * @return False if every combination has been visited, which goes back to the first
+   */
+  public boolean next() {
+    int i = 0;
+    while (i < at.length && ++at[i] == sweeps.get(i).length) {
+      at[i++] = 0;
+    }
+    return i < at.length;
+  }
+
+  /**
+   * @return The current combination, as name=value pairs separated by spaces
+   */
+  @Override
+  public String toString() {
+    StringBuilder label = new StringBuilder();
+    for (int i = 0; i < at.length; i++) {
+      label.append(getName(i)).append('=').append(getValue(i)).append(' ');
+    }
+    return label.toString();
+  }
+}
@@ -0,0 +1,162 @@
+package ca.mcgill.ecse211.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A workstation tool that tunes the robot's parameters in simulation. Every
+ * combination of the swept parameter values is run through the same set of
+ * simulated missions (see MissionSimulator), in parallel on every core, and
+ * the combinations with the best mean score are reported next to the
+ * robot's current parameters.
+ *
+ * Each mission is seeded by its index alone, so every combination faces the
+ * same wheels, noise and cans, and the output does not depend on the number
+ * of cores or the order the missions ran in.
+ *
+ * Usage: ParameterSweep [-seeds n] [-top k] [-p name=value[,value...]]...
+ * @author jacob
+ */
+public class ParameterSweep {
+  /**
+   * The number of missions run by one task before it stops splitting
+   */
+  private static final int MIN_TASK_SIZE = 4;
+
+  /**
+   * Runs a range of missions, splitting it in half until it is small
+   */
+  private static class SweepTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final MissionSimulator.Params[] combos;
+    private final int seeds;
+    private final MissionSimulator.Result[] results;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates a task for missions from (inclusive) to to (exclusive), where
+     * mission i runs combination i / seeds with seed i % seeds
+     */
+    SweepTask(MissionSimulator.Params[] combos, int seeds, MissionSimulator.Result[] results,
+        int from, int to) {
+      this.combos = combos;
+      this.seeds = seeds;
+      this.results = results;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= MIN_TASK_SIZE) {
+        for (int i = from; i < to; i++) {
+          results[i] = new MissionSimulator(combos[i / seeds], i % seeds).run();
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new SweepTask(combos, seeds, results, from, mid),
+            new SweepTask(combos, seeds, results, mid, to));
+      }
+    }
+  }
+
+  /**
+   * The mean outcome of one combination over every seed
+   */
+  private static class Summary {
+    MissionSimulator.Params params;
+    double score;
+    double time;
+    double poseError;
+    double headingError;
+    double canError;
+    int failed;
+
+    @Override
+    public String toString() {
+      return String.format("score %7.1f  time %6.1fs  pose %5.2fcm  heading %5.2fdeg  "
+          + "can %5.2fcm  failed %d  %s", score, time, poseError, headingError, canError,
+          failed, params);
+    }
+  }
+
+  public static void main(String[] args) {
+    int seeds = 8;
+    int top = 10;
+    ParameterGrid grid = new ParameterGrid(MissionSimulator.Params.NAMES);
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-seeds") && i + 1 < args.length) {
+        seeds = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-top") && i + 1 < args.length) {
+        top = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-p") && i + 1 < args.length) {
+        try {
+          grid.add(args[++i]);
+        } catch (IllegalArgumentException e) {
+          System.err.println(e.getMessage());
+          System.exit(1);
+        }
+      } else {
+        System.err.println("Usage: ParameterSweep [-seeds n] [-top k] "
+            + "[-p name=value[,value...]]...");
+        System.exit(1);
+      }
+    }
+
+    MissionSimulator.loadLayout();
+    List<MissionSimulator.Params> combos = new ArrayList<MissionSimulator.Params>();
+    //the robot's current parameters come first, as the baseline
+    combos.add(new MissionSimulator.Params());
+    if (grid.size() > 0) {
+      do {
+        MissionSimulator.Params params = new MissionSimulator.Params();
+        for (int i = 0; i < grid.size(); i++) {
+          params.set(grid.getName(i), grid.getValue(i));
+        }
+        combos.add(params);
+      } while (grid.next());
+    }
+
+    MissionSimulator.Params[] all = combos.toArray(new MissionSimulator.Params[combos.size()]);
+    MissionSimulator.Result[] results = new MissionSimulator.Result[all.length * seeds];
+    ForkJoinPool pool = new ForkJoinPool();
+    System.out.println("Running " + results.length + " missions (" + all.length
+        + " combinations x " + seeds + " seeds) on " + pool.getParallelism() + " cores");
+    long start = System.currentTimeMillis();
+    pool.invoke(new SweepTask(all, seeds, results, 0, results.length));
+    pool.shutdown();
+    System.out.printf("Done in %.1fs%n", (System.currentTimeMillis() - start) / 1000.0);
+
+    Summary[] summaries = new Summary[all.length];
+    for (int c = 0; c < all.length; c++) {
+      Summary s = new Summary();
+      s.params = all[c];
+      for (int i = c * seeds; i < (c + 1) * seeds; i++) {
+        s.score += results[i].score() / seeds;
+        s.time += results[i].time / seeds;
+        s.poseError += results[i].poseError / seeds;
+        s.headingError += results[i].headingError / seeds;
+        s.canError += results[i].canError / seeds;
+        s.failed += results[i].completed ? 0 : 1;
+      }
+      summaries[c] = s;
+    }
+    System.out.println("Current: " + summaries[0]);
+    Summary[] ranked = Arrays.copyOfRange(summaries, 1, summaries.length);
+    //a stable sort, so ties keep the order of the combinations
+    Arrays.sort(ranked, new Comparator<Summary>() {
+      @Override
+      public int compare(Summary a, Summary b) {
+        return Double.compare(a.score, b.score);
+      }
+    });
+    for (int i = 0; i < Math.min(top, ranked.length); i++) {
+      System.out.printf("%3d: %s%n", i + 1, ranked[i]);
+    }
+  }
+}
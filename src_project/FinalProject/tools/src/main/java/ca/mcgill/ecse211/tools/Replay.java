@@ -0,0 +1,605 @@
+package ca.mcgill.ecse211.tools;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import ca.mcgill.ecse211.demo.CanFinder;
+import ca.mcgill.ecse211.demo.ScanProfile;
+import ca.mcgill.ecse211.localization.EdgeDetector;
+import ca.mcgill.ecse211.localization.HeadingHistory;
+import ca.mcgill.ecse211.localization.LightLocalizer;
+import ca.mcgill.ecse211.localization.LineDetector;
+import ca.mcgill.ecse211.localization.UltrasonicLocalizer;
+import ca.mcgill.ecse211.localization.WallFit;
+import ca.mcgill.ecse211.odometer.LineCorrector;
+import ca.mcgill.ecse211.odometer.OdometryCorrection;
+import ca.mcgill.ecse211.sensors.UltrasonicFilter;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
+import ca.mcgill.ecse211.wifi.Rect;
+
+/**
+ * A workstation tool that feeds the sensor readings in a telemetry recording
+ * back through the same decision logic the robot ran: odometry correction
+ * (LineCorrector), light localization (LineDetector and
+ * LightLocalizer.fromLines), ultrasonic localization (EdgeDetector and
+ * UltrasonicLocalizer.localizeNorth) and the can search (ScanProfile).
+ * With the robot's own parameters, the outputs match what the robot
+ * recorded, which is checked and reported. With other parameters, they show
+ * what the robot would have decided given the same readings.
+ *
+ * Replay is open loop: the robot's motion does not change with the
+ * parameters. Where the robot acts on a reading by stopping and then reading
+ * its heading, the replay adds the same lag between the reading and the stop
+ * as the robot had at that point.
+ *
+ * Usage: Replay [-q] [-p name=value[,value...]]... telemetry.bin
+ *
+ * Parameters with several values are swept, replaying once for every
+ * combination. -q only prints the summary of each replay.
+ * @author jacob
+ */
+public class Replay {
+  /**
+   * The names of the parameters that can be set
+   */
+  public static final String[] PARAMETERS = {"oc.threshold", "oc.dist", "oc.round",
+      "light.threshold", "light.correction", "us.distance", "us.wall_dist", "scan.jump", "scan.min_samples",
+      "scan.max_width"};
+  /**
+   * The largest difference between a replayed and a recorded
+   * value for them to count as the same
+   */
+  private static final double TOLERANCE = 0.01;
+
+  private long[] times = new long[1024];
+  private short[] types = new short[1024];
+  private short[] channels = new short[1024];
+  private float[] values = new float[1024 * TelemetryRecorder.VALUES];
+  private int size = 0;
+
+  private float ocThreshold = LineCorrector.LIGHT_THRESHOLD;
+  private float ocDist = LineCorrector.DIST_THRESHOLD;
+  private float ocRound = LineCorrector.ROUND_LIMIT;
+  private float lightThreshold = LightLocalizer.LIGHT_THRESHOLD;
+  private double lightCorrection = LightLocalizer.CORRECTION;
+  private double usDistance = UltrasonicLocalizer.DETECTION_DISTANCE;
+  private double usWallDist = WallFit.MAX_WALL_DIST;
+  private float scanJump = ScanProfile.EDGE_JUMP;
+  private int scanMinSamples = ScanProfile.MIN_EDGE_SAMPLES;
+  private double scanMaxWidth = ScanProfile.MAX_CAN_WIDTH;
+
+  public static void main(String[] args) throws IOException {
+    String input = null;
+    boolean quiet = false;
+    ParameterGrid grid = new ParameterGrid(PARAMETERS);
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-q")) {
+        quiet = true;
+      } else if (args[i].equals("-p") && i + 1 < args.length) {
+        try {
+          grid.add(args[++i]);
+        } catch (IllegalArgumentException e) {
+          System.err.println(e.getMessage());
+          System.exit(1);
+        }
+      } else {
+        input = args[i];
+      }
+    }
+    if (input == null) {
+      System.err.println("Usage: Replay [-q] [-p name=value[,value...]]... telemetry.bin");
+      System.exit(1);
+    }
+    Replay replay = load(input);
+    do {
+      for (int i = 0; i < grid.size(); i++) {
+        replay.set(grid.getName(i), grid.getValue(i));
+      }
+      if (grid.size() > 0) {
+        System.out.println("== " + grid);
+      }
+      replay.replayAll(System.out, quiet);
+    } while (grid.next());
+  }
+
+  /**
+   * Reads a whole telemetry file into memory
+   * @param path The telemetry file
+   * @return A replay of the file, with the robot's parameters
+   * @throws IOException if the file cannot be read or is not a telemetry file
+   */
+  public static Replay load(String path) throws IOException {
+    Replay replay = new Replay();
+    DataInputStream in = TelemetryDecoder.open(path);
+    try {
+      float[] v = new float[TelemetryRecorder.VALUES];
+      while (true) {
+        long time;
+        short type;
+        short channel;
+        try {
+          time = in.readLong();
+          type = in.readShort();
+          channel = in.readShort();
+          for (int i = 0; i < v.length; i++) {
+            v[i] = in.readFloat();
+          }
+        } catch (EOFException e) {
+          break;
+        }
+        replay.add(time, type, channel, v);
+      }
+    } finally {
+      in.close();
+    }
+    return replay;
+  }
+
+  /**
+   * Adds a record to the end of the replay
+   * @param time The time of the record, in ns
+   * @param type The type of the record
+   * @param channel The channel of the record
+   * @param v The values of the record
+   */
+  public void add(long time, short type, short channel, float[] v) {
+    if (size == times.length) {
+      times = Arrays.copyOf(times, size * 2);
+      types = Arrays.copyOf(types, size * 2);
+      channels = Arrays.copyOf(channels, size * 2);
+      values = Arrays.copyOf(values, size * 2 * TelemetryRecorder.VALUES);
+    }
+    times[size] = time;
+    types[size] = type;
+    channels[size] = channel;
+    System.arraycopy(v, 0, values, size * TelemetryRecorder.VALUES, TelemetryRecorder.VALUES);
+    size++;
+  }
+
+  /**
+   * Sets a parameter for the following replays
+   * @param name One of PARAMETERS
+   * @param value The value of the parameter
+   */
+  public void set(String name, double value) {
+    switch (name) {
+      case "oc.threshold":
+        ocThreshold = (float) value;
+        break;
+      case "oc.dist":
+        ocDist = (float) value;
+        break;
+      case "oc.round":
+        ocRound = (float) value;
+        break;
+      case "light.threshold":
+        lightThreshold = (float) value;
+        break;
+      case "light.correction":
+        lightCorrection = value;
+        break;
+      case "us.distance":
+        usDistance = value;
+        break;
+      case "us.wall_dist":
+        usWallDist = value;
+        break;
+      case "scan.jump":
+        scanJump = (float) value;
+        break;
+      case "scan.min_samples":
+        scanMinSamples = (int) value;
+        break;
+      case "scan.max_width":
+        scanMaxWidth = value;
+        break;
+      default:
+        throw new IllegalArgumentException("No such parameter: " + name);
+    }
+  }
+
+  /**
+   * Replays every component
+   * @param out Where to write the outputs
+   * @param quiet True to only write the summary of each component
+   */
+  public void replayAll(PrintStream out, boolean quiet) {
+    replayCorrection(out, quiet);
+    replayLightLocalizer(out, quiet);
+    replayUsLocalizer(out, quiet);
+    replayScans(out, quiet);
+  }
+
+  /**
+   * Replays the line sensor readings of the correction loop through a
+   * LineCorrector, turning it on and off as the robot did
+   * @param out Where to write the corrections
+   * @param quiet True to only write the summary
+   * @return The number of replayed corrections that match the robot's
+   */
+  public int replayCorrection(PrintStream out, boolean quiet) {
+    LineCorrector corrector = new LineCorrector(ocThreshold, ocDist, ocRound);
+    List<double[]> robot = new ArrayList<double[]>();
+    List<double[]> replayed = new ArrayList<double[]>();
+    boolean on = false;
+    for (int r = 0; r < size; r++) {
+      int v = r * TelemetryRecorder.VALUES;
+      if (types[r] == TelemetryRecorder.STATE && channels[r] == TelemetryRecorder.CORRECTION) {
+        int state = (int) values[v];
+        if (state == OdometryCorrection.LINE) {
+          robot.add(new double[] {values[v + 1], values[v + 2]});
+        } else {
+          on = state == OdometryCorrection.ON;
+        }
+      } else if (types[r] == TelemetryRecorder.SENSOR
+          && channels[r] == TelemetryRecorder.LINE_SENSOR) {
+        double[] pos = {values[v + 2], values[v + 3], values[v + 4]};
+        int result = corrector.update(pos, values[v], on);
+        if (result != LineCorrector.NO_LINE) {
+          replayed.add(new double[] {result, corrector.getCorrection()});
+          if (!quiet) {
+            out.printf("correction %8.3fs  %-11s %8.2f%n", times[r] / 1e9, lineResult(result),
+                isCorrection(result) ? corrector.getCorrection() : Double.NaN);
+          }
+        }
+      }
+    }
+    int matches = 0;
+    int corrections = 0;
+    int tooFar = 0;
+    for (int i = 0; i < replayed.size(); i++) {
+      int result = (int) replayed.get(i)[0];
+      corrections += isCorrection(result) ? 1 : 0;
+      tooFar += result == LineCorrector.TOO_FAR ? 1 : 0;
+      if (i < robot.size() && robot.get(i)[0] == result
+          && (!isCorrection(result) || same(robot.get(i)[1], replayed.get(i)[1]))) {
+        matches++;
+      }
+    }
+    out.printf("correction: %d lines, %d corrections, %d too far; %d/%d match the robot%n",
+        replayed.size(), corrections, tooFar, matches, robot.size());
+    return matches;
+  }
+
+  /**
+   * Replays the line sensor readings of each light localization through a
+   * LineDetector, and localizes from the headings of the lines it finds
+   * @param out Where to write the localized poses
+   * @param quiet True to only write the summary
+   * @return The number of replayed localizations that match the robot's
+   */
+  public int replayLightLocalizer(PrintStream out, boolean quiet) {
+    int runs = 0;
+    int localized = 0;
+    int matches = 0;
+    double[] start = null;
+    List<float[]> samples = new ArrayList<float[]>();
+    List<Double> lags = new ArrayList<Double>();
+    for (int r = 0; r < size; r++) {
+      int v = r * TelemetryRecorder.VALUES;
+      if (types[r] == TelemetryRecorder.SENSOR
+          && channels[r] == TelemetryRecorder.LOCALIZER_LINE && start != null) {
+        samples.add(new float[] {values[v], values[v + 4]});
+      }
+      if (types[r] != TelemetryRecorder.STATE
+          || channels[r] != TelemetryRecorder.LIGHT_LOCALIZER) {
+        continue;
+      }
+      int state = (int) values[v];
+      if (state == LightLocalizer.LINES) {
+        start = new double[] {values[v + 1], values[v + 2], values[v + 3]};
+        samples.clear();
+        lags.clear();
+      } else if (start != null && state == LightLocalizer.LINE_FOUND) {
+        //the robot saw the line at the last sample, and stopped here
+        lags.add(samples.isEmpty() ? 0
+            : angleDiff(values[v + 1], samples.get(samples.size() - 1)[1]));
+      } else if (start != null) {
+        runs++;
+        double[] robot = state == LightLocalizer.DONE
+            ? new double[] {values[v + 1], values[v + 2], values[v + 3]} : null;
+        double[] xyt = localize(start, samples, lags);
+        if (xyt != null) {
+          localized++;
+        }
+        if (xyt == null ? robot == null
+            : robot != null && same(xyt[0], robot[0]) && same(xyt[1], robot[1])
+                && same(angleDiff(xyt[2], robot[2]), 0)) {
+          matches++;
+        }
+        if (!quiet) {
+          out.printf("light      %8.3fs  at (%.1f, %.1f): %s, robot %s%n", times[r] / 1e9,
+              start[0], start[1], pose(xyt), pose(robot));
+        }
+        start = null;
+      }
+    }
+    out.printf("light localizer: %d/%d localized; %d/%d match the robot%n", localized, runs,
+        matches, runs);
+    return matches;
+  }
+
+  /**
+   * Finds the 4 lines in the samples of one light localization,
+   * and localizes from them
+   * @param start The x and y of the cross, and the starting heading
+   * @param samples The samples, as {sample, heading}
+   * @param lags The difference between the heading the robot stopped at
+   * and the heading of the sample it saw each line at
+   * @return The localized pose, or null if 4 lines were not found
+   */
+  private double[] localize(double[] start, List<float[]> samples, List<Double> lags) {
+    LineDetector lines = new LineDetector(lightThreshold);
+    double[] t = new double[4];
+    int found = 0;
+    double startT = start[2];
+    for (int i = 0; i < samples.size() && found < t.length; i++) {
+      if (lines.add(samples.get(i)[0])) {
+        t[found] = samples.get(i)[1] + lag(lags, found);
+        if ((startT - t[found] + 360) % 360 >= 180) {
+          return null;
+        }
+        startT = t[found];
+        found++;
+      }
+    }
+    if (found < t.length) {
+      return null;
+    }
+    return LightLocalizer.fromLines(start[0], start[1], t[0], t[1], t[2], t[3], t[3],
+        lightCorrection);
+  }
+
+  /**
+   * Replays the ultrasonic readings of each ultrasonic localization through
+   * a WallFit if the robot turned once, or else an EdgeDetector, and finds
+   * north from the walls or edges it finds
+   * @param out Where to write the corrected headings
+   * @param quiet True to only write the summary
+   * @return The number of replayed localizations that match the robot's
+   */
+  public int replayUsLocalizer(PrintStream out, boolean quiet) {
+    int runs = 0;
+    int localized = 0;
+    int matches = 0;
+    EdgeDetector edges = new EdgeDetector(usDistance);
+    WallFit fit = new WallFit(usWallDist);
+    UltrasonicFilter sweepFilter = new UltrasonicFilter();
+    HeadingHistory sweepHeadings = new HeadingHistory(UltrasonicLocalizer.HISTORY_SIZE);
+    boolean inEdge = false;
+    boolean inSweep = false;
+    Double sweepNorth = null;
+    double[] sweepXY = {0, 0};
+    List<float[]> samples = new ArrayList<float[]>();
+    List<Double> found = new ArrayList<Double>();
+    List<Double> robotFound = new ArrayList<Double>();
+    for (int r = 0; r < size; r++) {
+      int v = r * TelemetryRecorder.VALUES;
+      if (types[r] == TelemetryRecorder.SENSOR && channels[r] == TelemetryRecorder.US_SENSOR
+          && inEdge) {
+        samples.add(new float[] {values[v + 1], values[v + 4]});
+      }
+      if (types[r] == TelemetryRecorder.SENSOR && channels[r] == TelemetryRecorder.US_SENSOR
+          && inSweep) {
+        //filter the raw readings again, to pair each with the heading of its median
+        long time = times[r] / 1000000;
+        float dist = sweepFilter.push(values[v], time);
+        sweepHeadings.add(time, values[v + 4]);
+        fit.add(dist, sweepHeadings.headingAt(sweepFilter.getMedianTimestamp()));
+      }
+      if (types[r] != TelemetryRecorder.STATE
+          || channels[r] != TelemetryRecorder.US_LOCALIZER) {
+        continue;
+      }
+      int state = (int) values[v];
+      if (state == UltrasonicLocalizer.SWEEP) {
+        inSweep = true;
+        fit.clear();
+        sweepFilter.clear();
+        sweepHeadings.clear();
+      } else if (state == UltrasonicLocalizer.SWEEP_DONE && inSweep) {
+        inSweep = false;
+        sweepNorth = fit.fit() && fit.isHeadingGood() ? fit.getNorth() : null;
+        boolean located = sweepNorth != null && fit.isGood();
+        sweepXY[0] = located ? fit.getX() : 0;
+        sweepXY[1] = located ? fit.getY() : 0;
+      } else if (state == UltrasonicLocalizer.EDGE) {
+        inEdge = true;
+        samples.clear();
+      } else if (state == UltrasonicLocalizer.EDGE_FOUND && inEdge) {
+        inEdge = false;
+        double robotEdge = values[v + 1];
+        double lag = samples.isEmpty() ? 0
+            : angleDiff(robotEdge, samples.get(samples.size() - 1)[1]);
+        edges.reset();
+        Double edge = null;
+        for (float[] s : samples) {
+          if (edges.add(s[0])) {
+            edge = s[1] + lag;
+            break;
+          }
+        }
+        found.add(edge);
+        robotFound.add(robotEdge);
+      } else if (state == UltrasonicLocalizer.DONE) {
+        runs++;
+        Double north = null;
+        if (found.isEmpty() && sweepNorth != null) {
+          //north comes from the headings of the readings, so there is no lag to add
+          north = (values[v + 2] - sweepNorth + 360) % 360;
+          localized++;
+          if (same(angleDiff(north, values[v + 1]), 0) && same(sweepXY[0], values[v + 3])
+              && same(sweepXY[1], values[v + 4])) {
+            matches++;
+          }
+          if (!quiet) {
+            out.printf("us         %8.3fs  x %.2f, y %.2f, robot %.2f, %.2f%n", times[r] / 1e9,
+                sweepXY[0], sweepXY[1], values[v + 3], values[v + 4]);
+          }
+        } else if (found.size() == 2 && found.get(0) != null && found.get(1) != null) {
+          //the robot would have stopped at the replayed edge instead
+          double t = values[v + 2] + found.get(1) - robotFound.get(1);
+          north = (t - UltrasonicLocalizer.localizeNorth(found.get(0), found.get(1)) + 360)
+              % 360;
+          localized++;
+          if (same(angleDiff(north, values[v + 1]), 0)) {
+            matches++;
+          }
+        }
+        if (!quiet) {
+          out.printf("us         %8.3fs  heading %s, robot %.2f%n", times[r] / 1e9,
+              north == null ? "no edge" : String.format("%.2f", north), values[v + 1]);
+        }
+        found.clear();
+        robotFound.clear();
+        sweepNorth = null;
+      }
+    }
+    out.printf("us localizer: %d/%d localized; %d/%d match the robot%n", localized, runs,
+        matches, runs);
+    return matches;
+  }
+
+  /**
+   * Replays the ultrasonic readings of each can search through a ScanProfile
+   * @param out Where to write the cans found
+   * @param quiet True to only write the summary
+   * @return The number of replayed searches that match the robot's
+   */
+  public int replayScans(PrintStream out, boolean quiet) {
+    int scans = 0;
+    int cans = 0;
+    int matches = 0;
+    ScanProfile profile = new ScanProfile(scanJump, scanMinSamples, scanMaxWidth);
+    UltrasonicFilter scanFilter =
+        new UltrasonicFilter(CanFinder.US_WINDOW, CanFinder.US_SPIKE_THRESH);
+    HeadingHistory scanHeadings = new HeadingHistory(CanFinder.HISTORY_SIZE);
+    Rect zone = null;
+    for (int r = 0; r < size; r++) {
+      int v = r * TelemetryRecorder.VALUES;
+      if (types[r] == TelemetryRecorder.SENSOR && channels[r] == TelemetryRecorder.SCAN_US
+          && zone != null) {
+        //filter the raw readings again, to pair each with the heading of its median
+        long time = times[r] / 1000000;
+        float dist = scanFilter.push(values[v + 1], time);
+        scanHeadings.add(time, values[v + 4]);
+        profile.add(dist, scanHeadings.headingAt(scanFilter.getMedianTimestamp()));
+      }
+      if (types[r] != TelemetryRecorder.STATE || channels[r] != TelemetryRecorder.CAN_FINDER) {
+        continue;
+      }
+      int state = (int) values[v];
+      if (state == CanFinder.SCAN) {
+        zone = new Rect((int) values[v + 1], (int) values[v + 2], (int) values[v + 3],
+            (int) values[v + 4]);
+        profile.clear();
+        scanFilter.clear();
+        scanHeadings.clear();
+      } else if (state == CanFinder.SCAN_DONE && zone != null) {
+        scans++;
+        double[] can = profile.findCan(values[v + 3], values[v + 4], zone);
+        boolean robotFound = !Float.isNaN(values[v + 1]);
+        if (can != null) {
+          cans++;
+        }
+        if (can == null ? !robotFound
+            : robotFound && same(can[0], values[v + 1]) && same(can[1], values[v + 2])) {
+          matches++;
+        }
+        if (!quiet) {
+          out.printf("scan       %8.3fs  %d samples: %s, robot %s%n", times[r] / 1e9,
+              profile.size(), can == null ? "no can"
+                  : String.format("can at (%.1f, %.1f)", can[0], can[1]),
+              robotFound ? String.format("can at (%.1f, %.1f)", values[v + 1], values[v + 2])
+                  : "no can");
+        }
+        zone = null;
+      }
+    }
+    out.printf("can search: %d/%d found a can; %d/%d match the robot%n", cans, scans, matches,
+        scans);
+    return matches;
+  }
+
+  /**
+   * Looks up the lag the robot had when it stopped at a line, or the
+   * average lag if it stopped at fewer lines
+   * @param lags The lags of the robot, in degrees
+   * @param i The index of the line
+   * @return The lag to add to the heading of the sample, in degrees
+   */
+  private static double lag(List<Double> lags, int i) {
+    if (i < lags.size()) {
+      return lags.get(i);
+    }
+    double sum = 0;
+    for (double l : lags) {
+      sum += l;
+    }
+    return lags.isEmpty() ? 0 : sum / lags.size();
+  }
+
+  /**
+   * Returns the signed difference between two headings
+   * @param a The first heading, in degrees
+   * @param b The second heading, in degrees
+   * @return a - b, between -180 and 180
+   */
+  private static double angleDiff(double a, double b) {
+    double d = ((a - b) % 360 + 360) % 360;
+    return d > 180 ? d - 360 : d;
+  }
+
+  /**
+   * Returns whether or not a replayed value is the same as a recorded one,
+   * which was rounded to a float
+   * @param a The first value
+   * @param b The second value
+   * @return True if they are within TOLERANCE
+   */
+  private static boolean same(double a, double b) {
+    return Math.abs(a - b) < TOLERANCE;
+  }
+
+  /**
+   * Returns whether or not a result of LineCorrector.update() is a correction
+   * @param result The result
+   * @return True if x or y was corrected
+   */
+  private static boolean isCorrection(int result) {
+    return result == LineCorrector.CORRECTED_X || result == LineCorrector.CORRECTED_Y;
+  }
+
+  /**
+   * Names a result of LineCorrector.update()
+   * @param result The result
+   * @return The name of the result
+   */
+  private static String lineResult(int result) {
+    switch (result) {
+      case LineCorrector.FIRST_LINE:
+        return "first line";
+      case LineCorrector.CORRECTED_X:
+        return "x";
+      case LineCorrector.CORRECTED_Y:
+        return "y";
+      case LineCorrector.TOO_FAR:
+        return "too far";
+      default:
+        return "no line";
+    }
+  }
+
+  /**
+   * Formats a pose
+   * @param xyt The pose, or null
+   * @return The pose as (x, y, t), or "failed"
+   */
+  private static String pose(double[] xyt) {
+    return xyt == null ? "failed" : String.format("(%.2f, %.2f, %.2f)", xyt[0], xyt[1], xyt[2]);
+  }
+}
@@ -0,0 +1,178 @@
+package ca.mcgill.ecse211.tools;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
+
+/**
+ * A workstation tool that turns a binary telemetry file, as written by
+ * telemetry.TelemetryRecorder, into a CSV file with one line per record:
+ * "time_ms,type,channel,v0,...,v4". Types and channels are written by name.
+ *
+ * Usage: TelemetryDecoder [-o output.csv] telemetry.bin
+ *
+ * @author jacob
+ */
+public class TelemetryDecoder {
+
+  public static void main(String[] args) throws IOException {
+    String input = null;
+    String output = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-o") && i + 1 < args.length) {
+        output = args[++i];
+      } else {
+        input = args[i];
+      }
+    }
+    if (input == null) {
+      System.err.println("Usage: TelemetryDecoder [-o output.csv] telemetry.bin");
+      System.exit(1);
+    }
+    PrintStream out = output == null ? System.out : new PrintStream(output, "UTF-8");
+    try {
+      int n = decode(input, out);
+      if (output != null) {
+        System.out.println("Wrote " + n + " records to " + output);
+      }
+    } finally {
+      if (output != null) {
+        out.close();
+      }
+    }
+  }
+
+  /**
+   * Decodes a telemetry file into CSV
+   * @param path The telemetry file
+   * @param out Where to write the CSV lines
+   * @return The number of records decoded
+   * @throws IOException if the file cannot be read or is not a telemetry file
+   */
+  public static int decode(String path, PrintStream out) throws IOException {
+    DataInputStream in = open(path);
+    try {
+      out.print("time_ms,type,channel");
+      for (int i = 0; i < TelemetryRecorder.VALUES; i++) {
+        out.print(",v" + i);
+      }
+      out.println();
+      int n = 0;
+      float[] values = new float[TelemetryRecorder.VALUES];
+      while (true) {
+        long time;
+        try {
+          time = in.readLong();
+        } catch (EOFException e) {
+          break;
+        }
+        short type;
+        short channel;
+        try {
+          type = in.readShort();
+          channel = in.readShort();
+          for (int i = 0; i < values.length; i++) {
+            values[i] = in.readFloat();
+          }
+        } catch (EOFException e) {
+          //the recording was cut off mid record
+          break;
+        }
+        out.print(time / 1e6);
+        out.print(',');
+        out.print(name(TelemetryRecorder.TYPE_NAMES, type));
+        out.print(',');
+        out.print(channelName(type, channel));
+        for (float v : values) {
+          out.print(',');
+          out.print(v);
+        }
+        out.println();
+        n++;
+      }
+      return n;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Opens a telemetry file and checks its header
+   * @param path The telemetry file
+   * @return A stream positioned at the first record
+   * @throws IOException if the file cannot be read or is not a telemetry file
+   */
+  public static DataInputStream open(String path) throws IOException {
+    DataInputStream in;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+    } catch (FileNotFoundException e) {
+      throw new IOException("No such file: " + path);
+    }
+    try {
+      readHeader(in, path);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+    return in;
+  }
+
+  /**
+   * Reads the header of a telemetry file or stream, and checks that
+   * its records can be decoded
+   * @param in The stream to read from
+   * @param source The name of the stream, for error messages
+   * @throws IOException if the stream cannot be read or is not telemetry
+   */
+  public static void readHeader(DataInputStream in, String source) throws IOException {
+    byte[] magic = new byte[TelemetryRecorder.MAGIC.length];
+    in.readFully(magic);
+    for (int i = 0; i < magic.length; i++) {
+      if (magic[i] != TelemetryRecorder.MAGIC[i]) {
+        throw new IOException(source + " is not telemetry");
+      }
+    }
+    int version = in.readInt();
+    int recordSize = in.readInt();
+    if (version != TelemetryRecorder.VERSION || recordSize != TelemetryRecorder.RECORD_SIZE) {
+      throw new IOException("Unsupported telemetry version " + version);
+    }
+  }
+
+  /**
+   * Finds the name of a channel, given the type of its record
+   * @param type The type of the record
+   * @param channel The channel of the record
+   * @return The name of the channel
+   */
+  public static String channelName(short type, short channel) {
+    switch (type) {
+      case TelemetryRecorder.SENSOR:
+        return name(TelemetryRecorder.SENSOR_NAMES, channel);
+      case TelemetryRecorder.LOOP:
+      case TelemetryRecorder.STATE:
+      case TelemetryRecorder.LOOP_STATS:
+        return name(TelemetryRecorder.COMPONENT_NAMES, channel);
+      case TelemetryRecorder.LOCK_STATS:
+        return name(TelemetryRecorder.LOCK_NAMES, channel);
+      default:
+        return Integer.toString(channel);
+    }
+  }
+
+  /**
+   * Looks up a name in a table, falling back to the index itself
+   * @param names The table of names
+   * @param i The index
+   * @return The name at i, or i as a string if there is none
+   */
+  public static String name(String[] names, int i) {
+    return i >= 0 && i < names.length ? names[i] : Integer.toString(i);
+  }
+}
@@ -0,0 +1,223 @@
+package ca.mcgill.ecse211.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Socket;
+import ca.mcgill.ecse211.canhandling.CanColor;
+import ca.mcgill.ecse211.navigation.NavigationController;
+import ca.mcgill.ecse211.telemetry.TelemetryRecorder;
+import ca.mcgill.ecse211.telemetry.TelemetryServer;
+
+/**
+ * A workstation tool that connects to the TelemetryServer on the robot
+ * and shows a live dashboard of the latest pose, navigation state,
+ * sensor values, classifier output and loop timing in the terminal.
+ * The stream can also be saved to a file, to be decoded later with
+ * TelemetryDecoder.
+ *
+ * Usage: TelemetryViewer [-o save.bin] host [port]
+ *
+ * Run against localhost to test a server on the same machine.
+ * @author jacob
+ */
+public class TelemetryViewer {
+  /**
+   * The time between redraws of the dashboard, in ms
+   */
+  private static final int REDRAW_PERIOD = 250;
+
+  private double[] pose = new double[3];
+  private int navState = -1;
+  private float[][] sensors =
+      new float[TelemetryRecorder.SENSOR_NAMES.length][TelemetryRecorder.VALUES];
+  private boolean[] seenSensor = new boolean[TelemetryRecorder.SENSOR_NAMES.length];
+  private int color = -1;
+  private float colorConfidence;
+  private float[][] loopStats =
+      new float[TelemetryRecorder.COMPONENT_NAMES.length][TelemetryRecorder.VALUES];
+  private boolean[] seenLoop = new boolean[TelemetryRecorder.COMPONENT_NAMES.length];
+  private float[][] lockStats =
+      new float[TelemetryRecorder.LOCK_NAMES.length][TelemetryRecorder.VALUES];
+  private boolean[] seenLock = new boolean[TelemetryRecorder.LOCK_NAMES.length];
+  private long dropped = 0;
+  private long records = 0;
+  private double lastTime = 0;
+
+  public static void main(String[] args) throws IOException {
+    String host = null;
+    int port = TelemetryServer.DEFAULT_PORT;
+    String save = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-o") && i + 1 < args.length) {
+        save = args[++i];
+      } else if (host == null) {
+        host = args[i];
+      } else {
+        port = Integer.parseInt(args[i]);
+      }
+    }
+    if (host == null) {
+      System.err.println("Usage: TelemetryViewer [-o save.bin] host [port]");
+      System.exit(1);
+    }
+    Socket socket = new Socket(host, port);
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out = null;
+    try {
+      TelemetryDecoder.readHeader(in, host);
+      if (save != null) {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(save)));
+        out.write(TelemetryRecorder.MAGIC);
+        out.writeInt(TelemetryRecorder.VERSION);
+        out.writeInt(TelemetryRecorder.RECORD_SIZE);
+      }
+      new TelemetryViewer().view(in, out, System.out);
+    } finally {
+      socket.close();
+      if (out != null) {
+        out.close();
+      }
+    }
+  }
+
+  /**
+   * Reads records until the stream ends, redrawing the dashboard
+   * every REDRAW_PERIOD
+   * @param in The stream of records, after the header
+   * @param save Where to copy the records to, or null
+   * @param out Where to draw the dashboard
+   * @throws IOException if the stream cannot be read
+   */
+  public void view(DataInputStream in, DataOutputStream save, PrintStream out)
+      throws IOException {
+    float[] values = new float[TelemetryRecorder.VALUES];
+    long lastDraw = 0;
+    while (true) {
+      long time;
+      short type;
+      short channel;
+      try {
+        time = in.readLong();
+        type = in.readShort();
+        channel = in.readShort();
+        for (int i = 0; i < values.length; i++) {
+          values[i] = in.readFloat();
+        }
+      } catch (EOFException e) {
+        out.println("Connection closed");
+        return;
+      }
+      if (save != null) {
+        save.writeLong(time);
+        save.writeShort(type);
+        save.writeShort(channel);
+        for (float v : values) {
+          save.writeFloat(v);
+        }
+      }
+      update(time, type, channel, values);
+      if (System.currentTimeMillis() - lastDraw >= REDRAW_PERIOD) {
+        lastDraw = System.currentTimeMillis();
+        draw(out);
+      }
+    }
+  }
+
+  /**
+   * Keeps the latest values of a record
+   * @param time The time of the record, in ns
+   * @param type The type of the record
+   * @param channel The channel of the record
+   * @param values The values of the record
+   */
+  private void update(long time, short type, short channel, float[] values) {
+    records++;
+    lastTime = time / 1e9;
+    switch (type) {
+      case TelemetryRecorder.POSE:
+        for (int i = 0; i < 3; i++) {
+          pose[i] = values[i];
+        }
+        break;
+      case TelemetryRecorder.SENSOR:
+        if (channel >= 0 && channel < sensors.length) {
+          System.arraycopy(values, 0, sensors[channel], 0, values.length);
+          seenSensor[channel] = true;
+        }
+        break;
+      case TelemetryRecorder.STATE:
+        if (channel == TelemetryRecorder.NAVIGATION) {
+          navState = (int) values[0];
+        } else if (channel == TelemetryRecorder.CLASSIFIER) {
+          color = (int) values[0];
+          colorConfidence = values[1];
+        }
+        break;
+      case TelemetryRecorder.LOOP_STATS:
+        if (channel >= 0 && channel < loopStats.length) {
+          System.arraycopy(values, 0, loopStats[channel], 0, values.length);
+          seenLoop[channel] = true;
+        }
+        break;
+      case TelemetryRecorder.LOCK_STATS:
+        if (channel >= 0 && channel < lockStats.length) {
+          System.arraycopy(values, 0, lockStats[channel], 0, values.length);
+          seenLock[channel] = true;
+        }
+        break;
+      case TelemetryRecorder.DROPPED:
+        dropped += (long) values[0];
+        break;
+      default:
+    }
+  }
+
+  /**
+   * Draws the dashboard over the whole terminal
+   * @param out Where to draw the dashboard
+   */
+  private void draw(PrintStream out) {
+    out.print("\033[H\033[2J");
+    out.printf("t=%.1fs  records=%d  dropped=%d%n%n", lastTime, records, dropped);
+    out.printf("pose   x=%7.2f  y=%7.2f  t=%6.1f%n", pose[0], pose[1], pose[2]);
+    NavigationController.State[] states = NavigationController.State.values();
+    out.printf("nav    %s%n", navState >= 0 && navState < states.length
+        ? states[navState].toString() : "-");
+    CanColor[] colors = CanColor.values();
+    out.printf("can    %s%n", color >= 0 && color < colors.length
+        ? colors[color] + String.format(" (p=%.3f)", colorConfidence) : "-");
+    out.println();
+    for (int i = 0; i < sensors.length; i++) {
+      if (seenSensor[i]) {
+        out.printf("%-6s %9.3f %9.3f %9.3f%n", TelemetryRecorder.SENSOR_NAMES[i],
+            sensors[i][0], sensors[i][1], sensors[i][2]);
+      }
+    }
+    out.println();
+    out.println("loop             period p50/p99     exec p50/p99   misses");
+    for (int i = 0; i < loopStats.length; i++) {
+      if (seenLoop[i]) {
+        float[] s = loopStats[i];
+        out.printf("%-16s %6.1f/%6.1f   %6.2f/%6.2f   %6d%n",
+            TelemetryRecorder.COMPONENT_NAMES[i].toLowerCase(),
+            s[0], s[1], s[2], s[3], (long) s[4]);
+      }
+    }
+    out.println();
+    out.println("lock wait          count     mean      p99      max (ms)");
+    for (int i = 0; i < lockStats.length; i++) {
+      if (seenLock[i]) {
+        float[] s = lockStats[i];
+        out.printf("%-16s %7d  %7.3f  %7.3f  %7.3f%n",
+            TelemetryRecorder.LOCK_NAMES[i].toLowerCase(), (long) s[0], s[1], s[2], s[3]);
+      }
+    }
+    out.flush();
+  }
+}
@@ -1,3 +1,4 @@
+import ca.mcgill.ecse211.sensors.UltrasonicFilter;
 import lejos.hardware.Button;
 import lejos.hardware.Sound;
 import lejos.hardware.ev3.LocalEV3;
@@ -14,6 +15,7 @@ public class Main {
     SensorModes usSensor = new EV3UltrasonicSensor(LocalEV3.get().getPort("S1"));
     DIST = usSensor.getMode("Distance");
   }
+  private static final UltrasonicFilter FILTER = new UltrasonicFilter(DIST);
 
   public static void main(String[] args) throws InterruptedException {
     Sound.twoBeeps();
@@ -48,16 +50,11 @@ public class Main {
 }
 
 /**
- * Polls the ultrasonic sensor and returns the result
+ * Polls the ultrasonic sensor and returns the filtered result
  * 
  * @return The US reading in cm
  */
 private static float readUS() {
-  float[] usData = new float[DIST.sampleSize()];
-  DIST.fetchSample(usData, 0);
-  if (usData[0] == 255) {
-    return -1;
-  }
-  return usData[0] * 100f;
+  return FILTER.fetch();
 }
 }